@@ -0,0 +1,49 @@
+package org.homework1.benchmark;
+
+import org.homework1.service.BuildingService;
+import org.homework1.util.IntegerRange;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BuildingServiceBenchmark {
+
+  private static final int RANGE_WIDTH = 10;
+  private static final int RANGE_STRIDE = 20;
+
+  @Param({"10", "100", "1000"})
+  public int buildingCount;
+
+  @Param({"1", "10", "100"})
+  public int rangesPerBuilding;
+
+  private BuildingService buildingService;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    buildingService = new BuildingService();
+    for (int building = 1; building <= buildingCount; building++) {
+      final IntegerRange[] ranges = new IntegerRange[rangesPerBuilding];
+      for (int i = 0; i < rangesPerBuilding; i++) {
+        final int start = i * RANGE_STRIDE + 1;
+        ranges[i] = new IntegerRange(start, start + RANGE_WIDTH - 1);
+      }
+      buildingService.addBuilding(building, ranges);
+    }
+  }
+
+  @Benchmark
+  public void checkRoom() {
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+    final int building = random.nextInt(buildingCount) + 1;
+    final int room = random.nextInt(rangesPerBuilding) * RANGE_STRIDE + 1 + random.nextInt(RANGE_WIDTH);
+    buildingService.checkRoom(building, room);
+  }
+}
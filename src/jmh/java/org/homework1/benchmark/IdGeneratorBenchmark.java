@@ -0,0 +1,50 @@
+package org.homework1.benchmark;
+
+import org.homework1.util.IdGenerator;
+import org.homework1.util.TimeOrderedIdGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates IDs from several threads at once with the random generator the models used to call
+ * and the time-ordered one they use now, to show how each scales with the thread count.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class IdGeneratorBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class Generator {
+    @Param({"random", "timeOrdered"})
+    String kind;
+
+    IdGenerator ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      ids = kind.equals("random") ? IdGenerator.random() : new TimeOrderedIdGenerator();
+    }
+  }
+
+  @Benchmark
+  public UUID nextId(Generator generator) {
+    return generator.ids.nextId();
+  }
+
+  @Threads(1)
+  public static class Threads1 extends IdGeneratorBenchmark {
+  }
+
+  @Threads(4)
+  public static class Threads4 extends IdGeneratorBenchmark {
+  }
+
+  @Threads(16)
+  public static class Threads16 extends IdGeneratorBenchmark {
+  }
+}
@@ -0,0 +1,88 @@
+package org.homework1.benchmark;
+
+import org.homework1.model.Ingredient;
+import org.homework1.service.BuildingService;
+import org.homework1.service.OrderService;
+import org.homework1.service.RecipeService;
+import org.homework1.util.IntegerRange;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adds pancakes with and without stock tracking on their ingredients. With tracking on, every
+ * pancake reserves its ingredients and the cancel gives them back, so the difference between
+ * the two runs is the cost of the reservations, and the thread counts show whether it scales.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class IngredientStockBenchmark {
+
+  private static final int BUILDING = 1;
+  private static final int FIRST_ROOM = 101;
+  private static final int LAST_ROOM = 199;
+  private static final int INGREDIENTS = 16;
+  private static final int RECIPES = 32;
+  private static final int PANCAKES_PER_ORDER = 4;
+
+  @State(Scope.Benchmark)
+  public static class Services {
+    @Param({"false", "true"})
+    boolean tracked;
+
+    OrderService orderService;
+    final List<UUID> recipeIds = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      final BuildingService buildingService = new BuildingService();
+      final RecipeService recipeService = new RecipeService();
+      buildingService.addBuilding(BUILDING, new IntegerRange(FIRST_ROOM, LAST_ROOM));
+      final List<UUID> ingredientIds = new ArrayList<>();
+      for (int i = 0; i < INGREDIENTS; i++) {
+        final Ingredient ingredient = recipeService.createIngredient("Ingredient " + i);
+        ingredientIds.add(ingredient.getId());
+        if (tracked) {
+          // Every reservation is handed back, so the stock never runs out
+          recipeService.setStock(ingredient.getId(), Long.MAX_VALUE / 2);
+        }
+      }
+      for (int i = 0; i < RECIPES; i++) {
+        recipeIds.add(recipeService.createRecipe("Recipe " + i,
+            List.of(ingredientIds.get(i % INGREDIENTS), ingredientIds.get((i * 7 + 3) % INGREDIENTS))));
+      }
+      orderService = new OrderService(buildingService, recipeService);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(PANCAKES_PER_ORDER)
+  public void addPancakesThenCancel(Services services) {
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+    final OrderService orderService = services.orderService;
+    final UUID orderId = orderService.createOrder(BUILDING, random.nextInt(FIRST_ROOM, LAST_ROOM + 1));
+    for (int i = 0; i < PANCAKES_PER_ORDER; i++) {
+      orderService.addPancake(orderId, services.recipeIds.get(random.nextInt(services.recipeIds.size())));
+    }
+    orderService.cancelOrder(orderId);
+  }
+
+  @Threads(1)
+  public static class Threads1 extends IngredientStockBenchmark {
+  }
+
+  @Threads(4)
+  public static class Threads4 extends IngredientStockBenchmark {
+  }
+
+  @Threads(16)
+  public static class Threads16 extends IngredientStockBenchmark {
+  }
+}
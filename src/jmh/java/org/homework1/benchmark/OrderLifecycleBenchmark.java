@@ -0,0 +1,221 @@
+package org.homework1.benchmark;
+
+import org.homework1.model.Ingredient;
+import org.homework1.service.BuildingService;
+import org.homework1.service.OrderService;
+import org.homework1.service.RecipeService;
+import org.homework1.util.IntegerRange;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives the order lifecycle through a shared {@link OrderService}, both as a whole and one
+ * operation at a time. Each nested class runs the same benchmarks at a fixed thread count, so
+ * a change in the services' locking shows up as a change in scaling between them.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class OrderLifecycleBenchmark {
+
+  private static final int BUILDING = 1;
+  private static final int FIRST_ROOM = 101;
+  private static final int LAST_ROOM = 199;
+
+  @State(Scope.Benchmark)
+  public static class Services {
+    OrderService orderService;
+    UUID recipeId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      final BuildingService buildingService = new BuildingService();
+      final RecipeService recipeService = new RecipeService();
+      buildingService.addBuilding(BUILDING, new IntegerRange(FIRST_ROOM, LAST_ROOM));
+      final Ingredient chocolate = recipeService.createIngredient("Dark chocolate");
+      final Ingredient cream = recipeService.createIngredient("Whipped cream");
+      recipeId = recipeService.createRecipe("Sweet pancake", List.of(chocolate.getId(), cream.getId()));
+      orderService = new OrderService(buildingService, recipeService);
+    }
+
+    UUID createOrder() {
+      return orderService.createOrder(BUILDING, ThreadLocalRandom.current().nextInt(FIRST_ROOM, LAST_ROOM + 1));
+    }
+
+    UUID createFilledOrder() {
+      final UUID orderId = createOrder();
+      orderService.addPancake(orderId, recipeId);
+      return orderId;
+    }
+
+    // Moves an order left behind by a benchmark to a terminal state so the order map stays bounded
+    void retire(UUID orderId) {
+      if (orderId == null) {
+        return;
+      }
+      try {
+        switch (orderService.getOrderStatus(orderId)) {
+          case DRAFT -> orderService.cancelOrder(orderId);
+          case COMPLETED -> {
+            orderService.prepareOrder(orderId);
+            orderService.deliverOrder(orderId);
+          }
+          case PREPARED -> orderService.deliverOrder(orderId);
+          default -> {
+          }
+        }
+      } catch (IllegalArgumentException e) {
+        // Already delivered or canceled
+      }
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class CreatedOrder {
+    UUID orderId;
+
+    @TearDown(Level.Invocation)
+    public void tearDown(Services services) {
+      services.retire(orderId);
+      orderId = null;
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class DraftOrder {
+    UUID orderId;
+
+    @Setup(Level.Invocation)
+    public void setUp(Services services) {
+      orderId = services.createOrder();
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown(Services services) {
+      services.retire(orderId);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class FilledOrder {
+    UUID orderId;
+
+    @Setup(Level.Invocation)
+    public void setUp(Services services) {
+      orderId = services.createFilledOrder();
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown(Services services) {
+      services.retire(orderId);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class CompletedOrder {
+    UUID orderId;
+
+    @Setup(Level.Invocation)
+    public void setUp(Services services) {
+      orderId = services.createFilledOrder();
+      services.orderService.completeOrder(orderId);
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown(Services services) {
+      services.retire(orderId);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class PreparedOrder {
+    UUID orderId;
+
+    @Setup(Level.Invocation)
+    public void setUp(Services services) {
+      orderId = services.createFilledOrder();
+      services.orderService.completeOrder(orderId);
+      services.orderService.prepareOrder(orderId);
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown(Services services) {
+      services.retire(orderId);
+    }
+  }
+
+  @Benchmark
+  public void fullLifecycle(Services services) {
+    final OrderService orderService = services.orderService;
+    final UUID orderId = services.createOrder();
+    orderService.addPancake(orderId, services.recipeId);
+    orderService.completeOrder(orderId);
+    orderService.prepareOrder(orderId);
+    orderService.deliverOrder(orderId);
+  }
+
+  // Every thread both feeds the work queues and serves them, one order per stage per invocation
+  @Benchmark
+  public void queuedLifecycle(Services services) {
+    final OrderService orderService = services.orderService;
+    orderService.completeOrder(services.createFilledOrder());
+    for (UUID orderId : orderService.drainToPrepare(1)) {
+      orderService.prepareOrder(orderId);
+    }
+    for (UUID orderId : orderService.drainToDeliver(1)) {
+      orderService.deliverOrder(orderId);
+    }
+  }
+
+  @Benchmark
+  public UUID createOrder(Services services, CreatedOrder order) {
+    order.orderId = services.createOrder();
+    return order.orderId;
+  }
+
+  @Benchmark
+  public void addPancake(Services services, DraftOrder order) {
+    services.orderService.addPancake(order.orderId, services.recipeId);
+  }
+
+  @Benchmark
+  public void completeOrder(Services services, FilledOrder order) {
+    services.orderService.completeOrder(order.orderId);
+  }
+
+  @Benchmark
+  public void prepareOrder(Services services, CompletedOrder order) {
+    services.orderService.prepareOrder(order.orderId);
+  }
+
+  @Benchmark
+  public void deliverOrder(Services services, PreparedOrder order) {
+    services.orderService.deliverOrder(order.orderId);
+  }
+
+  @Threads(1)
+  public static class Threads1 extends OrderLifecycleBenchmark {
+  }
+
+  @Threads(4)
+  public static class Threads4 extends OrderLifecycleBenchmark {
+  }
+
+  @Threads(16)
+  public static class Threads16 extends OrderLifecycleBenchmark {
+  }
+
+  @Threads(32)
+  public static class Threads32 extends OrderLifecycleBenchmark {
+  }
+
+  @Threads(64)
+  public static class Threads64 extends OrderLifecycleBenchmark {
+  }
+}
@@ -0,0 +1,76 @@
+package org.homework1.benchmark;
+
+import org.homework1.dto.IdNameDto;
+import org.homework1.service.RecipeService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecipeServiceBenchmark {
+
+  private static final int INGREDIENT_COUNT = 100;
+  private static final int INGREDIENTS_PER_RECIPE = 3;
+
+  @Param({"10", "100", "1000", "10000", "100000"})
+  public int catalogSize;
+
+  private RecipeService recipeService;
+  private UUID[] recipeIds;
+  private List<UUID> ingredients;
+  private int edits;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    recipeService = new RecipeService();
+    ingredients = new ArrayList<>();
+    for (int i = 0; i < INGREDIENT_COUNT; i++) {
+      ingredients.add(recipeService.createIngredient("Ingredient " + i).getId());
+    }
+    recipeIds = new UUID[catalogSize];
+    for (int i = 0; i < catalogSize; i++) {
+      final List<UUID> recipeIngredients = new ArrayList<>();
+      for (int j = 0; j < INGREDIENTS_PER_RECIPE; j++) {
+        recipeIngredients.add(ingredients.get((i + j) % INGREDIENT_COUNT));
+      }
+      recipeIds[i] = recipeService.createRecipe("Recipe " + i, recipeIngredients);
+    }
+  }
+
+  @Benchmark
+  public List<String> viewRecipe() {
+    return recipeService.viewRecipe(recipeIds[ThreadLocalRandom.current().nextInt(recipeIds.length)]);
+  }
+
+  @Benchmark
+  public List<IdNameDto> listRecipes() {
+    return recipeService.listRecipes();
+  }
+
+  // Three readers share the catalog with one thread that keeps renaming a recipe; compare the
+  // readers' latency with viewRecipe alone
+  @Benchmark
+  @Group("viewWhileEditing")
+  @GroupThreads(3)
+  public List<String> viewRecipeWhileEditing() {
+    return viewRecipe();
+  }
+
+  @Benchmark
+  @Group("viewWhileEditing")
+  @GroupThreads(1)
+  public void editRecipe() {
+    final int edit = edits++;
+    recipeService.updateRecipe(recipeIds[0], "Edited recipe " + (edit & 1),
+        List.of(ingredients.get(edit % INGREDIENT_COUNT)));
+  }
+}
@@ -0,0 +1,148 @@
+package org.homework1.benchmark;
+
+import org.homework1.util.ConcurrentUuidMap;
+import org.homework1.util.UuidMap;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the maps the services used to hold orders, ingredients, recipes and pancakes with the
+ * UUID maps that replaced them. {@code retained} reports the heap a filled map keeps alive as the
+ * {@code retainedBytes} counter, once with the keys only referenced by the map and once with the
+ * keys also held elsewhere, as the services do through each model's ID. {@code fill} and
+ * {@code getAll} time inserts and lookups; run them with {@code -prof gc} to see the allocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class UuidMapFootprintBenchmark {
+
+  // Every entry maps to the same value, so only the map and its keys are measured
+  private static final Object VALUE = new Object();
+
+  @Param({"hashMap", "concurrentHashMap", "uuidMap", "concurrentUuidMap"})
+  String map;
+
+  @Param({"100000", "1000000"})
+  int entries;
+
+  @Param({"false", "true"})
+  boolean keysShared;
+
+  UUID[] keys;
+  Object filled;
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Footprint {
+    public long retainedBytes;
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    keys = new UUID[entries];
+    for (int i = 0; i < entries; i++) {
+      keys[i] = UUID.randomUUID();
+    }
+    filled = fill();
+  }
+
+  // Unshared keys are fresh copies that nothing but the map can keep alive. Counters add up over
+  // iterations, so there is a single one
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 1)
+  @Measurement(iterations = 1)
+  @Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-XX:+UseSerialGC"})
+  public void retained(Footprint footprint) {
+    filled = null;
+    final long before = usedHeapAfterGc();
+    filled = fill(keysShared ? keys : copy(keys));
+    footprint.retainedBytes = usedHeapAfterGc() - before;
+  }
+
+  @Benchmark
+  public Object fill() {
+    return fill(keys);
+  }
+
+  private Object fill(UUID[] source) {
+    switch (map) {
+      case "hashMap": {
+        final Map<UUID, Object> filled = new HashMap<>();
+        for (UUID key : source) {
+          filled.put(key, VALUE);
+        }
+        return filled;
+      }
+      case "concurrentHashMap": {
+        final Map<UUID, Object> filled = new ConcurrentHashMap<>();
+        for (UUID key : source) {
+          filled.put(key, VALUE);
+        }
+        return filled;
+      }
+      case "uuidMap": {
+        final UuidMap<Object> filled = new UuidMap<>();
+        for (UUID key : source) {
+          filled.put(key, VALUE);
+        }
+        return filled;
+      }
+      case "concurrentUuidMap": {
+        final ConcurrentUuidMap<Object> filled = new ConcurrentUuidMap<>();
+        for (UUID key : source) {
+          filled.put(key, VALUE);
+        }
+        return filled;
+      }
+      default:
+        throw new IllegalStateException("Unknown map " + map);
+    }
+  }
+
+  private static UUID[] copy(UUID[] keys) {
+    final UUID[] copies = new UUID[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      copies[i] = new UUID(keys[i].getMostSignificantBits(), keys[i].getLeastSignificantBits());
+    }
+    return copies;
+  }
+
+  private static long usedHeapAfterGc() {
+    System.gc();
+    System.gc();
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  @Benchmark
+  @SuppressWarnings("unchecked")
+  public void getAll(Blackhole blackhole) {
+    if (filled instanceof Map) {
+      final Map<UUID, Object> lookup = (Map<UUID, Object>) filled;
+      for (UUID key : keys) {
+        blackhole.consume(lookup.get(key));
+      }
+    } else if (filled instanceof UuidMap) {
+      final UuidMap<Object> lookup = (UuidMap<Object>) filled;
+      for (UUID key : keys) {
+        blackhole.consume(lookup.get(key));
+      }
+    } else {
+      final ConcurrentUuidMap<Object> lookup = (ConcurrentUuidMap<Object>) filled;
+      for (UUID key : keys) {
+        blackhole.consume(lookup.get(key));
+      }
+    }
+  }
+}
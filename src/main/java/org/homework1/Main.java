@@ -1,7 +1,56 @@
 package org.homework1;
 
+import org.homework1.http.OrderHttpServer;
+import org.homework1.loadtest.LoadConfig;
+import org.homework1.loadtest.LoadGenerator;
+import org.homework1.loadtest.LoadReport;
+import org.homework1.metrics.MetricsRegistry;
+import org.homework1.persistence.WriteAheadOrderLog;
+import org.homework1.service.BuildingService;
+import org.homework1.service.OrderService;
+import org.homework1.service.RecipeService;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.Arrays;
+
 public class Main {
-    public static void main(String[] args) {
-        System.out.println("Hello world!");
+    private static final int DEFAULT_PORT = 8080;
+    private static final String DEFAULT_LOG_DIRECTORY = "order-log";
+
+    // Usage: java org.homework1.Main [port] [order log directory]
+    //        java org.homework1.Main soak [--duration=60] [--rooms=64] [--kitchen-workers=4] [--buildings=20] ...
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > 0 && args[0].equals("soak")) {
+            soak(Arrays.copyOfRange(args, 1, args.length));
+        } else {
+            serve(args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT,
+                    Path.of(args.length > 1 ? args[1] : DEFAULT_LOG_DIRECTORY));
+        }
+    }
+
+    private static void serve(int port, Path logDirectory) throws IOException {
+        final MetricsRegistry metrics = new MetricsRegistry();
+        final BuildingService buildingService = new BuildingService(metrics);
+        final RecipeService recipeService = new RecipeService(metrics);
+        // Orders are recovered from the log on start; buildings and the recipe catalog are not logged
+        final WriteAheadOrderLog orderLog = new WriteAheadOrderLog(logDirectory);
+        final OrderService orderService = new OrderService(buildingService, recipeService, orderLog, metrics);
+        final OrderHttpServer server = new OrderHttpServer(new InetSocketAddress(port), buildingService, recipeService, orderService);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            orderLog.close();
+        }, "http-shutdown"));
+        server.start();
+        System.out.println("Listening on port " + server.getPort());
+    }
+
+    private static void soak(String[] options) throws InterruptedException {
+        final LoadReport report = new LoadGenerator(LoadConfig.parse(options)).run();
+        report.print(System.out);
+        if (!report.passed()) {
+            System.exit(1);
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,29 @@
 package org.homework1.constant;
 
 public enum OrderStatus {
-  DRAFT, COMPLETED, PREPARED, CANCELED, DELIVERED
+  DRAFT(0), COMPLETED(1), PREPARED(2), CANCELED(3), DELIVERED(3);
+
+  // Position in the lifecycle; both terminal states share the last stage.
+  private final int stage;
+
+  OrderStatus(int stage) {
+    this.stage = stage;
+  }
+
+  public boolean canTransitionTo(OrderStatus next) {
+    return switch (this) {
+      case DRAFT -> next == COMPLETED || next == CANCELED;
+      case COMPLETED -> next == PREPARED;
+      case PREPARED -> next == DELIVERED;
+      case CANCELED, DELIVERED -> false;
+    };
+  }
+
+  public boolean isTerminal() {
+    return this == CANCELED || this == DELIVERED;
+  }
+
+  public boolean isAfter(OrderStatus other) {
+    return stage > other.stage;
+  }
 }
@@ -9,4 +9,5 @@ public final class ValidationConstants {
   public static final int MAX_NAME_LENGTH = 100;
   public static final int MAX_BUILDING_NUMBER = 1000;
   public static final int MAX_ROOM_NUMBER = 10000;
+  public static final int MAX_PAGE_SIZE = 1000;
 }
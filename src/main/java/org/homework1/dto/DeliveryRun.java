@@ -0,0 +1,20 @@
+package org.homework1.dto;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Prepared orders of one building to be delivered together, sorted by room.
+ */
+public record DeliveryRun(int building, List<DeliveryStop> stops) {
+
+  public DeliveryRun {
+    Objects.requireNonNull(stops, "Stops must not be null");
+    stops = List.copyOf(stops);
+  }
+
+  public List<UUID> orderIds() {
+    return stops.stream().map(DeliveryStop::orderId).toList();
+  }
+}
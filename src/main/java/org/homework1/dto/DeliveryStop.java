@@ -0,0 +1,11 @@
+package org.homework1.dto;
+
+import java.util.Objects;
+import java.util.UUID;
+
+public record DeliveryStop(UUID orderId, int room) {
+
+  public DeliveryStop {
+    Objects.requireNonNull(orderId, "Order ID must not be null");
+  }
+}
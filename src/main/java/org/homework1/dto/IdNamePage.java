@@ -0,0 +1,15 @@
+package org.homework1.dto;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * One page of a name-ordered listing. {@code nextCursor} is passed back to fetch the following
+ * page and is null on the last page.
+ */
+public record IdNamePage(List<IdNameDto> items, String nextCursor) {
+
+  public IdNamePage {
+    items = List.copyOf(Objects.requireNonNull(items, "Items must not be null"));
+  }
+}
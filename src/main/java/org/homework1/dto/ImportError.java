@@ -0,0 +1,13 @@
+package org.homework1.dto;
+
+import java.util.Objects;
+
+/**
+ * A record of a bulk import that was left out, with the line it came from in the import file.
+ */
+public record ImportError(long line, String message) {
+
+  public ImportError {
+    Objects.requireNonNull(message, "Message must not be null");
+  }
+}
@@ -0,0 +1,15 @@
+package org.homework1.dto;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Outcome of a bulk catalog import: how many records were committed and, in line order, why
+ * each of the others was rejected.
+ */
+public record ImportReport(int ingredientsImported, int recipesImported, List<ImportError> errors) {
+
+  public ImportReport {
+    errors = List.copyOf(Objects.requireNonNull(errors, "Errors must not be null"));
+  }
+}
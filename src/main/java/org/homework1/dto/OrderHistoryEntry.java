@@ -0,0 +1,18 @@
+package org.homework1.dto;
+
+import org.homework1.constant.OrderStatus;
+
+import java.util.Objects;
+import java.util.UUID;
+
+public record OrderHistoryEntry(UUID orderId, int building, int room, OrderStatus status, int pancakeCount,
+                                long createdAtMillis, long finishedAtMillis) {
+
+  public OrderHistoryEntry {
+    Objects.requireNonNull(orderId, "Order ID must not be null");
+    Objects.requireNonNull(status, "Status must not be null");
+    if (!status.isTerminal()) {
+      throw new IllegalArgumentException("Only delivered or canceled orders can be kept in history");
+    }
+  }
+}
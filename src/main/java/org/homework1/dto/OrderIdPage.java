@@ -0,0 +1,16 @@
+package org.homework1.dto;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * One page of a status listing. {@code nextCursor} is passed back to fetch the following page and
+ * is null on the last page.
+ */
+public record OrderIdPage(List<UUID> orderIds, String nextCursor) {
+
+  public OrderIdPage {
+    orderIds = List.copyOf(Objects.requireNonNull(orderIds, "Order IDs must not be null"));
+  }
+}
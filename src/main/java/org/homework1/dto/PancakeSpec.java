@@ -0,0 +1,27 @@
+package org.homework1.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One pancake of a batch: either a recipe or a custom list of ingredients.
+ */
+public record PancakeSpec(UUID recipeId, List<UUID> ingredients) {
+
+  public PancakeSpec {
+    if ((recipeId == null) == (ingredients == null)) {
+      throw new IllegalArgumentException("Pancake must be given either a recipe or a list of ingredients");
+    }
+    if (ingredients != null) {
+      ingredients = List.copyOf(ingredients);
+    }
+  }
+
+  public static PancakeSpec ofRecipe(UUID recipeId) {
+    return new PancakeSpec(recipeId, null);
+  }
+
+  public static PancakeSpec ofIngredients(List<UUID> ingredients) {
+    return new PancakeSpec(null, ingredients);
+  }
+}
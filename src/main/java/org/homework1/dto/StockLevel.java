@@ -0,0 +1,10 @@
+package org.homework1.dto;
+
+import java.util.UUID;
+
+/**
+ * Units of an ingredient that new pancakes can still reserve, and units held by draft and
+ * completed orders until they are prepared or given back.
+ */
+public record StockLevel(UUID ingredientId, long available, long reserved) {
+}
@@ -0,0 +1,13 @@
+package org.homework1.exception;
+
+/**
+ * Thrown when a building, room, ingredient, recipe, order or pancake that a caller refers to
+ * does not exist. It is an {@link IllegalArgumentException} like the services' other validation
+ * errors, so callers that do not care about the difference can keep catching that.
+ */
+public class NotFoundException extends IllegalArgumentException {
+
+  public NotFoundException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,737 @@
+package org.homework1.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.homework1.constant.OrderStatus;
+import org.homework1.dto.DeliveryRun;
+import org.homework1.dto.DeliveryStop;
+import org.homework1.dto.IdNameDto;
+import org.homework1.dto.IdNamePage;
+import org.homework1.dto.OrderHistoryEntry;
+import org.homework1.dto.OrderIdPage;
+import org.homework1.dto.StockLevel;
+import org.homework1.exception.NotFoundException;
+import org.homework1.json.JsonReader;
+import org.homework1.json.JsonWriter;
+import org.homework1.metrics.HistogramSnapshot;
+import org.homework1.metrics.LatencyHistogram;
+import org.homework1.metrics.LockSnapshot;
+import org.homework1.metrics.MetricsRegistry;
+import org.homework1.metrics.MetricsSnapshot;
+import org.homework1.model.Building;
+import org.homework1.model.Ingredient;
+import org.homework1.model.Pancake;
+import org.homework1.service.AsyncOrderService;
+import org.homework1.service.BuildingService;
+import org.homework1.service.OrderService;
+import org.homework1.service.RecipeService;
+import org.homework1.util.IntegerRange;
+
+import java.io.BufferedWriter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * JSON over HTTP front end for the building, recipe and order services, served by the JDK's
+ * built-in {@link HttpServer}. Each resource gets its own latency histogram
+ * ({@code OrderHttpServer.<resource>}) in the order service's metrics registry, next to the
+ * service latencies, so the request-path overhead can be read off {@code GET /metrics}.
+ *
+ * <pre>
+ * POST   /buildings                      {"building":1,"rooms":[[101,199]]}
+ * GET    /buildings/{n}
+ * DELETE /buildings/{n}
+ * GET    /ingredients?limit=n[&cursor=c] | ?prefix=p[&limit=n]
+ * POST   /ingredients                    {"name":"Dark chocolate"}
+ * DELETE /ingredients/{id}
+ * GET    /ingredients/{id}/stock
+ * PUT    /ingredients/{id}/stock         {"quantity":100}
+ * GET    /recipes[?limit=n[&cursor=c] | ?prefix=p[&limit=n]]
+ * POST   /recipes                        {"name":"Sweet","ingredients":["id"]}
+ * GET    /recipes/{id}
+ * PUT    /recipes/{id}                   {"name":"Sweet","ingredients":["id"]}
+ * DELETE /recipes/{id}
+ * POST   /orders                         {"building":1,"room":101}
+ * GET    /orders/completed | /orders/prepared [?limit=n[&cursor=c]]
+ * GET    /orders/counts
+ * GET    /orders/{id}
+ * POST   /orders/{id}/pancakes           {"recipe":"id","count":2} or {"ingredients":["id"]}
+ * DELETE /orders/{id}/pancakes/{pancakeId}
+ * POST   /orders/{id}/complete           {"express":true} (body optional)
+ * POST   /orders/{id}/prepare | /deliver | /cancel
+ * POST   /delivery-runs/claim?max=n
+ * GET    /metrics
+ * </pre>
+ */
+public class OrderHttpServer implements AutoCloseable {
+
+  private static final Logger LOG = Logger.getLogger(OrderHttpServer.class.getName());
+  private static final int MAX_BODY_BYTES = 1 << 20;
+  private static final String DEFAULT_PAGE_SIZE = "50";
+
+  @FunctionalInterface
+  private interface Handler {
+    void handle(HttpExchange exchange, List<String> path) throws IOException;
+  }
+
+  @FunctionalInterface
+  private interface JsonBody {
+    void write(JsonWriter json) throws IOException;
+  }
+
+  private static final class RequestTooLargeException extends RuntimeException {
+    RequestTooLargeException() {
+      super("Request body is larger than " + MAX_BODY_BYTES + " bytes");
+    }
+  }
+
+  private static final class LimitedInputStream extends FilterInputStream {
+    private long remaining;
+
+    LimitedInputStream(InputStream in, long limit) {
+      super(in);
+      remaining = limit;
+    }
+
+    @Override
+    public int read() throws IOException {
+      final int b = super.read();
+      if (b != -1) {
+        count(1);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      final int read = super.read(b, off, len);
+      if (read > 0) {
+        count(read);
+      }
+      return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      final long skipped = super.skip(n);
+      count(skipped);
+      return skipped;
+    }
+
+    private void count(long bytes) {
+      remaining -= bytes;
+      if (remaining < 0) {
+        throw new RequestTooLargeException();
+      }
+    }
+  }
+
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final boolean ownsExecutor;
+  private final BuildingService buildingService;
+  private final RecipeService recipeService;
+  private final OrderService orderService;
+  private final MetricsRegistry metrics;
+
+  public OrderHttpServer(InetSocketAddress address, BuildingService buildingService, RecipeService recipeService,
+                         OrderService orderService) throws IOException {
+    this(address, buildingService, recipeService, orderService, AsyncOrderService.defaultExecutor(), true);
+  }
+
+  public OrderHttpServer(InetSocketAddress address, BuildingService buildingService, RecipeService recipeService,
+                         OrderService orderService, ExecutorService executor) throws IOException {
+    this(address, buildingService, recipeService, orderService, executor, false);
+  }
+
+  private OrderHttpServer(InetSocketAddress address, BuildingService buildingService, RecipeService recipeService,
+                          OrderService orderService, ExecutorService executor, boolean ownsExecutor) throws IOException {
+    this.buildingService = Objects.requireNonNull(buildingService, "Building service cannot be null");
+    this.recipeService = Objects.requireNonNull(recipeService, "Recipe service cannot be null");
+    this.orderService = Objects.requireNonNull(orderService, "Order service cannot be null");
+    this.executor = Objects.requireNonNull(executor, "Executor cannot be null");
+    this.ownsExecutor = ownsExecutor;
+    this.metrics = orderService.getMetrics();
+    server = HttpServer.create(address, 0);
+    server.setExecutor(executor);
+    route("buildings", this::handleBuildings);
+    route("ingredients", this::handleIngredients);
+    route("recipes", this::handleRecipes);
+    route("orders", this::handleOrders);
+    route("delivery-runs", this::handleDeliveryRuns);
+    route("metrics", this::handleMetrics);
+  }
+
+  public void start() {
+    server.start();
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    if (ownsExecutor) {
+      executor.shutdown();
+    }
+  }
+
+  private void route(String resource, Handler handler) {
+    final LatencyHistogram latency = metrics.latency("OrderHttpServer." + resource);
+    server.createContext("/" + resource, exchange -> {
+      final long start = System.nanoTime();
+      try {
+        final List<String> path = segments(exchange.getRequestURI().getPath());
+        // Contexts match any path that starts with their name, so /ordersfoo would reach /orders
+        if (path.isEmpty() || !path.get(0).equals(resource)) {
+          throw new NotFoundException("No resource at " + exchange.getRequestURI().getPath());
+        }
+        handler.handle(exchange, path.subList(1, path.size()));
+      } catch (NotFoundException e) {
+        respondError(exchange, 404, e.getMessage());
+      } catch (RequestTooLargeException e) {
+        respondError(exchange, 413, e.getMessage());
+      } catch (IllegalArgumentException e) {
+        respondError(exchange, 400, e.getMessage());
+      } catch (RuntimeException e) {
+        LOG.log(Level.SEVERE, "Failed to handle " + exchange.getRequestMethod() + " " + exchange.getRequestURI(), e);
+        respondError(exchange, 500, "Internal error");
+      } finally {
+        exchange.close();
+        latency.recordSince(start);
+      }
+    });
+  }
+
+  private void handleBuildings(HttpExchange exchange, List<String> path) throws IOException {
+    final String method = exchange.getRequestMethod();
+    if (path.isEmpty() && method.equals("POST")) {
+      int buildingNumber = -1;
+      final List<IntegerRange> rooms = new ArrayList<>();
+      final JsonReader json = body(exchange);
+      json.beginObject();
+      while (json.hasNext()) {
+        switch (json.nextName()) {
+          case "building" -> buildingNumber = json.nextInt();
+          case "rooms" -> {
+            json.beginArray();
+            while (json.hasNext()) {
+              json.beginArray();
+              rooms.add(new IntegerRange(json.nextInt(), json.nextInt()));
+              json.endArray();
+            }
+            json.endArray();
+          }
+          default -> json.skipValue();
+        }
+      }
+      json.endObject();
+      buildingService.addBuilding(buildingNumber, rooms.toArray(IntegerRange[]::new));
+      respondEmpty(exchange, 201);
+    } else if (path.size() == 1 && method.equals("GET")) {
+      final Building building = Optional.ofNullable(buildingService.getBuilding(parseInt(path.get(0))))
+          .orElseThrow(() -> new NotFoundException("Building not found"));
+      respond(exchange, 200, json -> {
+        json.beginObject().name("building").value(building.buildingNumber()).name("rooms").beginArray();
+        for (IntegerRange range : building.roomSet().ranges()) {
+          json.beginArray().value(range.start()).value(range.end()).endArray();
+        }
+        json.endArray().endObject();
+      });
+    } else if (path.size() == 1 && method.equals("DELETE")) {
+      buildingService.removeBuilding(parseInt(path.get(0)));
+      respondEmpty(exchange, 204);
+    } else {
+      respondMethodNotAllowed(exchange);
+    }
+  }
+
+  private void handleIngredients(HttpExchange exchange, List<String> path) throws IOException {
+    final String method = exchange.getRequestMethod();
+    if (path.isEmpty() && method.equals("GET")) {
+      final Map<String, String> query = queryParameters(exchange);
+      final int limit = parseInt(query.getOrDefault("limit", DEFAULT_PAGE_SIZE));
+      if (query.containsKey("prefix")) {
+        writeIdNames(exchange, recipeService.searchIngredients(query.get("prefix"), limit));
+      } else {
+        writePage(exchange, recipeService.listIngredients(query.get("cursor"), limit));
+      }
+    } else if (path.isEmpty() && method.equals("POST")) {
+      String name = null;
+      final JsonReader json = body(exchange);
+      json.beginObject();
+      while (json.hasNext()) {
+        if (json.nextName().equals("name")) {
+          name = json.nextString();
+        } else {
+          json.skipValue();
+        }
+      }
+      json.endObject();
+      final Ingredient ingredient = recipeService.createIngredient(name);
+      respond(exchange, 201, out -> out.beginObject()
+          .name("id").value(ingredient.getId().toString())
+          .name("name").value(ingredient.getName())
+          .endObject());
+    } else if (path.size() == 1 && method.equals("DELETE")) {
+      recipeService.removeIngredient(parseId(path.get(0)));
+      respondEmpty(exchange, 204);
+    } else if (path.size() == 2 && path.get(1).equals("stock") && method.equals("PUT")) {
+      final UUID ingredientId = parseId(path.get(0));
+      long quantity = -1;
+      final JsonReader json = body(exchange);
+      json.beginObject();
+      while (json.hasNext()) {
+        if (json.nextName().equals("quantity")) {
+          quantity = json.nextLong();
+        } else {
+          json.skipValue();
+        }
+      }
+      json.endObject();
+      recipeService.setStock(ingredientId, quantity);
+      writeStock(exchange, ingredientId);
+    } else if (path.size() == 2 && path.get(1).equals("stock") && method.equals("GET")) {
+      writeStock(exchange, parseId(path.get(0)));
+    } else {
+      respondMethodNotAllowed(exchange);
+    }
+  }
+
+  private void handleRecipes(HttpExchange exchange, List<String> path) throws IOException {
+    final String method = exchange.getRequestMethod();
+    if (path.isEmpty() && method.equals("GET")) {
+      final Map<String, String> query = queryParameters(exchange);
+      if (query.containsKey("prefix")) {
+        writeIdNames(exchange, recipeService.searchRecipes(query.get("prefix"),
+            parseInt(query.getOrDefault("limit", DEFAULT_PAGE_SIZE))));
+      } else if (query.containsKey("limit") || query.containsKey("cursor")) {
+        writePage(exchange, recipeService.listRecipes(query.get("cursor"),
+            parseInt(query.getOrDefault("limit", DEFAULT_PAGE_SIZE))));
+      } else {
+        writeIdNames(exchange, recipeService.listRecipes());
+      }
+    } else if (path.isEmpty() && method.equals("POST")) {
+      final RecipeRequest request = readRecipe(body(exchange));
+      final UUID recipeId = recipeService.createRecipe(request.name(), request.ingredients());
+      respond(exchange, 201, json -> json.beginObject().name("id").value(recipeId.toString()).endObject());
+    } else if (path.size() == 1 && method.equals("GET")) {
+      final List<String> ingredients = recipeService.viewRecipe(parseId(path.get(0)));
+      respond(exchange, 200, json -> writeStrings(json.beginObject().name("ingredients"), ingredients).endObject());
+    } else if (path.size() == 1 && method.equals("PUT")) {
+      final UUID recipeId = parseId(path.get(0));
+      final RecipeRequest request = readRecipe(body(exchange));
+      recipeService.updateRecipe(recipeId, request.name(), request.ingredients());
+      respondEmpty(exchange, 204);
+    } else if (path.size() == 1 && method.equals("DELETE")) {
+      recipeService.removeRecipe(parseId(path.get(0)));
+      respondEmpty(exchange, 204);
+    } else {
+      respondMethodNotAllowed(exchange);
+    }
+  }
+
+  private record RecipeRequest(String name, List<UUID> ingredients) {
+  }
+
+  private RecipeRequest readRecipe(JsonReader json) throws IOException {
+    String name = null;
+    List<UUID> ingredients = null;
+    json.beginObject();
+    while (json.hasNext()) {
+      switch (json.nextName()) {
+        case "name" -> name = json.nextString();
+        case "ingredients" -> ingredients = readIds(json);
+        default -> json.skipValue();
+      }
+    }
+    json.endObject();
+    return new RecipeRequest(name, ingredients);
+  }
+
+  private void handleOrders(HttpExchange exchange, List<String> path) throws IOException {
+    final String method = exchange.getRequestMethod();
+    if (path.isEmpty()) {
+      if (!method.equals("POST")) {
+        respondMethodNotAllowed(exchange);
+        return;
+      }
+      int buildingNumber = -1;
+      int roomNumber = -1;
+      final JsonReader json = body(exchange);
+      json.beginObject();
+      while (json.hasNext()) {
+        switch (json.nextName()) {
+          case "building" -> buildingNumber = json.nextInt();
+          case "room" -> roomNumber = json.nextInt();
+          default -> json.skipValue();
+        }
+      }
+      json.endObject();
+      final UUID orderId = orderService.createOrder(buildingNumber, roomNumber);
+      respond(exchange, 201, out -> out.beginObject().name("id").value(orderId.toString()).endObject());
+      return;
+    }
+    if (path.size() == 1 && method.equals("GET") && path.get(0).equals("counts")) {
+      final Map<OrderStatus, Long> counts = orderService.countByStatus();
+      respond(exchange, 200, json -> {
+        json.beginObject();
+        for (Map.Entry<OrderStatus, Long> count : counts.entrySet()) {
+          json.name(count.getKey().name()).value(count.getValue());
+        }
+        json.endObject();
+      });
+      return;
+    }
+    if (path.size() == 1 && method.equals("GET") && (path.get(0).equals("completed") || path.get(0).equals("prepared"))) {
+      final Map<String, String> query = queryParameters(exchange);
+      if (query.containsKey("limit") || query.containsKey("cursor")) {
+        final String cursor = query.get("cursor");
+        final int limit = parseInt(query.getOrDefault("limit", DEFAULT_PAGE_SIZE));
+        final OrderIdPage page = path.get(0).equals("completed")
+            ? orderService.listCompletedOrders(cursor, limit)
+            : orderService.listPreparedOrders(cursor, limit);
+        respond(exchange, 200, json -> {
+          json.beginObject().name("items").beginArray();
+          for (UUID orderId : page.orderIds()) {
+            json.value(orderId.toString());
+          }
+          json.endArray().name("next").value(page.nextCursor()).endObject();
+        });
+        return;
+      }
+      final Set<UUID> orderIds = path.get(0).equals("completed")
+          ? orderService.listCompletedOrders()
+          : orderService.listPreparedOrders();
+      respond(exchange, 200, json -> {
+        json.beginArray();
+        for (UUID orderId : orderIds) {
+          json.value(orderId.toString());
+        }
+        json.endArray();
+      });
+      return;
+    }
+    // Only a pancake of an order has a segment after the action
+    if (path.size() > 3) {
+      throw new NotFoundException("No resource at " + exchange.getRequestURI().getPath());
+    }
+    final UUID orderId = parseId(path.get(0));
+    final String action = path.size() > 1 ? path.get(1) : "";
+    switch (method + " " + action + (path.size() == 3 ? "/" : "")) {
+      case "GET " -> viewOrder(exchange, orderId);
+      case "POST pancakes" -> {
+        addPancakes(body(exchange), orderId);
+        respondEmpty(exchange, 204);
+      }
+      case "DELETE pancakes/" -> {
+        orderService.removePancakes(orderId, Set.of(parseId(path.get(2))));
+        respondEmpty(exchange, 204);
+      }
+      case "POST complete" -> {
+        orderService.completeOrder(orderId, readExpress(exchange));
+        respondEmpty(exchange, 204);
+      }
+      case "POST prepare" -> {
+        orderService.prepareOrder(orderId);
+        respondEmpty(exchange, 204);
+      }
+      case "POST deliver" -> {
+        orderService.deliverOrder(orderId);
+        respondEmpty(exchange, 204);
+      }
+      case "POST cancel" -> {
+        orderService.cancelOrder(orderId);
+        respondEmpty(exchange, 204);
+      }
+      default -> respondMethodNotAllowed(exchange);
+    }
+  }
+
+  private void viewOrder(HttpExchange exchange, UUID orderId) throws IOException {
+    final Optional<OrderHistoryEntry> finished = orderService.findFinishedOrder(orderId);
+    if (finished.isPresent()) {
+      final OrderHistoryEntry entry = finished.get();
+      respond(exchange, 200, json -> json.beginObject()
+          .name("id").value(entry.orderId().toString())
+          .name("status").value(entry.status().name())
+          .name("building").value(entry.building())
+          .name("room").value(entry.room())
+          .name("pancakeCount").value(entry.pancakeCount())
+          .name("finishedAt").value(entry.finishedAtMillis())
+          .endObject());
+      return;
+    }
+    final String status = orderService.getOrderStatus(orderId).name();
+    final List<Pancake> pancakes = orderService.getPancakes(orderId);
+    respond(exchange, 200, json -> {
+      json.beginObject().name("id").value(orderId.toString()).name("status").value(status).name("pancakes").beginArray();
+      for (Pancake pancake : pancakes) {
+        json.beginObject()
+            .name("id").value(pancake.getId().toString())
+            .name("description").value(pancake.description())
+            .endObject();
+      }
+      json.endArray().endObject();
+    });
+  }
+
+  private void addPancakes(JsonReader json, UUID orderId) throws IOException {
+    UUID recipeId = null;
+    List<UUID> ingredients = null;
+    int count = 1;
+    json.beginObject();
+    while (json.hasNext()) {
+      switch (json.nextName()) {
+        case "recipe" -> recipeId = parseId(json.nextString());
+        case "ingredients" -> ingredients = readIds(json);
+        case "count" -> count = json.nextInt();
+        default -> json.skipValue();
+      }
+    }
+    json.endObject();
+    if (recipeId != null) {
+      orderService.addPancakes(orderId, recipeId, count);
+    } else if (ingredients != null && count == 1) {
+      orderService.addPancake(orderId, ingredients);
+    } else {
+      throw new IllegalArgumentException("Pancakes need either a recipe or a single list of ingredients");
+    }
+  }
+
+  private boolean readExpress(HttpExchange exchange) throws IOException {
+    final JsonReader json = body(exchange);
+    if (json.peek() == JsonReader.Token.END_DOCUMENT) {
+      return false;
+    }
+    boolean express = false;
+    json.beginObject();
+    while (json.hasNext()) {
+      if (json.nextName().equals("express")) {
+        express = json.nextBoolean();
+      } else {
+        json.skipValue();
+      }
+    }
+    json.endObject();
+    return express;
+  }
+
+  private void handleDeliveryRuns(HttpExchange exchange, List<String> path) throws IOException {
+    if (!exchange.getRequestMethod().equals("POST") || !path.equals(List.of("claim"))) {
+      respondMethodNotAllowed(exchange);
+      return;
+    }
+    final int maxOrders = parseInt(queryParameters(exchange).getOrDefault("max", "10"));
+    final Optional<DeliveryRun> claimed = orderService.claimDeliveryRun(maxOrders);
+    if (claimed.isEmpty()) {
+      respondEmpty(exchange, 204);
+      return;
+    }
+    final DeliveryRun run = claimed.get();
+    respond(exchange, 200, json -> {
+      json.beginObject().name("building").value(run.building()).name("stops").beginArray();
+      for (DeliveryStop stop : run.stops()) {
+        json.beginObject().name("order").value(stop.orderId().toString()).name("room").value(stop.room()).endObject();
+      }
+      json.endArray().endObject();
+    });
+  }
+
+  private void handleMetrics(HttpExchange exchange, List<String> path) throws IOException {
+    if (!exchange.getRequestMethod().equals("GET") || !path.isEmpty()) {
+      respondMethodNotAllowed(exchange);
+      return;
+    }
+    final MetricsSnapshot snapshot = metrics.snapshot();
+    respond(exchange, 200, json -> {
+      json.beginObject().name("latencies").beginObject();
+      for (Map.Entry<String, HistogramSnapshot> latency : snapshot.latencies().entrySet()) {
+        writeHistogram(json.name(latency.getKey()), latency.getValue());
+      }
+      json.endObject().name("locks").beginObject();
+      for (Map.Entry<String, LockSnapshot> lock : snapshot.locks().entrySet()) {
+        final LockSnapshot value = lock.getValue();
+        json.name(lock.getKey()).beginObject()
+            .name("acquisitions").value(value.acquisitions())
+            .name("contendedAcquisitions").value(value.contendedAcquisitions())
+            .name("totalWaitNanos").value(value.totalWaitNanos())
+            .name("waits");
+        writeHistogram(json, value.waits());
+        json.endObject();
+      }
+      json.endObject().endObject();
+    });
+  }
+
+  private static void writeIdNames(HttpExchange exchange, List<IdNameDto> items) throws IOException {
+    respond(exchange, 200, json -> writeIdNames(json, items));
+  }
+
+  private static void writePage(HttpExchange exchange, IdNamePage page) throws IOException {
+    respond(exchange, 200, json -> {
+      json.beginObject().name("items");
+      writeIdNames(json, page.items());
+      json.name("next").value(page.nextCursor()).endObject();
+    });
+  }
+
+  private void writeStock(HttpExchange exchange, UUID ingredientId) throws IOException {
+    final StockLevel level = recipeService.getStock(ingredientId)
+        .orElseThrow(() -> new NotFoundException("Stock for ingredient " + ingredientId + " not found"));
+    respond(exchange, 200, json -> json.beginObject()
+        .name("ingredient").value(level.ingredientId().toString())
+        .name("available").value(level.available())
+        .name("reserved").value(level.reserved())
+        .endObject());
+  }
+
+  private static void writeIdNames(JsonWriter json, List<IdNameDto> items) throws IOException {
+    json.beginArray();
+    for (IdNameDto item : items) {
+      json.beginObject().name("id").value(item.id().toString()).name("name").value(item.name()).endObject();
+    }
+    json.endArray();
+  }
+
+  private static void writeHistogram(JsonWriter json, HistogramSnapshot histogram) throws IOException {
+    json.beginObject()
+        .name("count").value(histogram.count())
+        .name("meanNanos").value(histogram.meanNanos())
+        .name("p50Nanos").value(histogram.p50Nanos())
+        .name("p99Nanos").value(histogram.p99Nanos())
+        .name("p999Nanos").value(histogram.p999Nanos())
+        .name("maxNanos").value(histogram.maxNanos())
+        .endObject();
+  }
+
+  private static JsonWriter writeStrings(JsonWriter json, List<String> values) throws IOException {
+    json.beginArray();
+    for (String value : values) {
+      json.value(value);
+    }
+    return json.endArray();
+  }
+
+  private static List<UUID> readIds(JsonReader json) throws IOException {
+    final List<UUID> ids = new ArrayList<>();
+    json.beginArray();
+    while (json.hasNext()) {
+      ids.add(parseId(json.nextString()));
+    }
+    json.endArray();
+    return ids;
+  }
+
+  private static JsonReader body(HttpExchange exchange) {
+    return new JsonReader(new InputStreamReader(requestBody(exchange), StandardCharsets.UTF_8));
+  }
+
+  // Content-Length only rejects a large body early; chunked bodies have none, so the stream
+  // itself stops at the limit
+  private static InputStream requestBody(HttpExchange exchange) {
+    final String length = exchange.getRequestHeaders().getFirst("Content-Length");
+    if (length != null) {
+      final long declared;
+      try {
+        declared = Long.parseLong(length.trim());
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid Content-Length: " + length);
+      }
+      if (declared > MAX_BODY_BYTES) {
+        throw new RequestTooLargeException();
+      }
+    }
+    return new LimitedInputStream(exchange.getRequestBody(), MAX_BODY_BYTES);
+  }
+
+  private static void respond(HttpExchange exchange, int status, JsonBody body) throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+    exchange.sendResponseHeaders(status, 0);
+    final JsonWriter json = new JsonWriter(
+        new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)));
+    body.write(json);
+    json.flush();
+  }
+
+  private static void respondEmpty(HttpExchange exchange, int status) throws IOException {
+    // Without a response body the exchange ends right away, and HttpServer drops the connection
+    // instead of keeping it alive if the request body has not been read to the end
+    requestBody(exchange).transferTo(OutputStream.nullOutputStream());
+    exchange.sendResponseHeaders(status, -1);
+  }
+
+  private static void respondMethodNotAllowed(HttpExchange exchange) throws IOException {
+    respondError(exchange, 405,
+        exchange.getRequestMethod() + " is not supported on " + exchange.getRequestURI().getPath());
+  }
+
+  private static void respondError(HttpExchange exchange, int status, String message) throws IOException {
+    if (exchange.getResponseCode() != -1) {
+      return; // Failed while streaming a response; closing the exchange is all that is left
+    }
+    respond(exchange, status, json -> json.beginObject().name("error").value(message).endObject());
+  }
+
+  private static List<String> segments(String path) {
+    final List<String> segments = new ArrayList<>();
+    for (String segment : path.split("/")) {
+      if (!segment.isEmpty()) {
+        segments.add(segment);
+      }
+    }
+    return segments;
+  }
+
+  private static Map<String, String> queryParameters(HttpExchange exchange) {
+    final String query = exchange.getRequestURI().getRawQuery();
+    if (query == null) {
+      return Map.of();
+    }
+    final Map<String, String> parameters = new HashMap<>();
+    for (String parameter : query.split("&")) {
+      final int separator = parameter.indexOf('=');
+      if (separator > 0) {
+        parameters.putIfAbsent(URLDecoder.decode(parameter.substring(0, separator), StandardCharsets.UTF_8),
+            URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8));
+      }
+    }
+    return parameters;
+  }
+
+  private static int parseInt(String value) {
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid number: " + value);
+    }
+  }
+
+  private static UUID parseId(String value) {
+    try {
+      return UUID.fromString(value);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid ID: " + value);
+    }
+  }
+}
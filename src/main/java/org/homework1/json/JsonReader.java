@@ -0,0 +1,340 @@
+package org.homework1.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Objects;
+
+/**
+ * Streaming pull parser for JSON. Tokens are read from the underlying reader on demand, so a
+ * request body is decoded straight into the values a handler asks for without building a tree.
+ * Malformed input raises {@link IllegalArgumentException}.
+ */
+public final class JsonReader {
+
+  public enum Token {
+    BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+  }
+
+  private static final int MAX_DEPTH = 64;
+  private static final int MAX_STRING_LENGTH = 1 << 16;
+  // Longer than any long, with room for a sign, fraction and exponent
+  private static final int MAX_NUMBER_LENGTH = 64;
+  private static final int EMPTY_DOCUMENT = 0;
+  private static final int NONEMPTY_DOCUMENT = 1;
+  private static final int EMPTY_OBJECT = 2;
+  private static final int DANGLING_NAME = 3;
+  private static final int NONEMPTY_OBJECT = 4;
+  private static final int EMPTY_ARRAY = 5;
+  private static final int NONEMPTY_ARRAY = 6;
+
+  private final Reader in;
+  private final char[] buffer = new char[1024];
+  private int position;
+  private int limit;
+  private final int[] scopes = new int[MAX_DEPTH + 1];
+  private int depth = 1;
+  private Token peeked;
+
+  public JsonReader(Reader in) {
+    this.in = Objects.requireNonNull(in, "Reader cannot be null");
+    scopes[0] = EMPTY_DOCUMENT;
+  }
+
+  public Token peek() throws IOException {
+    if (peeked != null) {
+      return peeked;
+    }
+    final int scope = scopes[depth - 1];
+    switch (scope) {
+      case EMPTY_ARRAY, NONEMPTY_ARRAY -> {
+        scopes[depth - 1] = NONEMPTY_ARRAY;
+        final int c = nextNonWhitespace();
+        if (c == ']') {
+          return peeked = Token.END_ARRAY;
+        }
+        if (c == -1) {
+          throw syntaxError("Unterminated array");
+        }
+        if (scope == EMPTY_ARRAY) {
+          position--;
+        } else if (c != ',') {
+          throw syntaxError("Expected ',' or ']'");
+        }
+      }
+      case EMPTY_OBJECT, NONEMPTY_OBJECT -> {
+        scopes[depth - 1] = DANGLING_NAME;
+        int c = nextNonWhitespace();
+        if (c == '}') {
+          return peeked = Token.END_OBJECT;
+        }
+        if (scope == NONEMPTY_OBJECT) {
+          if (c != ',') {
+            throw syntaxError("Expected ',' or '}'");
+          }
+          c = nextNonWhitespace();
+        }
+        if (c != '"') {
+          throw syntaxError("Expected a name");
+        }
+        return peeked = Token.NAME;
+      }
+      case DANGLING_NAME -> {
+        scopes[depth - 1] = NONEMPTY_OBJECT;
+        if (nextNonWhitespace() != ':') {
+          throw syntaxError("Expected ':'");
+        }
+      }
+      case EMPTY_DOCUMENT -> {
+        scopes[depth - 1] = NONEMPTY_DOCUMENT;
+        if (nextNonWhitespace() == -1) {
+          return peeked = Token.END_DOCUMENT;
+        }
+        position--;
+      }
+      default -> {
+        if (nextNonWhitespace() != -1) {
+          throw syntaxError("Unexpected data after the document");
+        }
+        return peeked = Token.END_DOCUMENT;
+      }
+    }
+    final int c = nextNonWhitespace();
+    switch (c) {
+      case '{':
+        return peeked = Token.BEGIN_OBJECT;
+      case '[':
+        return peeked = Token.BEGIN_ARRAY;
+      case '"':
+        return peeked = Token.STRING;
+      case 't':
+      case 'f':
+        position--;
+        return peeked = Token.BOOLEAN;
+      case 'n':
+        position--;
+        return peeked = Token.NULL;
+      default:
+        if (c == '-' || (c >= '0' && c <= '9')) {
+          position--;
+          return peeked = Token.NUMBER;
+        }
+        throw syntaxError(c == -1 ? "Unexpected end of input" : "Unexpected character");
+    }
+  }
+
+  public boolean hasNext() throws IOException {
+    final Token token = peek();
+    return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+  }
+
+  public void beginObject() throws IOException {
+    consume(Token.BEGIN_OBJECT);
+    push(EMPTY_OBJECT);
+  }
+
+  public void endObject() throws IOException {
+    consume(Token.END_OBJECT);
+    depth--;
+  }
+
+  public void beginArray() throws IOException {
+    consume(Token.BEGIN_ARRAY);
+    push(EMPTY_ARRAY);
+  }
+
+  public void endArray() throws IOException {
+    consume(Token.END_ARRAY);
+    depth--;
+  }
+
+  public String nextName() throws IOException {
+    consume(Token.NAME);
+    return readString();
+  }
+
+  public String nextString() throws IOException {
+    consume(Token.STRING);
+    return readString();
+  }
+
+  public long nextLong() throws IOException {
+    consume(Token.NUMBER);
+    final String number = readNumber();
+    try {
+      return Long.parseLong(number);
+    } catch (NumberFormatException e) {
+      throw syntaxError("Expected an integer but was " + number);
+    }
+  }
+
+  public int nextInt() throws IOException {
+    final long value = nextLong();
+    if (value != (int) value) {
+      throw syntaxError("Integer out of range: " + value);
+    }
+    return (int) value;
+  }
+
+  public boolean nextBoolean() throws IOException {
+    consume(Token.BOOLEAN);
+    if (buffered() && buffer[position] == 't') {
+      literal("true");
+      return true;
+    }
+    literal("false");
+    return false;
+  }
+
+  public void nextNull() throws IOException {
+    consume(Token.NULL);
+    literal("null");
+  }
+
+  public void skipValue() throws IOException {
+    switch (peek()) {
+      case BEGIN_OBJECT -> {
+        beginObject();
+        while (hasNext()) {
+          nextName();
+          skipValue();
+        }
+        endObject();
+      }
+      case BEGIN_ARRAY -> {
+        beginArray();
+        while (hasNext()) {
+          skipValue();
+        }
+        endArray();
+      }
+      case STRING -> nextString();
+      case NUMBER -> {
+        consume(Token.NUMBER);
+        readNumber();
+      }
+      case BOOLEAN -> nextBoolean();
+      case NULL -> nextNull();
+      default -> throw syntaxError("Expected a value");
+    }
+  }
+
+  private void consume(Token expected) throws IOException {
+    final Token actual = peek();
+    if (actual != expected) {
+      throw syntaxError("Expected " + expected + " but was " + actual);
+    }
+    peeked = null;
+  }
+
+  private void push(int scope) {
+    if (depth > MAX_DEPTH) {
+      throw syntaxError("Nesting too deep");
+    }
+    scopes[depth++] = scope;
+  }
+
+  private String readNumber() throws IOException {
+    final StringBuilder number = new StringBuilder();
+    int c;
+    while ((c = read()) != -1 && (c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E' || (c >= '0' && c <= '9'))) {
+      if (number.length() == MAX_NUMBER_LENGTH) {
+        throw syntaxError("Number longer than " + MAX_NUMBER_LENGTH + " characters");
+      }
+      number.append((char) c);
+    }
+    if (c != -1) {
+      position--;
+    }
+    return number.toString();
+  }
+
+  private String readString() throws IOException {
+    final StringBuilder value = new StringBuilder();
+    while (true) {
+      final int c = read();
+      if (c == '"') {
+        return value.toString();
+      }
+      if (value.length() == MAX_STRING_LENGTH) {
+        throw syntaxError("String longer than " + MAX_STRING_LENGTH + " characters");
+      }
+      if (c == '\\') {
+        value.append(readEscape());
+      } else if (c == -1) {
+        throw syntaxError("Unterminated string");
+      } else if (c < 0x20) {
+        throw syntaxError("Unescaped control character in string");
+      } else {
+        value.append((char) c);
+      }
+    }
+  }
+
+  private char readEscape() throws IOException {
+    final int c = read();
+    switch (c) {
+      case '"', '\\', '/':
+        return (char) c;
+      case 'b':
+        return '\b';
+      case 'f':
+        return '\f';
+      case 'n':
+        return '\n';
+      case 'r':
+        return '\r';
+      case 't':
+        return '\t';
+      case 'u':
+        int code = 0;
+        for (int i = 0; i < 4; i++) {
+          final int digit = Character.digit(read(), 16);
+          if (digit < 0) {
+            throw syntaxError("Invalid unicode escape");
+          }
+          code = code << 4 | digit;
+        }
+        return (char) code;
+      default:
+        throw syntaxError("Invalid escape sequence");
+    }
+  }
+
+  private void literal(String expected) throws IOException {
+    for (int i = 0; i < expected.length(); i++) {
+      if (read() != expected.charAt(i)) {
+        throw syntaxError("Expected " + expected);
+      }
+    }
+  }
+
+  private int nextNonWhitespace() throws IOException {
+    int c;
+    do {
+      c = read();
+    } while (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+    return c;
+  }
+
+  private boolean buffered() throws IOException {
+    if (position < limit) {
+      return true;
+    }
+    final int count = in.read(buffer, 0, buffer.length);
+    if (count <= 0) {
+      return false;
+    }
+    position = 0;
+    limit = count;
+    return true;
+  }
+
+  // Only the character just read may be pushed back with position--, which never crosses a refill
+  private int read() throws IOException {
+    return buffered() ? buffer[position++] : -1;
+  }
+
+  private IllegalArgumentException syntaxError(String message) {
+    return new IllegalArgumentException("Malformed JSON: " + message);
+  }
+}
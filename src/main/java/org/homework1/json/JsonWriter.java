@@ -0,0 +1,161 @@
+package org.homework1.json;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Streaming JSON encoder. Values are written straight to the underlying writer as they are
+ * produced; the only state kept is whether each open object or array already has an element.
+ */
+public final class JsonWriter implements Flushable {
+
+  private static final String[] CONTROL_ESCAPES = new String[0x20];
+
+  static {
+    for (int c = 0; c < CONTROL_ESCAPES.length; c++) {
+      CONTROL_ESCAPES[c] = String.format("\\u%04x", c);
+    }
+    CONTROL_ESCAPES['\b'] = "\\b";
+    CONTROL_ESCAPES['\f'] = "\\f";
+    CONTROL_ESCAPES['\n'] = "\\n";
+    CONTROL_ESCAPES['\r'] = "\\r";
+    CONTROL_ESCAPES['\t'] = "\\t";
+  }
+
+  private final Writer out;
+  private boolean[] hasElements = new boolean[16];
+  private int depth;
+  private boolean afterName;
+
+  public JsonWriter(Writer out) {
+    this.out = Objects.requireNonNull(out, "Writer cannot be null");
+  }
+
+  public JsonWriter beginObject() throws IOException {
+    return open('{');
+  }
+
+  public JsonWriter endObject() throws IOException {
+    return close('}');
+  }
+
+  public JsonWriter beginArray() throws IOException {
+    return open('[');
+  }
+
+  public JsonWriter endArray() throws IOException {
+    return close(']');
+  }
+
+  public JsonWriter name(String name) throws IOException {
+    if (depth == 0 || afterName) {
+      throw new IllegalStateException("Names are only allowed inside an object");
+    }
+    separate();
+    string(name);
+    out.write(':');
+    afterName = true;
+    return this;
+  }
+
+  public JsonWriter value(String value) throws IOException {
+    if (value == null) {
+      return nullValue();
+    }
+    separate();
+    string(value);
+    return this;
+  }
+
+  public JsonWriter value(long value) throws IOException {
+    separate();
+    out.write(Long.toString(value));
+    return this;
+  }
+
+  public JsonWriter value(double value) throws IOException {
+    if (!Double.isFinite(value)) {
+      throw new IllegalArgumentException("JSON numbers must be finite");
+    }
+    separate();
+    out.write(Double.toString(value));
+    return this;
+  }
+
+  public JsonWriter value(boolean value) throws IOException {
+    separate();
+    out.write(value ? "true" : "false");
+    return this;
+  }
+
+  public JsonWriter nullValue() throws IOException {
+    separate();
+    out.write("null");
+    return this;
+  }
+
+  @Override
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  private JsonWriter open(char bracket) throws IOException {
+    separate();
+    out.write(bracket);
+    if (depth == hasElements.length) {
+      hasElements = Arrays.copyOf(hasElements, depth * 2);
+    }
+    hasElements[depth++] = false;
+    return this;
+  }
+
+  private JsonWriter close(char bracket) throws IOException {
+    if (depth == 0 || afterName) {
+      throw new IllegalStateException("Nothing to close");
+    }
+    depth--;
+    out.write(bracket);
+    return this;
+  }
+
+  // Writes the comma between elements; a value straight after its name needs none
+  private void separate() throws IOException {
+    if (afterName) {
+      afterName = false;
+      return;
+    }
+    if (depth > 0) {
+      if (hasElements[depth - 1]) {
+        out.write(',');
+      }
+      hasElements[depth - 1] = true;
+    }
+  }
+
+  private void string(String value) throws IOException {
+    out.write('"');
+    int copyFrom = 0;
+    final int length = value.length();
+    for (int i = 0; i < length; i++) {
+      final char c = value.charAt(i);
+      final String escape;
+      if (c < 0x20) {
+        escape = CONTROL_ESCAPES[c];
+      } else if (c == '"') {
+        escape = "\\\"";
+      } else if (c == '\\') {
+        escape = "\\\\";
+      } else {
+        continue;
+      }
+      out.write(value, copyFrom, i - copyFrom);
+      out.write(escape);
+      copyFrom = i + 1;
+    }
+    out.write(value, copyFrom, length - copyFrom);
+    out.write('"');
+  }
+}
@@ -0,0 +1,87 @@
+package org.homework1.loadtest;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Shape of a soak run: {@code buildings} buildings with {@code floors} floors of
+ * {@code roomsPerFloor} rooms each, a catalog of {@code ingredients} ingredients and
+ * {@code recipes} recipes, {@code rooms} concurrently ordering rooms and {@code kitchenWorkers}
+ * threads preparing and delivering for {@code duration}.
+ */
+public record LoadConfig(int buildings, int floors, int roomsPerFloor, int ingredients, int recipes, int rooms,
+                         int kitchenWorkers, Duration duration) {
+
+  public static final LoadConfig DEFAULTS = new LoadConfig(20, 10, 20, 40, 50, 64, 4, Duration.ofSeconds(30));
+
+  public LoadConfig {
+    requirePositive(buildings, "buildings");
+    requirePositive(floors, "floors");
+    requirePositive(roomsPerFloor, "rooms per floor");
+    requirePositive(ingredients, "ingredients");
+    requirePositive(recipes, "recipes");
+    requirePositive(rooms, "rooms");
+    requirePositive(kitchenWorkers, "kitchen workers");
+    if (floors > 99 || roomsPerFloor > 99) {
+      throw new IllegalArgumentException("Room numbers are floor * 100 + room, so floors and rooms per floor must be below 100");
+    }
+    if (duration == null || duration.isNegative() || duration.isZero()) {
+      throw new IllegalArgumentException("Duration must be positive");
+    }
+  }
+
+  /**
+   * Parses {@code --name=value} options over the defaults, e.g. {@code --rooms=1000 --duration=PT5M}.
+   * The duration also accepts plain seconds.
+   */
+  public static LoadConfig parse(String... args) {
+    final Map<String, String> options = new HashMap<>();
+    for (String arg : args) {
+      final int separator = arg.indexOf('=');
+      if (!arg.startsWith("--") || separator < 0) {
+        throw new IllegalArgumentException("Expected --name=value but was " + arg);
+      }
+      options.put(arg.substring(2, separator), arg.substring(separator + 1));
+    }
+    final LoadConfig config = new LoadConfig(
+        intOption(options, "buildings", DEFAULTS.buildings),
+        intOption(options, "floors", DEFAULTS.floors),
+        intOption(options, "rooms-per-floor", DEFAULTS.roomsPerFloor),
+        intOption(options, "ingredients", DEFAULTS.ingredients),
+        intOption(options, "recipes", DEFAULTS.recipes),
+        intOption(options, "rooms", DEFAULTS.rooms),
+        intOption(options, "kitchen-workers", DEFAULTS.kitchenWorkers),
+        options.containsKey("duration") ? parseDuration(options.remove("duration")) : DEFAULTS.duration);
+    if (!options.isEmpty()) {
+      throw new IllegalArgumentException("Unknown options " + options.keySet());
+    }
+    return config;
+  }
+
+  private static void requirePositive(int value, String name) {
+    if (value <= 0) {
+      throw new IllegalArgumentException("Number of " + name + " must be positive");
+    }
+  }
+
+  private static int intOption(Map<String, String> options, String name, int defaultValue) {
+    final String value = options.remove(name);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid value for --" + name + ": " + value);
+    }
+  }
+
+  private static Duration parseDuration(String value) {
+    try {
+      return value.startsWith("P") ? Duration.parse(value) : Duration.ofSeconds(Long.parseLong(value));
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Invalid value for --duration: " + value);
+    }
+  }
+}
@@ -0,0 +1,294 @@
+package org.homework1.loadtest;
+
+import org.homework1.constant.OrderStatus;
+import org.homework1.dto.DeliveryRun;
+import org.homework1.dto.DeliveryStop;
+import org.homework1.dto.OrderHistoryEntry;
+import org.homework1.metrics.MetricsRegistry;
+import org.homework1.persistence.OrderLog;
+import org.homework1.service.AsyncOrderService;
+import org.homework1.service.BuildingService;
+import org.homework1.service.OrderService;
+import org.homework1.service.RecipeService;
+import org.homework1.util.IntegerRange;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Soak test driver for an in-process service graph. Rooms place, amend, cancel and complete
+ * orders while a kitchen pool prepares and delivers them; every step is checked against the
+ * order lifecycle and any mismatch is reported as a violation.
+ */
+public class LoadGenerator {
+
+  private static final int MAX_REPORTED_VIOLATIONS = 100;
+  private static final int MAX_PANCAKES_PER_ORDER = 4;
+  private static final int PREPARE_BATCH = 16;
+  private static final int ORDERS_PER_RUN = 10;
+  private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(30);
+
+  private final LoadConfig config;
+  private final MetricsRegistry metrics = new MetricsRegistry();
+  private final BuildingService buildingService = new BuildingService(metrics);
+  private final RecipeService recipeService = new RecipeService(metrics);
+  private final OrderService orderService = new OrderService(buildingService, recipeService, OrderLog.none(), metrics);
+  // Floors per building, indexed by building number - 1
+  private final int[] floors;
+  private final List<UUID> ingredientIds = new ArrayList<>();
+  private final List<UUID> recipeIds = new ArrayList<>();
+  // Completed orders that have not been delivered yet, with the pancake count they were completed with
+  private final Map<UUID, Integer> awaitingDelivery = new ConcurrentHashMap<>();
+  private final LongAdder created = new LongAdder();
+  private final LongAdder canceled = new LongAdder();
+  private final LongAdder delivered = new LongAdder();
+  private final LongAdder violationCount = new LongAdder();
+  // Orders waiting in the preparation and delivery queues, sampled by the kitchen
+  private final LongAccumulator peakQueued = new LongAccumulator(Math::max, 0);
+  private final Queue<String> violations = new ConcurrentLinkedQueue<>();
+  private volatile boolean ordering = true;
+  private volatile boolean cooking = true;
+
+  public LoadGenerator(LoadConfig config) {
+    this.config = Objects.requireNonNull(config, "Config cannot be null");
+    floors = new int[config.buildings()];
+    provision();
+  }
+
+  public LoadReport run() throws InterruptedException {
+    metrics.reset();
+    final List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+        .filter(pool -> pool.getType() == MemoryType.HEAP)
+        .toList();
+    heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+    final long gcCountBefore = gcCount();
+    final long gcTimeBefore = gcTimeMillis();
+    final long start = System.nanoTime();
+
+    final ExecutorService executor = AsyncOrderService.defaultExecutor();
+    try {
+      final List<Future<?>> rooms = new ArrayList<>();
+      for (int i = 0; i < config.rooms(); i++) {
+        rooms.add(executor.submit(this::placeOrders));
+      }
+      final List<Future<?>> kitchen = new ArrayList<>();
+      for (int i = 0; i < config.kitchenWorkers(); i++) {
+        kitchen.add(executor.submit(this::cook));
+      }
+
+      TimeUnit.NANOSECONDS.sleep(config.duration().toNanos());
+      ordering = false;
+      awaitAll(rooms);
+      final long drainDeadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+      while (!awaitingDelivery.isEmpty() && System.nanoTime() < drainDeadline) {
+        TimeUnit.MILLISECONDS.sleep(10);
+      }
+      cooking = false;
+      awaitAll(kitchen);
+    } finally {
+      ordering = false;
+      cooking = false;
+      executor.shutdown();
+    }
+    final Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+    if (!awaitingDelivery.isEmpty()) {
+      violation(awaitingDelivery.size() + " completed orders were never delivered");
+    }
+    if (!orderService.listCompletedOrders().isEmpty() || !orderService.listPreparedOrders().isEmpty()) {
+      violation("Status indexes still list orders after every order was delivered");
+    }
+    // Queue entries left behind by delivered orders would grow with the length of the run
+    if (queuedOrders() != 0) {
+      violation(queuedOrders() + " orders are still queued after every order was delivered");
+    }
+    final Map<OrderStatus, Long> counts = orderService.countByStatus();
+    if (counts.get(OrderStatus.DRAFT) + counts.get(OrderStatus.COMPLETED) + counts.get(OrderStatus.PREPARED) != 0
+        || counts.get(OrderStatus.CANCELED) != canceled.sum() || counts.get(OrderStatus.DELIVERED) != delivered.sum()) {
+      violation("Status counters " + counts + " do not match " + canceled.sum() + " canceled and " + delivered.sum()
+          + " delivered orders");
+    }
+    final long peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+    final long usedHeap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    return new LoadReport(elapsed, created.sum(), canceled.sum(), delivered.sum(), peakQueued.get(),
+        metrics.snapshot(), peakHeap, usedHeap, gcCount() - gcCountBefore, gcTimeMillis() - gcTimeBefore, violationCount.sum(),
+        new ArrayList<>(violations));
+  }
+
+  private void provision() {
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (int building = 1; building <= config.buildings(); building++) {
+      // Buildings differ in height; every floor numbers its rooms from floor * 100 + 1
+      final int buildingFloors = config.floors() / 2 + 1 + random.nextInt(config.floors() - config.floors() / 2);
+      final IntegerRange[] ranges = new IntegerRange[buildingFloors];
+      for (int floor = 1; floor <= buildingFloors; floor++) {
+        ranges[floor - 1] = new IntegerRange(floor * 100 + 1, floor * 100 + config.roomsPerFloor());
+      }
+      buildingService.addBuilding(building, ranges);
+      floors[building - 1] = buildingFloors;
+    }
+    for (int i = 0; i < config.ingredients(); i++) {
+      ingredientIds.add(recipeService.createIngredient("Ingredient " + i).getId());
+    }
+    for (int i = 0; i < config.recipes(); i++) {
+      recipeIds.add(recipeService.createRecipe("Recipe " + i, randomIngredients(random)));
+    }
+  }
+
+  private void placeOrders() {
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+    while (ordering) {
+      final int building = random.nextInt(floors.length) + 1;
+      final int room = (random.nextInt(floors[building - 1]) + 1) * 100 + random.nextInt(config.roomsPerFloor()) + 1;
+      UUID orderId = null;
+      try {
+        orderId = orderService.createOrder(building, room);
+        created.increment();
+        int pancakeCount = 1 + random.nextInt(MAX_PANCAKES_PER_ORDER);
+        for (int i = 0; i < pancakeCount; i++) {
+          if (random.nextInt(5) == 0) {
+            orderService.addPancake(orderId, randomIngredients(random));
+          } else {
+            orderService.addPancake(orderId, recipeIds.get(random.nextInt(recipeIds.size())));
+          }
+        }
+        if (pancakeCount > 1 && random.nextInt(5) == 0) {
+          orderService.removePancakes(orderId, Set.of(orderService.getPancakes(orderId).get(0).getId()));
+          pancakeCount--;
+        }
+        if (orderService.getPancakes(orderId).size() != pancakeCount) {
+          violation("Order " + orderId + " should have " + pancakeCount + " pancakes");
+        }
+        if (random.nextInt(10) == 0) {
+          orderService.cancelOrder(orderId);
+          canceled.increment();
+          if (orderService.getOrderStatus(orderId) != OrderStatus.CANCELED) {
+            violation("Canceled order " + orderId + " is " + orderService.getOrderStatus(orderId));
+          }
+        } else {
+          // Registered first, since the kitchen may deliver the order before completeOrder returns
+          awaitingDelivery.put(orderId, pancakeCount);
+          orderService.completeOrder(orderId, random.nextInt(7) == 0);
+        }
+      } catch (RuntimeException e) {
+        if (orderId != null) {
+          awaitingDelivery.remove(orderId);
+        }
+        violation("Room " + building + "/" + room + " failed: " + e);
+      }
+    }
+  }
+
+  private void cook() {
+    while (cooking) {
+      boolean worked = false;
+      for (UUID orderId : orderService.drainToPrepare(PREPARE_BATCH)) {
+        worked = true;
+        try {
+          orderService.prepareOrder(orderId);
+        } catch (RuntimeException e) {
+          violation("Preparing order " + orderId + " failed: " + e);
+        }
+      }
+      final Optional<DeliveryRun> run = orderService.claimDeliveryRun(ORDERS_PER_RUN);
+      if (run.isPresent()) {
+        worked = true;
+        run.get().stops().forEach(this::deliver);
+      }
+      peakQueued.accumulate(queuedOrders());
+      if (!worked) {
+        LockSupport.parkNanos(100_000);
+      }
+    }
+  }
+
+  private void deliver(DeliveryStop stop) {
+    final UUID orderId = stop.orderId();
+    try {
+      orderService.deliverOrder(orderId);
+      delivered.increment();
+      final Integer expectedPancakes = awaitingDelivery.remove(orderId);
+      if (expectedPancakes == null) {
+        violation("Order " + orderId + " was delivered without being completed, or delivered twice");
+        return;
+      }
+      final Optional<OrderHistoryEntry> entry = orderService.findFinishedOrder(orderId);
+      if (entry.isEmpty() || entry.get().status() != OrderStatus.DELIVERED) {
+        violation("Delivered order " + orderId + " is not in history as delivered");
+      } else if (entry.get().pancakeCount() != expectedPancakes) {
+        violation("Order " + orderId + " was delivered with " + entry.get().pancakeCount() + " pancakes instead of "
+            + expectedPancakes);
+      }
+    } catch (RuntimeException e) {
+      violation("Delivering order " + orderId + " failed: " + e);
+    }
+  }
+
+  private long queuedOrders() {
+    return orderService.countQueuedToPrepare() + orderService.countQueuedToDeliver();
+  }
+
+  private List<UUID> randomIngredients(ThreadLocalRandom random) {
+    final int count = 1 + random.nextInt(Math.min(3, ingredientIds.size()));
+    final List<UUID> ingredients = new ArrayList<>(count);
+    while (ingredients.size() < count) {
+      final UUID ingredient = ingredientIds.get(random.nextInt(ingredientIds.size()));
+      if (!ingredients.contains(ingredient)) {
+        ingredients.add(ingredient);
+      }
+    }
+    return ingredients;
+  }
+
+  private void violation(String message) {
+    violationCount.increment();
+    if (violations.size() < MAX_REPORTED_VIOLATIONS) {
+      violations.add(message);
+    }
+  }
+
+  private void awaitAll(List<Future<?>> futures) throws InterruptedException {
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        violation("Worker died: " + e.getCause());
+      }
+    }
+  }
+
+  private static long gcCount() {
+    return ManagementFactory.getGarbageCollectorMXBeans().stream()
+        .mapToLong(GarbageCollectorMXBean::getCollectionCount)
+        .filter(count -> count > 0)
+        .sum();
+  }
+
+  private static long gcTimeMillis() {
+    return ManagementFactory.getGarbageCollectorMXBeans().stream()
+        .mapToLong(GarbageCollectorMXBean::getCollectionTime)
+        .filter(time -> time > 0)
+        .sum();
+  }
+}
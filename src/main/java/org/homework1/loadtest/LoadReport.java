@@ -0,0 +1,64 @@
+package org.homework1.loadtest;
+
+import org.homework1.metrics.HistogramSnapshot;
+import org.homework1.metrics.LockSnapshot;
+import org.homework1.metrics.MetricsSnapshot;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a soak run. {@code violations} holds the first lifecycle invariant violations that
+ * were seen; {@code violationCount} counts all of them. {@code peakQueuedOrders} is the most orders
+ * the kitchen saw waiting in the work queues at once.
+ */
+public record LoadReport(Duration elapsed, long ordersCreated, long ordersCanceled, long ordersDelivered,
+                         long peakQueuedOrders, MetricsSnapshot metrics, long peakHeapBytes, long usedHeapBytes, long gcCount,
+                         long gcTimeMillis, long violationCount, List<String> violations) {
+
+  public LoadReport {
+    violations = List.copyOf(violations);
+  }
+
+  public boolean passed() {
+    return violationCount == 0;
+  }
+
+  public void print(PrintStream out) {
+    final double seconds = elapsed.toNanos() / 1e9;
+    out.printf("Soak run of %.1f s: %d orders created, %d canceled, %d delivered (%.0f orders/s)%n",
+        seconds, ordersCreated, ordersCanceled, ordersDelivered, ordersCreated / seconds);
+    out.printf("%-40s %10s %10s %10s %10s %10s %10s%n", "operation", "count", "ops/s", "p50 us", "p99 us", "p99.9 us", "max us");
+    for (Map.Entry<String, HistogramSnapshot> latency : metrics.latencies().entrySet()) {
+      final HistogramSnapshot histogram = latency.getValue();
+      if (histogram.count() > 0) {
+        out.printf("%-40s %10d %10.0f %10.1f %10.1f %10.1f %10.1f%n", latency.getKey(), histogram.count(),
+            histogram.count() / seconds, micros(histogram.p50Nanos()), micros(histogram.p99Nanos()),
+            micros(histogram.p999Nanos()), micros(histogram.maxNanos()));
+      }
+    }
+    out.printf("%-40s %12s %12s %12s%n", "lock", "acquisitions", "contended", "wait p99 us");
+    for (Map.Entry<String, LockSnapshot> lock : metrics.locks().entrySet()) {
+      final LockSnapshot snapshot = lock.getValue();
+      if (snapshot.acquisitions() > 0) {
+        out.printf("%-40s %12d %12d %12.1f%n", lock.getKey(), snapshot.acquisitions(),
+            snapshot.contendedAcquisitions(), micros(snapshot.waits().p99Nanos()));
+      }
+    }
+    out.printf("Work queues: %d orders at most%n", peakQueuedOrders);
+    out.printf("Heap: %d MiB peak, %d MiB in use at the end; GC: %d collections, %d ms%n",
+        peakHeapBytes >> 20, usedHeapBytes >> 20, gcCount, gcTimeMillis);
+    if (passed()) {
+      out.println("No lifecycle invariant violations");
+    } else {
+      out.println(violationCount + " lifecycle invariant violations, first ones:");
+      violations.forEach(violation -> out.println("  " + violation));
+    }
+  }
+
+  private static double micros(long nanos) {
+    return nanos / 1000.0;
+  }
+}
@@ -0,0 +1,4 @@
+package org.homework1.metrics;
+
+public record HistogramSnapshot(long count, double meanNanos, long p50Nanos, long p99Nanos, long p999Nanos, long maxNanos) {
+}
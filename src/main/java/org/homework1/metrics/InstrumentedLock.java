@@ -0,0 +1,76 @@
+package org.homework1.metrics;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Lock wrapper that counts acquisitions and times how long callers wait when the lock is held.
+ * An uncontended acquisition costs one extra {@code tryLock()}.
+ */
+public class InstrumentedLock implements Lock {
+
+  private final Lock delegate;
+  private final LockMetrics metrics;
+
+  public InstrumentedLock(Lock delegate, LockMetrics metrics) {
+    this.delegate = Objects.requireNonNull(delegate, "Lock cannot be null");
+    this.metrics = Objects.requireNonNull(metrics, "Lock metrics cannot be null");
+  }
+
+  @Override
+  public void lock() {
+    if (delegate.tryLock()) {
+      metrics.recordUncontended();
+      return;
+    }
+    final long start = System.nanoTime();
+    delegate.lock();
+    metrics.recordContended(System.nanoTime() - start);
+  }
+
+  @Override
+  public void lockInterruptibly() throws InterruptedException {
+    if (delegate.tryLock()) {
+      metrics.recordUncontended();
+      return;
+    }
+    final long start = System.nanoTime();
+    delegate.lockInterruptibly();
+    metrics.recordContended(System.nanoTime() - start);
+  }
+
+  @Override
+  public boolean tryLock() {
+    final boolean acquired = delegate.tryLock();
+    if (acquired) {
+      metrics.recordUncontended();
+    }
+    return acquired;
+  }
+
+  @Override
+  public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+    if (delegate.tryLock()) {
+      metrics.recordUncontended();
+      return true;
+    }
+    final long start = System.nanoTime();
+    final boolean acquired = delegate.tryLock(time, unit);
+    if (acquired) {
+      metrics.recordContended(System.nanoTime() - start);
+    }
+    return acquired;
+  }
+
+  @Override
+  public void unlock() {
+    delegate.unlock();
+  }
+
+  @Override
+  public Condition newCondition() {
+    return delegate.newCondition();
+  }
+}
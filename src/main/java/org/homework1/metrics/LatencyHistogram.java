@@ -0,0 +1,101 @@
+package org.homework1.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free, fixed-size histogram of nanosecond latencies. Values are grouped into log-linear
+ * buckets (16 per power of two), so reported percentiles are within about 3% of the recorded
+ * value.
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  // Striped, so threads recording similar latencies into the same histogram do not all contend on
+  // one cache line; a LongAdder only allocates its stripes once it sees contention
+  private final LongAdder[] counts = new LongAdder[BUCKETS];
+  private final LongAdder sum = new LongAdder();
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  public LatencyHistogram() {
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = new LongAdder();
+    }
+  }
+
+  public void record(long nanos) {
+    final long value = Math.max(nanos, 0);
+    counts[bucket(value)].increment();
+    sum.add(value);
+    max.accumulate(value);
+  }
+
+  public void recordSince(long startNanos) {
+    record(System.nanoTime() - startNanos);
+  }
+
+  public HistogramSnapshot snapshot() {
+    return snapshot(false);
+  }
+
+  public HistogramSnapshot snapshotAndReset() {
+    return snapshot(true);
+  }
+
+  public void reset() {
+    snapshot(true);
+  }
+
+  private HistogramSnapshot snapshot(boolean reset) {
+    final long[] bucketCounts = new long[BUCKETS];
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      bucketCounts[i] = reset ? counts[i].sumThenReset() : counts[i].sum();
+      count += bucketCounts[i];
+    }
+    final long total = reset ? sum.sumThenReset() : sum.sum();
+    final long maximum = reset ? max.getThenReset() : max.get();
+    return new HistogramSnapshot(count,
+        count == 0 ? 0 : (double) total / count,
+        percentile(bucketCounts, count, 0.5),
+        percentile(bucketCounts, count, 0.99),
+        percentile(bucketCounts, count, 0.999),
+        maximum);
+  }
+
+  private static long percentile(long[] bucketCounts, long count, double quantile) {
+    if (count == 0) {
+      return 0;
+    }
+    final long rank = (long) Math.ceil(quantile * count);
+    long seen = 0;
+    for (int i = 0; i < bucketCounts.length; i++) {
+      seen += bucketCounts[i];
+      if (seen >= rank) {
+        return midpoint(i);
+      }
+    }
+    return midpoint(bucketCounts.length - 1);
+  }
+
+  static int bucket(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+    final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  static long midpoint(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    final int shift = bucket / SUB_BUCKETS - 1;
+    final long lowerBound = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    return lowerBound + ((1L << shift) >>> 1);
+  }
+}
@@ -0,0 +1,45 @@
+package org.homework1.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Acquisition and wait-time counters for one lock or family of monitors.
+ */
+public class LockMetrics {
+
+  // Monitor waits shorter than this are treated as uncontended; timing alone cannot tell them apart
+  static final long CONTENDED_THRESHOLD_NANOS = 1_000;
+
+  private final LongAdder acquisitions = new LongAdder();
+  private final LongAdder contendedAcquisitions = new LongAdder();
+  private final LongAdder totalWaitNanos = new LongAdder();
+  private final LatencyHistogram waits = new LatencyHistogram();
+
+  public void recordUncontended() {
+    acquisitions.increment();
+  }
+
+  public void recordContended(long waitNanos) {
+    acquisitions.increment();
+    contendedAcquisitions.increment();
+    totalWaitNanos.add(waitNanos);
+    waits.record(waitNanos);
+  }
+
+  public void recordWait(long waitNanos) {
+    if (waitNanos < CONTENDED_THRESHOLD_NANOS) {
+      recordUncontended();
+    } else {
+      recordContended(waitNanos);
+    }
+  }
+
+  public LockSnapshot snapshot() {
+    return new LockSnapshot(acquisitions.sum(), contendedAcquisitions.sum(), totalWaitNanos.sum(), waits.snapshot());
+  }
+
+  public LockSnapshot snapshotAndReset() {
+    return new LockSnapshot(acquisitions.sumThenReset(), contendedAcquisitions.sumThenReset(),
+        totalWaitNanos.sumThenReset(), waits.snapshotAndReset());
+  }
+}
@@ -0,0 +1,4 @@
+package org.homework1.metrics;
+
+public record LockSnapshot(long acquisitions, long contendedAcquisitions, long totalWaitNanos, HistogramSnapshot waits) {
+}
@@ -0,0 +1,48 @@
+package org.homework1.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Named latency histograms and lock counters. Services look their metrics up once when they are
+ * constructed, so recording never touches the registry itself.
+ */
+public class MetricsRegistry {
+
+  private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+  private final Map<String, LockMetrics> locks = new ConcurrentHashMap<>();
+
+  public LatencyHistogram latency(String name) {
+    return latencies.computeIfAbsent(name, key -> new LatencyHistogram());
+  }
+
+  public LockMetrics lock(String name) {
+    return locks.computeIfAbsent(name, key -> new LockMetrics());
+  }
+
+  public Lock instrument(String name, Lock lock) {
+    return new InstrumentedLock(lock, lock(name));
+  }
+
+  public MetricsSnapshot snapshot() {
+    final Map<String, HistogramSnapshot> latencySnapshots = new TreeMap<>();
+    latencies.forEach((name, histogram) -> latencySnapshots.put(name, histogram.snapshot()));
+    final Map<String, LockSnapshot> lockSnapshots = new TreeMap<>();
+    locks.forEach((name, metrics) -> lockSnapshots.put(name, metrics.snapshot()));
+    return new MetricsSnapshot(latencySnapshots, lockSnapshots);
+  }
+
+  public MetricsSnapshot snapshotAndReset() {
+    final Map<String, HistogramSnapshot> latencySnapshots = new TreeMap<>();
+    latencies.forEach((name, histogram) -> latencySnapshots.put(name, histogram.snapshotAndReset()));
+    final Map<String, LockSnapshot> lockSnapshots = new TreeMap<>();
+    locks.forEach((name, metrics) -> lockSnapshots.put(name, metrics.snapshotAndReset()));
+    return new MetricsSnapshot(latencySnapshots, lockSnapshots);
+  }
+
+  public void reset() {
+    snapshotAndReset();
+  }
+}
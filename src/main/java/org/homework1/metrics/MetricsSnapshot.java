@@ -0,0 +1,13 @@
+package org.homework1.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+public record MetricsSnapshot(Map<String, HistogramSnapshot> latencies, Map<String, LockSnapshot> locks) {
+
+  public MetricsSnapshot {
+    latencies = Collections.unmodifiableMap(new TreeMap<>(latencies));
+    locks = Collections.unmodifiableMap(new TreeMap<>(locks));
+  }
+}
@@ -1,23 +1,57 @@
 package org.homework1.model;
 
 import org.homework1.util.IntegerRange;
+import org.homework1.util.IntegerRangeSet;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
-public record Building(int buildingNumber, List<IntegerRange> rooms) {
+public final class Building {
 
-  public Building {
-        Objects.requireNonNull(rooms, "Rooms must not be null");
-    }
+  private final int buildingNumber;
+  private final List<IntegerRange> rooms;
+  // Merged once here so hasRoom is a lookup rather than a scan over the ranges
+  private final IntegerRangeSet roomSet;
+
+  public Building(int buildingNumber, List<IntegerRange> rooms) {
+    Objects.requireNonNull(rooms, "Rooms must not be null");
+    this.buildingNumber = buildingNumber;
+    this.rooms = List.copyOf(rooms);
+    this.roomSet = IntegerRangeSet.of(this.rooms);
+  }
+
+  public int buildingNumber() {
+    return buildingNumber;
+  }
 
-  @Override
   public List<IntegerRange> rooms() {
     return new ArrayList<>(rooms);
   }
 
+  public IntegerRangeSet roomSet() {
+    return roomSet;
+  }
+
   public boolean hasRoom(int roomNumber) {
-        return rooms.stream().anyMatch(range -> range.contains(roomNumber));
-    }
+    return roomSet.contains(roomNumber);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    Building building = (Building) o;
+    return buildingNumber == building.buildingNumber && rooms.equals(building.rooms);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(buildingNumber, rooms);
+  }
+
+  @Override
+  public String toString() {
+    return "Building[buildingNumber=" + buildingNumber + ", rooms=" + rooms + "]";
+  }
 }
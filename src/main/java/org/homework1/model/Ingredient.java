@@ -1,14 +1,24 @@
 package org.homework1.model;
 
+import org.homework1.util.IdGenerator;
+
 import java.util.Objects;
 import java.util.UUID;
 
-public class Ingredient {
+public final class Ingredient {
     private final UUID id;
     private final String name;
 
   public Ingredient(String name) {
-    this.id = UUID.randomUUID();
+    this(IdGenerator.defaultGenerator(), name);
+  }
+
+  public Ingredient(IdGenerator ids, String name) {
+    this(ids.nextId(), name);
+  }
+
+  public Ingredient(UUID id, String name) {
+    this.id = Objects.requireNonNull(id, "Ingredient ID cannot be null");
         if (name == null || name.isBlank()) {
             throw new IllegalArgumentException("Ingredient name is required and cannot be blank");
         }
@@ -0,0 +1,55 @@
+package org.homework1.model;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Immutable, shareable list of pancake ingredients. Every pancake made from the same recipe
+ * references the same instance. The names are resolved when the set is made and kept with it,
+ * so a pancake holds nothing of the catalog it was resolved from.
+ */
+public final class IngredientSet {
+
+  private final List<UUID> ingredientIds;
+  private final List<String> ingredientNames;
+
+  public IngredientSet(List<UUID> ingredientIds, List<String> ingredientNames) {
+    Objects.requireNonNull(ingredientIds, "Ingredient IDs must not be null");
+    Objects.requireNonNull(ingredientNames, "Ingredient names must not be null");
+    if (ingredientIds.isEmpty()) {
+      throw new IllegalArgumentException("Recipe must have at least one ingredient");
+    }
+    if (ingredientIds.size() != ingredientNames.size()) {
+      throw new IllegalArgumentException("Every ingredient must have a name");
+    }
+    this.ingredientIds = List.copyOf(ingredientIds);
+    this.ingredientNames = List.copyOf(ingredientNames);
+  }
+
+  public List<UUID> ingredientIds() {
+    return ingredientIds;
+  }
+
+  public List<String> ingredientNames() {
+    return ingredientNames;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    IngredientSet that = (IngredientSet) o;
+    return ingredientIds.equals(that.ingredientIds);
+  }
+
+  @Override
+  public int hashCode() {
+    return ingredientIds.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return "IngredientSet[ingredientIds=" + ingredientIds + "]";
+  }
+}
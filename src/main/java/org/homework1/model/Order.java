@@ -1,6 +1,9 @@
 package org.homework1.model;
 
 import org.homework1.constant.OrderStatus;
+import org.homework1.exception.NotFoundException;
+import org.homework1.util.IdGenerator;
+import org.homework1.util.UuidMap;
 
 import java.util.*;
 
@@ -8,13 +11,28 @@ public class Order {
     private final UUID id;
     private final int building;
     private final int room;
-    private OrderStatus status = OrderStatus.DRAFT;
-    private final Map<UUID, Pancake> pancakes = new HashMap<>();
+    private final long createdAtMillis;
+    private volatile OrderStatus status = OrderStatus.DRAFT;
+    private volatile boolean express;
+    private final UuidMap<Pancake> pancakes = new UuidMap<>();
 
     public Order(int building, int room) {
-        this.id = UUID.randomUUID();
+        this(IdGenerator.defaultGenerator(), building, room);
+    }
+
+    public Order(IdGenerator ids, int building, int room) {
+        this(ids.nextId(), building, room);
+    }
+
+    public Order(UUID id, int building, int room) {
+        this(id, building, room, System.currentTimeMillis());
+    }
+
+    public Order(UUID id, int building, int room, long createdAtMillis) {
+        this.id = Objects.requireNonNull(id, "Order ID cannot be null");
         this.building = building;
         this.room = room;
+        this.createdAtMillis = createdAtMillis;
     }
 
     public void addPancake(Pancake pancake) {
@@ -26,7 +44,7 @@ public class Order {
         Objects.requireNonNull(pancakeId, "Pancake ID cannot be null");
         final Pancake removed = pancakes.remove(pancakeId);
         if (removed == null) {
-            throw new IllegalArgumentException("Pancake not found");
+            throw new NotFoundException("Pancake not found");
         }
     }
 
@@ -40,7 +58,7 @@ public class Order {
     }
 
     public List<Pancake> getPancakes() {
-        return new ArrayList<>(pancakes.values());
+        return pancakes.values();
     }
 
     public UUID getId() {
@@ -55,6 +73,10 @@ public class Order {
         return room;
     }
 
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
     public OrderStatus getStatus() {
         return status;
     }
@@ -64,6 +86,14 @@ public class Order {
         this.status = status;
     }
 
+    public boolean isExpress() {
+        return express;
+    }
+
+    public void setExpress(boolean express) {
+        this.express = express;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -1,23 +1,33 @@
 package org.homework1.model;
 
+import org.homework1.util.IdGenerator;
+
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
 
 public class Pancake {
   private final UUID id;
-  private final List<String> ingredients;
+  private final IngredientSet ingredients;
+
+  public Pancake(IngredientSet ingredients) {
+    this(IdGenerator.defaultGenerator(), ingredients);
+  }
 
-  public Pancake(List<String> ingredients) {
-    this.id = UUID.randomUUID();
-    if (ingredients == null || ingredients.isEmpty()) {
+  public Pancake(IdGenerator ids, IngredientSet ingredients) {
+    this(ids.nextId(), ingredients);
+  }
+
+  public Pancake(UUID id, IngredientSet ingredients) {
+    this.id = Objects.requireNonNull(id, "Pancake ID cannot be null");
+    if (ingredients == null) {
       throw new IllegalArgumentException("Recipe must have at least one ingredient");
     }
     this.ingredients = ingredients;
   }
 
   public String description() {
-    return "Delicious pancake with %s!".formatted(String.join(", ", ingredients));
+    return "Delicious pancake with %s!".formatted(String.join(", ", ingredients.ingredientNames()));
   }
 
   public UUID getId() {
@@ -25,6 +35,10 @@ public class Pancake {
   }
 
   public List<String> getIngredients() {
+    return ingredients.ingredientNames();
+  }
+
+  public IngredientSet getIngredientSet() {
     return ingredients;
   }
 
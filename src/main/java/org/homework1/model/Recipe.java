@@ -1,15 +1,29 @@
 package org.homework1.model;
 
+import org.homework1.util.IdGenerator;
+
 import java.util.*;
 
-public class Recipe {
+/**
+ * Immutable catalog entry. Editing a recipe replaces it with a new instance under the same ID,
+ * so a reader holding a recipe never sees it change.
+ */
+public final class Recipe {
 
   private final UUID id;
-  private String name;
-  private List<UUID> ingredients;
+  private final String name;
+  private final List<UUID> ingredients;
 
   public Recipe(String name, List<UUID> ingredients) {
-    this.id = UUID.randomUUID();
+    this(IdGenerator.defaultGenerator(), name, ingredients);
+  }
+
+  public Recipe(IdGenerator ids, String name, List<UUID> ingredients) {
+    this(ids.nextId(), name, ingredients);
+  }
+
+  public Recipe(UUID id, String name, List<UUID> ingredients) {
+    this.id = Objects.requireNonNull(id, "Recipe ID cannot be null");
     if (name == null || name.isBlank()) {
       throw new IllegalArgumentException("Recipe name is required and cannot be blank");
     }
@@ -17,7 +31,7 @@ public class Recipe {
       throw new IllegalArgumentException("Recipe must have at least one ingredient");
     }
     this.name = name;
-    this.ingredients = ingredients;
+    this.ingredients = List.copyOf(ingredients);
   }
 
   public UUID getId() {
@@ -28,16 +42,8 @@ public class Recipe {
     return name;
   }
 
-  public void setName(String name) {
-    this.name = name;
-  }
-
   public List<UUID> getIngredients() {
-    return new ArrayList<>(ingredients);
-  }
-
-  public void setIngredients(List<UUID> ingredients) {
-    this.ingredients = ingredients;
+    return ingredients;
   }
 
   @Override
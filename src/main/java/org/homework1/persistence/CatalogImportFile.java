@@ -0,0 +1,181 @@
+package org.homework1.persistence;
+
+import org.homework1.json.JsonReader;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Text file of ingredients and recipes to add to the catalog, one record per line. Recipes name
+ * their ingredients, which may be in the catalog already or earlier or later in the same file.
+ *
+ * <p>CSV ({@code .csv}): {@code ingredient,<name>} or {@code recipe,<name>,<ingredient>,...}.
+ * Fields may be quoted, with {@code ""} for a quote inside; an optional header line starts with
+ * {@code type}. Line-delimited JSON (any other extension):
+ * {@code {"type":"ingredient","name":...}} or {@code {"type":"recipe","name":...,"ingredients":[...]}}.
+ * Blank lines and lines starting with {@code #} are skipped in both.
+ *
+ * <p>Lines are read in batches of bounded size and parsed on their own, so callers can parse
+ * each batch in parallel without holding the whole file; a line that does not parse raises
+ * {@link IllegalArgumentException} for that line only.
+ */
+public final class CatalogImportFile {
+
+  public enum Format {
+    CSV, JSON_LINES;
+
+    public static Format of(Path file) {
+      return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv") ? CSV : JSON_LINES;
+    }
+  }
+
+  public enum Kind {
+    INGREDIENT, RECIPE
+  }
+
+  public record Line(long number, String text) {
+  }
+
+  public record Entry(long line, Kind kind, String name, List<String> ingredients) {
+  }
+
+  private CatalogImportFile() {
+  }
+
+  // Each batch is handed over before the next one is read; the last one may be shorter
+  public static void readBatches(Path file, int batchSize, Consumer<List<Line>> action) {
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("Batch size must be positive");
+    }
+    try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      List<Line> batch = new ArrayList<>(batchSize);
+      long number = 0;
+      String text;
+      while ((text = in.readLine()) != null) {
+        number++;
+        if (!text.isBlank() && !text.startsWith("#")) {
+          batch.add(new Line(number, text));
+          if (batch.size() == batchSize) {
+            action.accept(batch);
+            batch = new ArrayList<>(batchSize);
+          }
+        }
+      }
+      if (!batch.isEmpty()) {
+        action.accept(batch);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot read catalog import file " + file, e);
+    }
+  }
+
+  // Returns null for a CSV header line
+  public static Entry parse(Format format, Line line) {
+    Objects.requireNonNull(line, "Line cannot be null");
+    return format == Format.CSV ? parseCsv(line) : parseJson(line);
+  }
+
+  private static Entry parseCsv(Line line) {
+    final List<String> fields = splitCsv(line.text());
+    final String type = fields.get(0).trim();
+    if (type.equalsIgnoreCase("type")) {
+      return null;
+    }
+    final Kind kind = kind(type);
+    if (fields.size() < 2) {
+      throw new IllegalArgumentException("Record has no name");
+    }
+    if (kind == Kind.INGREDIENT && fields.size() > 2) {
+      throw new IllegalArgumentException("Ingredient record has more than a name");
+    }
+    return new Entry(line.number(), kind, fields.get(1), List.copyOf(fields.subList(2, fields.size())));
+  }
+
+  private static List<String> splitCsv(String text) {
+    final List<String> fields = new ArrayList<>();
+    final StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    for (int i = 0; i < text.length(); i++) {
+      final char c = text.charAt(i);
+      if (quoted) {
+        if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+          field.append('"');
+          i++;
+        } else if (c == '"') {
+          quoted = false;
+        } else {
+          field.append(c);
+        }
+      } else if (c == '"' && field.length() == 0) {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else {
+        field.append(c);
+      }
+    }
+    if (quoted) {
+      throw new IllegalArgumentException("Unterminated quoted field");
+    }
+    fields.add(field.toString());
+    return fields;
+  }
+
+  private static Entry parseJson(Line line) {
+    try {
+      final JsonReader json = new JsonReader(new StringReader(line.text()));
+      Kind kind = null;
+      String name = null;
+      List<String> ingredients = List.of();
+      json.beginObject();
+      while (json.hasNext()) {
+        switch (json.nextName()) {
+          case "type" -> kind = kind(json.nextString());
+          case "name" -> name = json.nextString();
+          case "ingredients" -> {
+            final List<String> names = new ArrayList<>();
+            json.beginArray();
+            while (json.hasNext()) {
+              names.add(json.nextString());
+            }
+            json.endArray();
+            ingredients = List.copyOf(names);
+          }
+          default -> json.skipValue();
+        }
+      }
+      json.endObject();
+      if (json.peek() != JsonReader.Token.END_DOCUMENT) {
+        throw new IllegalArgumentException("Expected one JSON object per line");
+      }
+      if (kind == null) {
+        throw new IllegalArgumentException("Record has no type");
+      }
+      if (name == null) {
+        throw new IllegalArgumentException("Record has no name");
+      }
+      if (kind == Kind.INGREDIENT && !ingredients.isEmpty()) {
+        throw new IllegalArgumentException("Ingredient record has more than a name");
+      }
+      return new Entry(line.number(), kind, name, ingredients);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static Kind kind(String type) {
+    return switch (type.trim().toLowerCase(Locale.ROOT)) {
+      case "ingredient" -> Kind.INGREDIENT;
+      case "recipe" -> Kind.RECIPE;
+      default -> throw new IllegalArgumentException("Unknown record type " + type);
+    };
+  }
+}
@@ -0,0 +1,58 @@
+package org.homework1.persistence;
+
+import org.homework1.constant.OrderStatus;
+import org.homework1.model.Order;
+import org.homework1.model.Pancake;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+final class NoOpOrderLog implements OrderLog {
+
+  static final NoOpOrderLog INSTANCE = new NoOpOrderLog();
+
+  private NoOpOrderLog() {
+  }
+
+  @Override
+  public void recover(Handler handler, SnapshotSource snapshotSource) {
+  }
+
+  @Override
+  public long appendCreate(Order order) {
+    return 0;
+  }
+
+  @Override
+  public long appendAddPancakes(UUID orderId, List<Pancake> pancakes) {
+    return 0;
+  }
+
+  @Override
+  public long appendRemovePancakes(UUID orderId, Set<UUID> pancakeIds) {
+    return 0;
+  }
+
+  @Override
+  public long appendStatus(UUID orderId, OrderStatus status, boolean express) {
+    return 0;
+  }
+
+  @Override
+  public long appendFinish(UUID orderId, OrderStatus status, long finishedAtMillis) {
+    return 0;
+  }
+
+  @Override
+  public void sync(long sequence) {
+  }
+
+  @Override
+  public void compact() {
+  }
+
+  @Override
+  public void close() {
+  }
+}
@@ -0,0 +1,79 @@
+package org.homework1.persistence;
+
+import org.homework1.constant.OrderStatus;
+import org.homework1.dto.OrderHistoryEntry;
+import org.homework1.model.Order;
+import org.homework1.model.Pancake;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Durable record of order changes. Every {@code append} call returns a sequence number that is
+ * passed to {@link #sync(long)} before the change is applied, so a change is never visible before
+ * it is durable. Callers changing different orders share one flush. If {@code sync} throws, the
+ * change must not be applied.
+ */
+public interface OrderLog extends Closeable {
+
+  /**
+   * Receives logged changes in their original order while the log is recovered.
+   */
+  interface Handler {
+    void onCreate(UUID orderId, int building, int room, long createdAtMillis);
+
+    void onAddPancake(UUID orderId, UUID pancakeId, List<UUID> ingredientIds, List<String> ingredientNames);
+
+    void onRemovePancakes(UUID orderId, Set<UUID> pancakeIds);
+
+    void onStatus(UUID orderId, OrderStatus status, boolean express);
+
+    void onFinish(UUID orderId, OrderStatus status, long finishedAtMillis);
+
+    /**
+     * Restores a finished order kept in history. Snapshots write these after the live orders, in
+     * the order the orders finished.
+     */
+    void onFinishedOrder(OrderHistoryEntry entry);
+  }
+
+  /**
+   * Supplies the orders for compaction. Each live order must be passed to the action while its
+   * monitor is held; finished orders are passed after all live ones, oldest first.
+   */
+  interface SnapshotSource {
+    void forEachOrder(Consumer<Order> action);
+
+    void forEachFinishedOrder(Consumer<OrderHistoryEntry> action);
+  }
+
+  static OrderLog none() {
+    return NoOpOrderLog.INSTANCE;
+  }
+
+  void recover(Handler handler, SnapshotSource snapshotSource);
+
+  long appendCreate(Order order);
+
+  long appendAddPancakes(UUID orderId, List<Pancake> pancakes);
+
+  long appendRemovePancakes(UUID orderId, Set<UUID> pancakeIds);
+
+  /**
+   * Logs a move to an open status; orders that are delivered or canceled are logged with
+   * {@link #appendFinish}.
+   */
+  long appendStatus(UUID orderId, OrderStatus status, boolean express);
+
+  long appendFinish(UUID orderId, OrderStatus status, long finishedAtMillis);
+
+  void sync(long sequence);
+
+  void compact();
+
+  @Override
+  void close();
+}
@@ -0,0 +1,139 @@
+package org.homework1.persistence;
+
+import org.homework1.model.Ingredient;
+import org.homework1.model.Recipe;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Versioned binary file holding the ingredient and recipe catalog with their IDs.
+ *
+ * <p>Layout: magic, version, ingredient count, {@code [id, name]} per ingredient, recipe count,
+ * {@code [id, name, ingredient count, ingredient ids]} per recipe, and a CRC32 of everything
+ * before it. Names are stored as a length-prefixed UTF-8 byte sequence.
+ */
+public final class RecipeCatalogSnapshot {
+
+  private static final int MAGIC = 0x52435053;
+  private static final int VERSION = 1;
+
+  public record Contents(List<Ingredient> ingredients, List<Recipe> recipes) {
+  }
+
+  private RecipeCatalogSnapshot() {
+  }
+
+  public static void write(Path file, Collection<Ingredient> ingredients, Collection<Recipe> recipes) {
+    final Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+    try (FileOutputStream fileOut = new FileOutputStream(temporary.toFile());
+         CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(fileOut), new CRC32());
+         DataOutputStream out = new DataOutputStream(checked)) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(ingredients.size());
+      for (Ingredient ingredient : ingredients) {
+        writeUuid(out, ingredient.getId());
+        writeName(out, ingredient.getName());
+      }
+      out.writeInt(recipes.size());
+      for (Recipe recipe : recipes) {
+        writeUuid(out, recipe.getId());
+        writeName(out, recipe.getName());
+        final List<UUID> recipeIngredients = recipe.getIngredients();
+        out.writeByte(recipeIngredients.size());
+        for (UUID ingredientId : recipeIngredients) {
+          writeUuid(out, ingredientId);
+        }
+      }
+      out.flush();
+      out.writeInt((int) checked.getChecksum().getValue());
+      out.flush();
+      fileOut.getFD().sync();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot write recipe catalog snapshot " + file, e);
+    }
+    try {
+      Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot write recipe catalog snapshot " + file, e);
+    }
+  }
+
+  public static Contents read(Path file) {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.limit() < 3 * Integer.BYTES || buffer.getInt() != MAGIC) {
+        throw new IllegalArgumentException("File " + file + " is not a recipe catalog snapshot");
+      }
+      final int version = buffer.getInt();
+      if (version != VERSION) {
+        throw new IllegalArgumentException("Unsupported recipe catalog snapshot version " + version);
+      }
+      verifyChecksum(buffer, file);
+      final int ingredientCount = buffer.getInt();
+      final List<Ingredient> ingredients = new ArrayList<>(ingredientCount);
+      for (int i = 0; i < ingredientCount; i++) {
+        ingredients.add(new Ingredient(readUuid(buffer), readName(buffer)));
+      }
+      final int recipeCount = buffer.getInt();
+      final List<Recipe> recipes = new ArrayList<>(recipeCount);
+      for (int i = 0; i < recipeCount; i++) {
+        final UUID id = readUuid(buffer);
+        final String name = readName(buffer);
+        final int size = buffer.get();
+        final List<UUID> recipeIngredients = new ArrayList<>(size);
+        for (int j = 0; j < size; j++) {
+          recipeIngredients.add(readUuid(buffer));
+        }
+        recipes.add(new Recipe(id, name, recipeIngredients));
+      }
+      return new Contents(ingredients, recipes);
+    } catch (BufferUnderflowException e) {
+      throw new IllegalArgumentException("Recipe catalog snapshot " + file + " is truncated", e);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot read recipe catalog snapshot " + file, e);
+    }
+  }
+
+  private static void verifyChecksum(MappedByteBuffer buffer, Path file) {
+    final int end = buffer.limit() - Integer.BYTES;
+    final CRC32 crc = new CRC32();
+    crc.update(buffer.duplicate().position(0).limit(end));
+    if ((int) crc.getValue() != buffer.getInt(end)) {
+      throw new IllegalArgumentException("Recipe catalog snapshot " + file + " is corrupt");
+    }
+    buffer.limit(end);
+  }
+
+  private static void writeUuid(DataOutputStream out, UUID id) throws IOException {
+    out.writeLong(id.getMostSignificantBits());
+    out.writeLong(id.getLeastSignificantBits());
+  }
+
+  private static UUID readUuid(MappedByteBuffer buffer) {
+    return new UUID(buffer.getLong(), buffer.getLong());
+  }
+
+  private static void writeName(DataOutputStream out, String name) throws IOException {
+    final byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+    out.writeShort(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readName(MappedByteBuffer buffer) {
+    final byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,601 @@
+package org.homework1.persistence;
+
+import org.homework1.constant.OrderStatus;
+import org.homework1.dto.OrderHistoryEntry;
+import org.homework1.model.Order;
+import org.homework1.model.Pancake;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only order log kept in memory-mapped files under one directory.
+ *
+ * <p>The log is split into generations. Each generation has a log file ({@code orders-N.wal})
+ * written through fixed-size mapped regions, and may start from a snapshot file
+ * ({@code orders-N.snapshot}) holding every order that was live when the generation began and
+ * every finished order still kept in history.
+ * Compaction starts a new generation, writes its snapshot and deletes the older files; recovery
+ * loads the latest snapshot and replays the logs from its generation on. Replay is idempotent,
+ * so changes that are in both a snapshot and the following log are applied safely twice.
+ *
+ * <p>Records are {@code [length][crc32][payload]} and never span regions; a zero length marks the
+ * unused end of a region. Replay stops at the first torn or corrupt record.
+ */
+public class WriteAheadOrderLog implements OrderLog {
+
+  public static final int DEFAULT_REGION_SIZE = 16 << 20;
+  public static final long DEFAULT_COMPACTION_THRESHOLD = 64L << 20;
+
+  private static final int MAGIC = 0x50434b45;
+  // Version 2 added creation times and the FINISH record, version 3 the FINISHED_ORDER snapshot record
+  private static final int VERSION = 3;
+  private static final int OLDEST_READABLE_VERSION = 2;
+  private static final int FILE_HEADER_SIZE = 12;
+  private static final int RECORD_HEADER_SIZE = 8;
+  private static final String LOG_SUFFIX = ".wal";
+  private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+  private static final byte CREATE = 1;
+  private static final byte ADD_PANCAKES = 2;
+  private static final byte REMOVE_PANCAKES = 3;
+  private static final byte STATUS = 4;
+  private static final byte FINISH = 5;
+  private static final byte FINISHED_ORDER = 6;
+
+  private final Path directory;
+  private final int regionSize;
+  private final long compactionThreshold;
+  private final Lock appendLock = new ReentrantLock();
+  private final Lock syncLock = new ReentrantLock();
+  // One compaction at a time, so an older snapshot is never written after a newer one deleted it
+  private final Lock compactionLock = new ReentrantLock();
+  private final AtomicLong durableSequence = new AtomicLong();
+  private final AtomicBoolean compacting = new AtomicBoolean();
+  // Set when a flush fails; the log then refuses all further work, see sync
+  private volatile RuntimeException failure;
+  private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+    final Thread thread = new Thread(runnable, "order-log-compactor");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  // Guarded by appendLock
+  private final List<MappedByteBuffer> unforcedRegions = new ArrayList<>();
+  private long sequence;
+  private long generation;
+  private FileChannel channel;
+  private MappedByteBuffer region;
+  private long regionOffset;
+  private long generationSize;
+
+  private SnapshotSource snapshotSource;
+
+  public WriteAheadOrderLog(Path directory) {
+    this(directory, DEFAULT_REGION_SIZE, DEFAULT_COMPACTION_THRESHOLD);
+  }
+
+  public WriteAheadOrderLog(Path directory, int regionSize, long compactionThreshold) {
+    this.directory = Objects.requireNonNull(directory, "Directory cannot be null");
+    if (regionSize <= FILE_HEADER_SIZE + RECORD_HEADER_SIZE) {
+      throw new IllegalArgumentException("Region size is too small");
+    }
+    if (compactionThreshold <= 0) {
+      throw new IllegalArgumentException("Compaction threshold must be positive");
+    }
+    this.regionSize = regionSize;
+    this.compactionThreshold = compactionThreshold;
+  }
+
+  @Override
+  public void recover(Handler handler, SnapshotSource snapshotSource) {
+    Objects.requireNonNull(handler, "Handler cannot be null");
+    this.snapshotSource = Objects.requireNonNull(snapshotSource, "Snapshot source cannot be null");
+    try {
+      Files.createDirectories(directory);
+      final long snapshotGeneration = latestGeneration(SNAPSHOT_SUFFIX);
+      if (snapshotGeneration >= 0) {
+        replay(file(snapshotGeneration, SNAPSHOT_SUFFIX), handler);
+      }
+      for (long logGeneration : generations(LOG_SUFFIX)) {
+        if (logGeneration >= snapshotGeneration) {
+          replay(file(logGeneration, LOG_SUFFIX), handler);
+        }
+      }
+      generation = Math.max(snapshotGeneration, latestGeneration(LOG_SUFFIX));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot recover order log from " + directory, e);
+    }
+    // Start every run from a fresh snapshot so the next recovery replays as little as possible
+    compact();
+  }
+
+  @Override
+  public long appendCreate(Order order) {
+    return append(encodeCreate(order));
+  }
+
+  @Override
+  public long appendAddPancakes(UUID orderId, List<Pancake> pancakes) {
+    return append(encodeAddPancakes(orderId, pancakes));
+  }
+
+  @Override
+  public long appendRemovePancakes(UUID orderId, Set<UUID> pancakeIds) {
+    return append(encode(out -> {
+      out.writeByte(REMOVE_PANCAKES);
+      writeUuid(out, orderId);
+      out.writeInt(pancakeIds.size());
+      for (UUID pancakeId : pancakeIds) {
+        writeUuid(out, pancakeId);
+      }
+    }));
+  }
+
+  @Override
+  public long appendStatus(UUID orderId, OrderStatus status, boolean express) {
+    if (status.isTerminal()) {
+      throw new IllegalArgumentException("Finished orders must be logged with appendFinish");
+    }
+    return append(encodeStatus(orderId, status, express));
+  }
+
+  @Override
+  public long appendFinish(UUID orderId, OrderStatus status, long finishedAtMillis) {
+    if (!status.isTerminal()) {
+      throw new IllegalArgumentException("Only delivered or canceled orders can be finished");
+    }
+    return append(encode(out -> {
+      out.writeByte(FINISH);
+      writeUuid(out, orderId);
+      out.writeByte(statusCode(status));
+      out.writeLong(finishedAtMillis);
+    }));
+  }
+
+  private long append(byte[] payload) {
+    if (RECORD_HEADER_SIZE + payload.length > regionSize - FILE_HEADER_SIZE) {
+      throw new IllegalArgumentException("Log record is too large");
+    }
+    final CRC32 crc = new CRC32();
+    crc.update(payload);
+    final boolean compactionDue;
+    final long appended;
+    appendLock.lock();
+    try {
+      checkNotFailed();
+      if (region == null) {
+        throw new IllegalStateException("Order log is not open");
+      }
+      if (region.remaining() < RECORD_HEADER_SIZE + payload.length) {
+        nextRegion();
+      }
+      region.putInt(payload.length);
+      region.putInt((int) crc.getValue());
+      region.put(payload);
+      generationSize += RECORD_HEADER_SIZE + payload.length;
+      appended = ++sequence;
+      compactionDue = generationSize >= compactionThreshold;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot append to order log", e);
+    } finally {
+      appendLock.unlock();
+    }
+    if (compactionDue && compacting.compareAndSet(false, true)) {
+      compactor.execute(() -> {
+        try {
+          compact();
+        } finally {
+          compacting.set(false);
+        }
+      });
+    }
+    return appended;
+  }
+
+  // Group commit: whoever holds syncLock flushes everything appended so far, so threads queued
+  // behind it usually find their records already durable. A failed flush may still have written
+  // some of the pages, and the OS may write the rest later, so the log stops here: the records
+  // not known to be durable are reported as failed to every caller waiting on them, and nothing
+  // is appended after them.
+  @Override
+  public void sync(long sequence) {
+    if (durableSequence.get() >= sequence) {
+      return;
+    }
+    syncLock.lock();
+    try {
+      if (durableSequence.get() >= sequence) {
+        return;
+      }
+      checkNotFailed();
+      final long target;
+      final List<MappedByteBuffer> regions;
+      appendLock.lock();
+      try {
+        target = this.sequence;
+        regions = new ArrayList<>(unforcedRegions);
+        unforcedRegions.clear();
+        if (region != null) {
+          regions.add(region);
+        }
+      } finally {
+        appendLock.unlock();
+      }
+      force(regions);
+      durableSequence.accumulateAndGet(target, Math::max);
+    } finally {
+      syncLock.unlock();
+    }
+  }
+
+  private void force(List<MappedByteBuffer> regions) {
+    try {
+      regions.forEach(MappedByteBuffer::force);
+    } catch (RuntimeException e) {
+      failure = e;
+      throw e;
+    }
+  }
+
+  private void checkNotFailed() {
+    final RuntimeException failed = failure;
+    if (failed != null) {
+      throw new IllegalStateException("Order log failed to sync and no longer accepts changes", failed);
+    }
+  }
+
+  @Override
+  public void compact() {
+    compactionLock.lock();
+    try {
+      final long snapshotGeneration;
+      appendLock.lock();
+      try {
+        checkNotFailed();
+        snapshotGeneration = generation + 1;
+        openGeneration(snapshotGeneration);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Cannot start order log generation", e);
+      } finally {
+        appendLock.unlock();
+      }
+      try {
+        writeSnapshot(snapshotGeneration);
+        deleteGenerationsBefore(snapshotGeneration);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Cannot compact order log", e);
+      }
+    } finally {
+      compactionLock.unlock();
+    }
+  }
+
+  @Override
+  public void close() {
+    compactor.shutdown();
+    try {
+      compactor.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    appendLock.lock();
+    try {
+      closeGeneration();
+      region = null;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot close order log", e);
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  private void openGeneration(long newGeneration) throws IOException {
+    closeGeneration();
+    generation = newGeneration;
+    channel = FileChannel.open(file(newGeneration, LOG_SUFFIX),
+        StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    regionOffset = 0;
+    generationSize = 0;
+    region = channel.map(FileChannel.MapMode.READ_WRITE, 0, regionSize);
+    writeFileHeader(region, regionSize);
+  }
+
+  private void closeGeneration() throws IOException {
+    if (channel == null) {
+      return;
+    }
+    unforcedRegions.add(region);
+    force(unforcedRegions);
+    unforcedRegions.clear();
+    durableSequence.accumulateAndGet(sequence, Math::max);
+    channel.close();
+    channel = null;
+  }
+
+  private void nextRegion() throws IOException {
+    if (region.remaining() >= Integer.BYTES) {
+      region.putInt(0);
+    }
+    unforcedRegions.add(region);
+    regionOffset += regionSize;
+    region = channel.map(FileChannel.MapMode.READ_WRITE, regionOffset, regionSize);
+  }
+
+  private void writeSnapshot(long snapshotGeneration) throws IOException {
+    final Path temporary = directory.resolve("orders-" + snapshotGeneration + SNAPSHOT_SUFFIX + ".tmp");
+    try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+         DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(0);
+      final IOException[] failure = new IOException[1];
+      snapshotSource.forEachOrder(order -> {
+        if (failure[0] != null) {
+          return;
+        }
+        try {
+          writeRecord(out, encodeCreate(order));
+          final List<Pancake> pancakes = order.getPancakes();
+          if (!pancakes.isEmpty()) {
+            writeRecord(out, encodeAddPancakes(order.getId(), pancakes));
+          }
+          if (order.getStatus() != OrderStatus.DRAFT) {
+            writeRecord(out, encodeStatus(order.getId(), order.getStatus(), order.isExpress()));
+          }
+        } catch (IOException e) {
+          failure[0] = e;
+        }
+      });
+      // After the live orders, so an order that finished while they were read ends up finished
+      snapshotSource.forEachFinishedOrder(entry -> {
+        if (failure[0] != null) {
+          return;
+        }
+        try {
+          writeRecord(out, encodeFinishedOrder(entry));
+        } catch (IOException e) {
+          failure[0] = e;
+        }
+      });
+      if (failure[0] != null) {
+        throw failure[0];
+      }
+      out.flush();
+      file.getFD().sync();
+    }
+    Files.move(temporary, file(snapshotGeneration, SNAPSHOT_SUFFIX),
+        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private void deleteGenerationsBefore(long keptGeneration) throws IOException {
+    for (String suffix : List.of(LOG_SUFFIX, SNAPSHOT_SUFFIX)) {
+      for (long oldGeneration : generations(suffix)) {
+        if (oldGeneration < keptGeneration) {
+          Files.deleteIfExists(file(oldGeneration, suffix));
+        }
+      }
+    }
+  }
+
+  private void replay(Path path, Handler handler) throws IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+      final int magic = in.readInt();
+      final int version = in.readInt();
+      if (magic != MAGIC || version < OLDEST_READABLE_VERSION || version > VERSION) {
+        throw new IOException("Unsupported order log file " + path);
+      }
+      final int fileRegionSize = in.readInt();
+      long position = FILE_HEADER_SIZE;
+      while (true) {
+        final long regionRemaining = fileRegionSize > 0 ? fileRegionSize - position % fileRegionSize : Long.MAX_VALUE;
+        if (regionRemaining < RECORD_HEADER_SIZE) {
+          position += skip(in, regionRemaining);
+          continue;
+        }
+        final int length = in.readInt();
+        if (length == 0 && fileRegionSize > 0) {
+          position += Integer.BYTES + skip(in, regionRemaining - Integer.BYTES);
+          continue;
+        }
+        if (length <= 0 || length > regionRemaining - RECORD_HEADER_SIZE) {
+          return;
+        }
+        final int checksum = in.readInt();
+        final byte[] payload = new byte[length];
+        in.readFully(payload);
+        final CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != checksum) {
+          return;
+        }
+        decode(payload, handler);
+        position += RECORD_HEADER_SIZE + length;
+      }
+    } catch (EOFException e) {
+      // End of the log, or a record torn by a crash
+    }
+  }
+
+  private static long skip(DataInputStream in, long bytes) throws IOException {
+    in.skipNBytes(bytes);
+    return bytes;
+  }
+
+  private static void decode(byte[] payload, Handler handler) throws IOException {
+    final DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+    final byte type = in.readByte();
+    final UUID orderId = readUuid(in);
+    switch (type) {
+      case CREATE -> handler.onCreate(orderId, in.readInt(), in.readInt(), in.readLong());
+      case ADD_PANCAKES -> {
+        final int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+          final UUID pancakeId = readUuid(in);
+          final int ingredientCount = in.readInt();
+          final List<UUID> ingredientIds = new ArrayList<>(ingredientCount);
+          final List<String> ingredientNames = new ArrayList<>(ingredientCount);
+          for (int j = 0; j < ingredientCount; j++) {
+            ingredientIds.add(readUuid(in));
+            ingredientNames.add(in.readUTF());
+          }
+          handler.onAddPancake(orderId, pancakeId, ingredientIds, ingredientNames);
+        }
+      }
+      case REMOVE_PANCAKES -> {
+        final int count = in.readInt();
+        final Set<UUID> pancakeIds = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+          pancakeIds.add(readUuid(in));
+        }
+        handler.onRemovePancakes(orderId, pancakeIds);
+      }
+      case STATUS -> handler.onStatus(orderId, status(in.readByte()), in.readBoolean());
+      case FINISH -> handler.onFinish(orderId, status(in.readByte()), in.readLong());
+      case FINISHED_ORDER -> handler.onFinishedOrder(new OrderHistoryEntry(orderId, in.readInt(), in.readInt(),
+          status(in.readByte()), in.readInt(), in.readLong(), in.readLong()));
+      default -> throw new IOException("Unknown order log record type " + type);
+    }
+  }
+
+  private interface RecordWriter {
+    void write(DataOutputStream out) throws IOException;
+  }
+
+  private static byte[] encode(RecordWriter writer) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      writer.write(out);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static byte[] encodeCreate(Order order) {
+    return encode(out -> {
+      out.writeByte(CREATE);
+      writeUuid(out, order.getId());
+      out.writeInt(order.getBuilding());
+      out.writeInt(order.getRoom());
+      out.writeLong(order.getCreatedAtMillis());
+    });
+  }
+
+  private static byte[] encodeAddPancakes(UUID orderId, List<Pancake> pancakes) {
+    return encode(out -> {
+      out.writeByte(ADD_PANCAKES);
+      writeUuid(out, orderId);
+      out.writeInt(pancakes.size());
+      for (Pancake pancake : pancakes) {
+        writeUuid(out, pancake.getId());
+        final List<UUID> ingredientIds = pancake.getIngredientSet().ingredientIds();
+        final List<String> ingredientNames = pancake.getIngredientSet().ingredientNames();
+        out.writeInt(ingredientIds.size());
+        for (int i = 0; i < ingredientIds.size(); i++) {
+          writeUuid(out, ingredientIds.get(i));
+          out.writeUTF(ingredientNames.get(i));
+        }
+      }
+    });
+  }
+
+  private static byte[] encodeStatus(UUID orderId, OrderStatus status, boolean express) {
+    return encode(out -> {
+      out.writeByte(STATUS);
+      writeUuid(out, orderId);
+      out.writeByte(statusCode(status));
+      out.writeBoolean(express);
+    });
+  }
+
+  private static byte[] encodeFinishedOrder(OrderHistoryEntry entry) {
+    return encode(out -> {
+      out.writeByte(FINISHED_ORDER);
+      writeUuid(out, entry.orderId());
+      out.writeInt(entry.building());
+      out.writeInt(entry.room());
+      out.writeByte(statusCode(entry.status()));
+      out.writeInt(entry.pancakeCount());
+      out.writeLong(entry.createdAtMillis());
+      out.writeLong(entry.finishedAtMillis());
+    });
+  }
+
+  // Fixed codes rather than ordinals, so reordering OrderStatus never changes what old logs mean
+  private static int statusCode(OrderStatus status) {
+    return switch (status) {
+      case DRAFT -> 0;
+      case COMPLETED -> 1;
+      case PREPARED -> 2;
+      case CANCELED -> 3;
+      case DELIVERED -> 4;
+    };
+  }
+
+  private static OrderStatus status(byte code) throws IOException {
+    return switch (code) {
+      case 0 -> OrderStatus.DRAFT;
+      case 1 -> OrderStatus.COMPLETED;
+      case 2 -> OrderStatus.PREPARED;
+      case 3 -> OrderStatus.CANCELED;
+      case 4 -> OrderStatus.DELIVERED;
+      default -> throw new IOException("Unknown order status code " + code);
+    };
+  }
+
+  private static void writeRecord(DataOutputStream out, byte[] payload) throws IOException {
+    final CRC32 crc = new CRC32();
+    crc.update(payload);
+    out.writeInt(payload.length);
+    out.writeInt((int) crc.getValue());
+    out.write(payload);
+  }
+
+  private static void writeFileHeader(MappedByteBuffer buffer, int fileRegionSize) {
+    buffer.putInt(MAGIC);
+    buffer.putInt(VERSION);
+    buffer.putInt(fileRegionSize);
+  }
+
+  private static void writeUuid(DataOutputStream out, UUID id) throws IOException {
+    out.writeLong(id.getMostSignificantBits());
+    out.writeLong(id.getLeastSignificantBits());
+  }
+
+  private static UUID readUuid(DataInputStream in) throws IOException {
+    return new UUID(in.readLong(), in.readLong());
+  }
+
+  private Path file(long fileGeneration, String suffix) {
+    return directory.resolve("orders-" + fileGeneration + suffix);
+  }
+
+  private long latestGeneration(String suffix) throws IOException {
+    final List<Long> found = generations(suffix);
+    return found.isEmpty() ? -1 : found.get(found.size() - 1);
+  }
+
+  private List<Long> generations(String suffix) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+          .map(path -> path.getFileName().toString())
+          .filter(name -> name.startsWith("orders-") && name.endsWith(suffix))
+          .map(name -> Long.parseLong(name.substring("orders-".length(), name.length() - suffix.length())))
+          .sorted()
+          .toList();
+    }
+  }
+}
@@ -0,0 +1,239 @@
+package org.homework1.service;
+
+import org.homework1.constant.OrderStatus;
+import org.homework1.dto.DeliveryRun;
+import org.homework1.dto.OrderHistoryEntry;
+import org.homework1.dto.OrderIdPage;
+import org.homework1.dto.PancakeSpec;
+import org.homework1.model.Pancake;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking facade over {@link OrderService}. Every call runs on the executor and returns a
+ * future; calls that change an order are chained per order, so they run one at a time and in
+ * submission order without any thread waiting on a lock for its turn.
+ */
+public class AsyncOrderService implements AutoCloseable {
+
+  private final OrderService orderService;
+  private final ExecutorService executor;
+  private final boolean ownsExecutor;
+  // Last queued mutation per order; removed again once it is the last one to finish
+  private final Map<UUID, CompletableFuture<?>> tails = new ConcurrentHashMap<>();
+
+  public AsyncOrderService(OrderService orderService) {
+    this(orderService, defaultExecutor(), true);
+  }
+
+  public AsyncOrderService(OrderService orderService, ExecutorService executor) {
+    this(orderService, executor, false);
+  }
+
+  private AsyncOrderService(OrderService orderService, ExecutorService executor, boolean ownsExecutor) {
+    this.orderService = Objects.requireNonNull(orderService, "Order service cannot be null");
+    this.executor = Objects.requireNonNull(executor, "Executor cannot be null");
+    this.ownsExecutor = ownsExecutor;
+  }
+
+  /**
+   * A virtual-thread-per-task executor when the runtime has one, otherwise a cached pool of
+   * daemon threads.
+   */
+  public static ExecutorService defaultExecutor() {
+    try {
+      return (ExecutorService) MethodHandles.publicLookup()
+          .findStatic(Executors.class, "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class))
+          .invoke();
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      final AtomicInteger threadNumber = new AtomicInteger();
+      return Executors.newCachedThreadPool(runnable -> {
+        final Thread thread = new Thread(runnable, "order-async-" + threadNumber.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    } catch (Throwable e) {
+      throw new IllegalStateException("Could not create the default executor", e);
+    }
+  }
+
+  public CompletableFuture<UUID> createOrder(int buildingNumber, int roomNumber) {
+    return submit(() -> orderService.createOrder(buildingNumber, roomNumber));
+  }
+
+  public CompletableFuture<Void> cancelOrder(UUID orderId) {
+    return serialize(orderId, () -> orderService.cancelOrder(orderId));
+  }
+
+  public CompletableFuture<Void> completeOrder(UUID orderId) {
+    return completeOrder(orderId, false);
+  }
+
+  public CompletableFuture<Void> completeOrder(UUID orderId, boolean express) {
+    return serialize(orderId, () -> orderService.completeOrder(orderId, express));
+  }
+
+  public CompletableFuture<Void> prepareOrder(UUID orderId) {
+    return serialize(orderId, () -> orderService.prepareOrder(orderId));
+  }
+
+  public CompletableFuture<Void> deliverOrder(UUID orderId) {
+    return serialize(orderId, () -> orderService.deliverOrder(orderId));
+  }
+
+  public CompletableFuture<List<DeliveryRun>> planDeliveryRuns(int maxOrdersPerRun) {
+    return submit(() -> orderService.planDeliveryRuns(maxOrdersPerRun));
+  }
+
+  public CompletableFuture<Optional<DeliveryRun>> claimDeliveryRun(int maxOrdersPerRun) {
+    return submit(() -> orderService.claimDeliveryRun(maxOrdersPerRun));
+  }
+
+  public CompletableFuture<DeliveryRun> claimDeliveryRun(int buildingNumber, int maxOrdersPerRun) {
+    return submit(() -> orderService.claimDeliveryRun(buildingNumber, maxOrdersPerRun));
+  }
+
+  public CompletableFuture<Void> deliverRun(DeliveryRun run) {
+    return submit(() -> {
+      orderService.deliverRun(run);
+      return null;
+    });
+  }
+
+  public CompletableFuture<Void> addPancake(UUID orderId, UUID recipeId) {
+    return serialize(orderId, () -> orderService.addPancake(orderId, recipeId));
+  }
+
+  public CompletableFuture<Void> addPancake(UUID orderId, List<UUID> ingredients) {
+    return serialize(orderId, () -> orderService.addPancake(orderId, ingredients));
+  }
+
+  public CompletableFuture<Void> addPancakes(UUID orderId, UUID recipeId, int count) {
+    return serialize(orderId, () -> orderService.addPancakes(orderId, recipeId, count));
+  }
+
+  public CompletableFuture<Void> addPancakes(UUID orderId, List<PancakeSpec> pancakes) {
+    return serialize(orderId, () -> orderService.addPancakes(orderId, pancakes));
+  }
+
+  public CompletableFuture<Void> removePancakes(UUID orderId, Set<UUID> pancakeIds) {
+    return serialize(orderId, () -> orderService.removePancakes(orderId, pancakeIds));
+  }
+
+  public CompletableFuture<Void> compactLog() {
+    return submit(() -> {
+      orderService.compactLog();
+      return null;
+    });
+  }
+
+  public CompletableFuture<List<String>> viewOrder(UUID orderId) {
+    return submit(() -> orderService.viewOrder(orderId));
+  }
+
+  public CompletableFuture<OrderStatus> getOrderStatus(UUID orderId) {
+    return submit(() -> orderService.getOrderStatus(orderId));
+  }
+
+  public CompletableFuture<Optional<OrderHistoryEntry>> findFinishedOrder(UUID orderId) {
+    return submit(() -> orderService.findFinishedOrder(orderId));
+  }
+
+  public CompletableFuture<List<Pancake>> getPancakes(UUID orderId) {
+    return submit(() -> orderService.getPancakes(orderId));
+  }
+
+  public CompletableFuture<Set<UUID>> listCompletedOrders() {
+    return submit(orderService::listCompletedOrders);
+  }
+
+  public CompletableFuture<Set<UUID>> listPreparedOrders() {
+    return submit(orderService::listPreparedOrders);
+  }
+
+  public CompletableFuture<OrderIdPage> listCompletedOrders(String cursor, int limit) {
+    return submit(() -> orderService.listCompletedOrders(cursor, limit));
+  }
+
+  public CompletableFuture<OrderIdPage> listPreparedOrders(String cursor, int limit) {
+    return submit(() -> orderService.listPreparedOrders(cursor, limit));
+  }
+
+  public CompletableFuture<Map<OrderStatus, Long>> countByStatus() {
+    return submit(orderService::countByStatus);
+  }
+
+  public CompletableFuture<UUID> takeNextToPrepare() {
+    return submit(orderService::takeNextToPrepare);
+  }
+
+  public CompletableFuture<List<UUID>> drainToPrepare(int max) {
+    return submit(() -> orderService.drainToPrepare(max));
+  }
+
+  public CompletableFuture<UUID> takeNextToDeliver() {
+    return submit(orderService::takeNextToDeliver);
+  }
+
+  public CompletableFuture<List<UUID>> drainToDeliver(int max) {
+    return submit(() -> orderService.drainToDeliver(max));
+  }
+
+  @Override
+  public void close() {
+    if (ownsExecutor) {
+      executor.shutdown();
+    }
+  }
+
+  private <T> CompletableFuture<T> submit(Callable<T> call) {
+    return CompletableFuture.supplyAsync(() -> call(call), executor);
+  }
+
+  private CompletableFuture<Void> serialize(UUID orderId, Runnable mutation) {
+    Objects.requireNonNull(orderId, "Order ID cannot be null");
+    final CompletableFuture<Void> result = new CompletableFuture<>();
+    final CompletableFuture<?> previous = tails.put(orderId, result);
+    final CompletableFuture<?> ready = previous == null ? CompletableFuture.completedFuture(null) : previous;
+    // The mutation runs only after the previous one has finished, whatever its outcome
+    ready.whenCompleteAsync((ignored, failure) -> {
+      try {
+        mutation.run();
+        result.complete(null);
+      } catch (Throwable e) {
+        result.completeExceptionally(e);
+      } finally {
+        tails.remove(orderId, result);
+      }
+    }, executor).exceptionally(rejected -> {
+      result.completeExceptionally(rejected);
+      tails.remove(orderId, result);
+      return null;
+    });
+    return result;
+  }
+
+  private static <T> T call(Callable<T> call) {
+    try {
+      return call.call();
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new CompletionException(e);
+    }
+  }
+}
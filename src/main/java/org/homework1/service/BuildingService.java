@@ -1,76 +1,121 @@
 package org.homework1.service;
 
 import org.homework1.constant.ValidationConstants;
+import org.homework1.exception.NotFoundException;
+import org.homework1.metrics.LatencyHistogram;
+import org.homework1.metrics.MetricsRegistry;
 import org.homework1.model.Building;
 import org.homework1.util.IntegerRange;
 
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class BuildingService {
 
-  private final Map<Integer, Building> buildings = new HashMap<>();
-  private final ReadWriteLock lock = new ReentrantReadWriteLock();
-  private final Lock readLock = lock.readLock();
-  private final Lock writeLock = lock.writeLock();
+  // Indexed by building number. Writers publish a modified copy so readers need no lock.
+  private volatile Building[] buildings = new Building[ValidationConstants.MAX_BUILDING_NUMBER + 1];
+  private final Lock writeLock;
+  private final MetricsRegistry metrics;
+  private final LatencyHistogram addBuildingLatency;
+  private final LatencyHistogram removeBuildingLatency;
+  private final LatencyHistogram getBuildingLatency;
+  private final LatencyHistogram checkRoomLatency;
+
+  public BuildingService() {
+    this(new MetricsRegistry());
+  }
+
+  public BuildingService(MetricsRegistry metrics) {
+    this.metrics = Objects.requireNonNull(metrics, "Metrics registry cannot be null");
+    writeLock = metrics.instrument("BuildingService.writeLock", new ReentrantLock());
+    addBuildingLatency = metrics.latency("BuildingService.addBuilding");
+    removeBuildingLatency = metrics.latency("BuildingService.removeBuilding");
+    getBuildingLatency = metrics.latency("BuildingService.getBuilding");
+    checkRoomLatency = metrics.latency("BuildingService.checkRoom");
+  }
+
+  public MetricsRegistry getMetrics() {
+    return metrics;
+  }
 
   public void addBuilding(int buildingNumber, IntegerRange... roomRanges) {
-    writeLock.lock();
+    final long start = System.nanoTime();
     try {
-      addBuildingInternal(buildingNumber, roomRanges);
+      writeLock.lock();
+      try {
+        addBuildingInternal(buildingNumber, roomRanges);
+      } finally {
+        writeLock.unlock();
+      }
     } finally {
-      writeLock.unlock();
+      addBuildingLatency.recordSince(start);
     }
   }
 
   private void addBuildingInternal(int buildingNumber, IntegerRange... roomRanges) {
     validateBuildingNumber(buildingNumber);
     validateRoomRanges(roomRanges);
-    buildings.put(buildingNumber, new Building(buildingNumber, Arrays.asList(roomRanges)));
+    publish(buildingNumber, new Building(buildingNumber, Arrays.asList(roomRanges)));
   }
 
   public void removeBuilding(int buildingNumber) {
-    writeLock.lock();
+    final long start = System.nanoTime();
     try {
-      removeBuildingInternal(buildingNumber);
+      writeLock.lock();
+      try {
+        removeBuildingInternal(buildingNumber);
+      } finally {
+        writeLock.unlock();
+      }
     } finally {
-      writeLock.unlock();
+      removeBuildingLatency.recordSince(start);
     }
   }
 
   private void removeBuildingInternal(int buildingNumber) {
-    final Building removed = buildings.remove(buildingNumber);
-    if (removed == null) {
-      throw new IllegalArgumentException("Building not found");
+    if (findBuilding(buildingNumber) == null) {
+      throw new NotFoundException("Building not found");
     }
+    publish(buildingNumber, null);
+  }
+
+  private void publish(int buildingNumber, Building building) {
+    final Building[] next = buildings.clone();
+    next[buildingNumber] = building;
+    buildings = next;
   }
 
   public Building getBuilding(int buildingNumber) {
-    readLock.lock();
+    final long start = System.nanoTime();
     try {
-      return buildings.get(buildingNumber);
+      return findBuilding(buildingNumber);
     } finally {
-      readLock.unlock();
+      getBuildingLatency.recordSince(start);
+    }
+  }
+
+  private Building findBuilding(int buildingNumber) {
+    final Building[] snapshot = buildings;
+    if (buildingNumber < 0 || buildingNumber >= snapshot.length) {
+      return null;
     }
+    return snapshot[buildingNumber];
   }
 
   public void checkRoom(int buildingNumber, int roomNumber) {
-    readLock.lock();
-    Building building;
+    final long start = System.nanoTime();
     try {
-      building = buildings.get(buildingNumber);
+      final Building building = findBuilding(buildingNumber);
+      if (building == null) {
+        throw new NotFoundException("Building not found");
+      }
+      if (!building.hasRoom(roomNumber)) {
+        throw new NotFoundException("Room not found");
+      }
     } finally {
-      readLock.unlock();
-    }
-    if (building == null) {
-      throw new IllegalArgumentException("Building not found");
-    }
-    if (!building.hasRoom(roomNumber)) {
-      throw new IllegalArgumentException("Room not found");
+      checkRoomLatency.recordSince(start);
     }
   }
 
@@ -81,7 +126,7 @@ public class BuildingService {
     if (buildingNumber > ValidationConstants.MAX_BUILDING_NUMBER) {
       throw new IllegalArgumentException("Building number must be less than or equal to " + ValidationConstants.MAX_BUILDING_NUMBER);
     }
-    if (buildings.containsKey(buildingNumber)) {
+    if (buildings[buildingNumber] != null) {
       throw new IllegalArgumentException("Building with the same number already exists");
     }
   }
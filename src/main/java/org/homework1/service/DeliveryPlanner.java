@@ -0,0 +1,102 @@
+package org.homework1.service;
+
+import org.homework1.dto.DeliveryRun;
+import org.homework1.dto.DeliveryStop;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Prepared orders waiting for a courier, grouped by building and sorted by room. An order is
+ * claimed by whoever removes it from {@code stopsByOrder} first, so a stop is handed out once
+ * whether it is claimed as part of a run or on its own.
+ */
+class DeliveryPlanner {
+
+  private static final Comparator<DeliveryStop> BY_ROOM = Comparator
+      .comparingInt(DeliveryStop::room)
+      .thenComparing(DeliveryStop::orderId);
+
+  private record BuildingStops(ConcurrentSkipListSet<DeliveryStop> stops, AtomicInteger size) {
+    BuildingStops() {
+      this(new ConcurrentSkipListSet<>(BY_ROOM), new AtomicInteger());
+    }
+  }
+
+  private record Entry(int building, DeliveryStop stop) {
+  }
+
+  private final Map<UUID, Entry> stopsByOrder = new ConcurrentHashMap<>();
+  private final Map<Integer, BuildingStops> stopsByBuilding = new ConcurrentHashMap<>();
+
+  void add(UUID orderId, int building, int room) {
+    final DeliveryStop stop = new DeliveryStop(orderId, room);
+    final BuildingStops buildingStops = stopsByBuilding.computeIfAbsent(building, key -> new BuildingStops());
+    stopsByOrder.put(orderId, new Entry(building, stop));
+    buildingStops.stops().add(stop);
+    buildingStops.size().incrementAndGet();
+  }
+
+  boolean claim(UUID orderId) {
+    final Entry entry = stopsByOrder.remove(orderId);
+    if (entry == null) {
+      return false;
+    }
+    final BuildingStops buildingStops = stopsByBuilding.get(entry.building());
+    buildingStops.stops().remove(entry.stop());
+    buildingStops.size().decrementAndGet();
+    return true;
+  }
+
+  DeliveryRun claimRun(int building, int maxOrders) {
+    final BuildingStops buildingStops = stopsByBuilding.get(building);
+    final List<DeliveryStop> stops = new ArrayList<>();
+    if (buildingStops == null) {
+      return new DeliveryRun(building, stops);
+    }
+    while (stops.size() < maxOrders) {
+      final DeliveryStop stop = buildingStops.stops().pollFirst();
+      if (stop == null) {
+        break;
+      }
+      if (stopsByOrder.remove(stop.orderId()) != null) {
+        buildingStops.size().decrementAndGet();
+        stops.add(stop);
+      }
+    }
+    return new DeliveryRun(building, stops);
+  }
+
+  OptionalInt busiestBuilding() {
+    int busiest = 0;
+    int busiestSize = 0;
+    for (Map.Entry<Integer, BuildingStops> entry : stopsByBuilding.entrySet()) {
+      final int size = entry.getValue().size().get();
+      if (size > busiestSize) {
+        busiest = entry.getKey();
+        busiestSize = size;
+      }
+    }
+    return busiestSize > 0 ? OptionalInt.of(busiest) : OptionalInt.empty();
+  }
+
+  List<DeliveryRun> plan(int maxOrdersPerRun) {
+    final List<DeliveryRun> runs = new ArrayList<>();
+    new TreeMap<>(stopsByBuilding).forEach((building, buildingStops) -> {
+      List<DeliveryStop> run = new ArrayList<>();
+      for (DeliveryStop stop : buildingStops.stops()) {
+        run.add(stop);
+        if (run.size() == maxOrdersPerRun) {
+          runs.add(new DeliveryRun(building, run));
+          run = new ArrayList<>();
+        }
+      }
+      if (!run.isEmpty()) {
+        runs.add(new DeliveryRun(building, run));
+      }
+    });
+    return runs;
+  }
+}
@@ -0,0 +1,161 @@
+package org.homework1.service;
+
+import org.homework1.dto.StockLevel;
+import org.homework1.model.IngredientSet;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Units of each ingredient on hand, split into those still available and those reserved by
+ * draft orders. Every ingredient has its own pair of atomic counters, so reservations for
+ * different ingredients never contend and none of them needs the recipe lock. Ingredients that
+ * were never given a stock level are not tracked and never run out.
+ *
+ * <p>Each pancake keeps the {@link Reservation} it was given, and exactly those units are handed
+ * back or used up later. Pancakes added while an ingredient was untracked, or recovered from the
+ * order log, hold nothing and so never take units another order reserved.
+ */
+class IngredientStock {
+
+  private static final class Counter {
+    final UUID ingredientId;
+    final AtomicLong available = new AtomicLong();
+    final AtomicLong reserved = new AtomicLong();
+
+    Counter(UUID ingredientId) {
+      this.ingredientId = ingredientId;
+    }
+  }
+
+  /**
+   * One unit of every tracked ingredient in a pancake, held against the counter that was current
+   * when it was reserved, so a stock level that is removed and set again is not credited with
+   * units it never lent out.
+   */
+  static final class Reservation {
+
+    static final Reservation NONE = new Reservation(new Counter[0]);
+
+    private final Counter[] counters;
+
+    private Reservation(Counter[] counters) {
+      this.counters = counters;
+    }
+
+    boolean isEmpty() {
+      return counters.length == 0;
+    }
+  }
+
+  private final Map<UUID, Counter> counters = new ConcurrentHashMap<>();
+
+  void set(UUID ingredientId, long quantity) {
+    validateQuantity(quantity);
+    counters.computeIfAbsent(ingredientId, Counter::new).available.set(quantity);
+  }
+
+  void add(UUID ingredientId, long quantity) {
+    validateQuantity(quantity);
+    counters.computeIfAbsent(ingredientId, Counter::new).available.addAndGet(quantity);
+  }
+
+  void remove(UUID ingredientId) {
+    counters.remove(ingredientId);
+  }
+
+  Optional<StockLevel> level(UUID ingredientId) {
+    return Optional.ofNullable(counters.get(ingredientId))
+        .map(counter -> new StockLevel(ingredientId, counter.available.get(), counter.reserved.get()));
+  }
+
+  // All or nothing without a common lock: units are taken one ingredient at a time and handed back
+  // if a later ingredient runs short, so a concurrent reservation may briefly see them as taken.
+  // Returns one reservation per pancake, in the same order.
+  List<Reservation> reserve(List<IngredientSet> pancakes) {
+    if (counters.isEmpty()) {
+      return Collections.nCopies(pancakes.size(), Reservation.NONE);
+    }
+    final Map<IngredientSet, Reservation> byIngredients = new IdentityHashMap<>();
+    final List<Reservation> reservations = new ArrayList<>(pancakes.size());
+    for (IngredientSet pancake : pancakes) {
+      reservations.add(byIngredients.computeIfAbsent(pancake, this::reservationFor));
+    }
+    final Map<Counter, Long> demand = demand(reservations);
+    final Map<Counter, Long> taken = new IdentityHashMap<>(demand.size());
+    for (Map.Entry<Counter, Long> entry : demand.entrySet()) {
+      final Counter counter = entry.getKey();
+      if (!take(counter.available, entry.getValue())) {
+        giveBack(taken);
+        throw new IllegalArgumentException("Not enough " + name(pancakes, counter.ingredientId) + " in stock");
+      }
+      counter.reserved.addAndGet(entry.getValue());
+      taken.put(counter, entry.getValue());
+    }
+    return reservations;
+  }
+
+  void release(Collection<Reservation> reservations) {
+    giveBack(demand(reservations));
+  }
+
+  void consume(Collection<Reservation> reservations) {
+    demand(reservations).forEach((counter, quantity) -> counter.reserved.addAndGet(-quantity));
+  }
+
+  private Reservation reservationFor(IngredientSet pancake) {
+    final List<Counter> tracked = new ArrayList<>();
+    for (UUID ingredientId : pancake.ingredientIds()) {
+      final Counter counter = counters.get(ingredientId);
+      if (counter != null) {
+        tracked.add(counter);
+      }
+    }
+    return tracked.isEmpty() ? Reservation.NONE : new Reservation(tracked.toArray(Counter[]::new));
+  }
+
+  private static void giveBack(Map<Counter, Long> quantities) {
+    quantities.forEach((counter, quantity) -> {
+      counter.reserved.addAndGet(-quantity);
+      counter.available.addAndGet(quantity);
+    });
+  }
+
+  private static Map<Counter, Long> demand(Collection<Reservation> reservations) {
+    final Map<Counter, Long> demand = new IdentityHashMap<>();
+    for (Reservation reservation : reservations) {
+      for (Counter counter : reservation.counters) {
+        demand.merge(counter, 1L, Long::sum);
+      }
+    }
+    return demand;
+  }
+
+  private static boolean take(AtomicLong counter, long quantity) {
+    long current;
+    do {
+      current = counter.get();
+      if (current < quantity) {
+        return false;
+      }
+    } while (!counter.compareAndSet(current, current - quantity));
+    return true;
+  }
+
+  private static String name(List<IngredientSet> pancakes, UUID ingredientId) {
+    for (IngredientSet pancake : pancakes) {
+      final int index = pancake.ingredientIds().indexOf(ingredientId);
+      if (index >= 0) {
+        return pancake.ingredientNames().get(index);
+      }
+    }
+    return ingredientId.toString();
+  }
+
+  private static void validateQuantity(long quantity) {
+    if (quantity < 0) {
+      throw new IllegalArgumentException("Stock quantity cannot be negative");
+    }
+  }
+}
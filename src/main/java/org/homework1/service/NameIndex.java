@@ -0,0 +1,187 @@
+package org.homework1.service;
+
+import org.homework1.dto.IdNameDto;
+
+import java.util.*;
+
+/**
+ * Immutable name-ordered set of catalog entries, kept as a persistent AVL tree. Adding or
+ * removing an entry copies only the path to it and returns a new index, so every catalog
+ * version keeps its own index while sharing most of the nodes with the next one.
+ */
+final class NameIndex {
+
+  // Case-insensitive first so prefix searches are a range query; names are unique, so the
+  // case-sensitive tie-break makes the order total
+  static final Comparator<String> NAME_ORDER =
+      String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder());
+
+  static final NameIndex EMPTY = new NameIndex(null, 0);
+
+  private static final class Node {
+    final IdNameDto entry;
+    final Node left;
+    final Node right;
+    final int height;
+
+    Node(IdNameDto entry, Node left, Node right) {
+      this.entry = entry;
+      this.left = left;
+      this.right = right;
+      this.height = Math.max(height(left), height(right)) + 1;
+    }
+  }
+
+  private final Node root;
+  private final int size;
+  // Built on first use; racing readers may both build it, but they build the same list
+  private volatile List<IdNameDto> list;
+
+  private NameIndex(Node root, int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+  // A later entry replaces an earlier one with the same name
+  static NameIndex of(Collection<IdNameDto> entries) {
+    final IdNameDto[] sorted = entries.toArray(new IdNameDto[0]);
+    Arrays.sort(sorted, Comparator.comparing(IdNameDto::name, NAME_ORDER));
+    int size = 0;
+    for (IdNameDto entry : sorted) {
+      if (size > 0 && sorted[size - 1].name().equals(entry.name())) {
+        sorted[size - 1] = entry;
+      } else {
+        sorted[size++] = entry;
+      }
+    }
+    return new NameIndex(build(sorted, 0, size), size);
+  }
+
+  int size() {
+    return size;
+  }
+
+  List<IdNameDto> list() {
+    List<IdNameDto> entries = list;
+    if (entries == null) {
+      entries = Collections.unmodifiableList(range(null, true, null, size));
+      list = entries;
+    }
+    return entries;
+  }
+
+  IdNameDto find(String name) {
+    Node node = root;
+    while (node != null) {
+      final int comparison = NAME_ORDER.compare(name, node.entry.name());
+      if (comparison == 0) {
+        return node.entry;
+      }
+      node = comparison < 0 ? node.left : node.right;
+    }
+    return null;
+  }
+
+  NameIndex with(IdNameDto entry) {
+    return new NameIndex(insert(root, entry), find(entry.name()) == null ? size + 1 : size);
+  }
+
+  NameIndex without(String name) {
+    return find(name) == null ? this : new NameIndex(remove(root, name), size - 1);
+  }
+
+  /**
+   * Up to {@code limit} entries in name order, starting at {@code from} (or the first entry when
+   * null) and stopping before {@code to} (or at the end when null).
+   */
+  List<IdNameDto> range(String from, boolean inclusive, String to, int limit) {
+    final List<IdNameDto> entries = new ArrayList<>(Math.min(limit, size));
+    final Deque<Node> path = new ArrayDeque<>();
+    Node node = root;
+    while (node != null) {
+      final int comparison = from == null ? -1 : NAME_ORDER.compare(from, node.entry.name());
+      if (comparison < 0 || (comparison == 0 && inclusive)) {
+        path.push(node);
+        node = node.left;
+      } else {
+        node = node.right;
+      }
+    }
+    while (!path.isEmpty() && entries.size() < limit) {
+      node = path.pop();
+      if (to != null && NAME_ORDER.compare(node.entry.name(), to) >= 0) {
+        break;
+      }
+      entries.add(node.entry);
+      for (Node next = node.right; next != null; next = next.left) {
+        path.push(next);
+      }
+    }
+    return entries;
+  }
+
+  private static Node build(IdNameDto[] sorted, int from, int to) {
+    if (from >= to) {
+      return null;
+    }
+    final int middle = (from + to) >>> 1;
+    return new Node(sorted[middle], build(sorted, from, middle), build(sorted, middle + 1, to));
+  }
+
+  private static Node insert(Node node, IdNameDto entry) {
+    if (node == null) {
+      return new Node(entry, null, null);
+    }
+    final int comparison = NAME_ORDER.compare(entry.name(), node.entry.name());
+    if (comparison < 0) {
+      return balance(node.entry, insert(node.left, entry), node.right);
+    }
+    if (comparison > 0) {
+      return balance(node.entry, node.left, insert(node.right, entry));
+    }
+    return new Node(entry, node.left, node.right);
+  }
+
+  private static Node remove(Node node, String name) {
+    final int comparison = NAME_ORDER.compare(name, node.entry.name());
+    if (comparison < 0) {
+      return balance(node.entry, remove(node.left, name), node.right);
+    }
+    if (comparison > 0) {
+      return balance(node.entry, node.left, remove(node.right, name));
+    }
+    if (node.left == null) {
+      return node.right;
+    }
+    if (node.right == null) {
+      return node.left;
+    }
+    Node first = node.right;
+    while (first.left != null) {
+      first = first.left;
+    }
+    return balance(first.entry, node.left, remove(node.right, first.entry.name()));
+  }
+
+  private static Node balance(IdNameDto entry, Node left, Node right) {
+    if (height(left) > height(right) + 1) {
+      if (height(left.left) >= height(left.right)) {
+        return new Node(left.entry, left.left, new Node(entry, left.right, right));
+      }
+      return new Node(left.right.entry, new Node(left.entry, left.left, left.right.left),
+          new Node(entry, left.right.right, right));
+    }
+    if (height(right) > height(left) + 1) {
+      if (height(right.right) >= height(right.left)) {
+        return new Node(right.entry, new Node(entry, left, right.left), right.right);
+      }
+      return new Node(right.left.entry, new Node(entry, left, right.left.left),
+          new Node(right.entry, right.left.right, right.right));
+    }
+    return new Node(entry, left, right);
+  }
+
+  private static int height(Node node) {
+    return node == null ? 0 : node.height;
+  }
+}
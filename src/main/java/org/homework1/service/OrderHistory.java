@@ -0,0 +1,122 @@
+package org.homework1.service;
+
+import org.homework1.constant.OrderStatus;
+import org.homework1.dto.OrderHistoryEntry;
+import org.homework1.model.Order;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded store of delivered and canceled orders. Only a small summary of each order is kept,
+ * and entries are evicted oldest first once there are more than {@code capacity} of them or
+ * they are older than {@code ttl}. Expired entries are also evicted by lookups, so they do not
+ * outstay their TTL when no orders finish.
+ */
+public class OrderHistory {
+
+  public static final int DEFAULT_CAPACITY = 100_000;
+  public static final Duration DEFAULT_TTL = Duration.ofHours(24);
+
+  private final int capacity;
+  private final long ttlMillis;
+  private final Clock clock;
+  private final Map<UUID, OrderHistoryEntry> entries = new ConcurrentHashMap<>();
+  // Entries in the order they finished, which is also the order they expire in
+  private final Queue<OrderHistoryEntry> evictionQueue = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger queued = new AtomicInteger();
+
+  public OrderHistory() {
+    this(DEFAULT_CAPACITY, DEFAULT_TTL, Clock.systemUTC());
+  }
+
+  public OrderHistory(int capacity, Duration ttl, Clock clock) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("History capacity must not be negative");
+    }
+    Objects.requireNonNull(ttl, "TTL must not be null");
+    if (ttl.isNegative()) {
+      throw new IllegalArgumentException("History TTL must not be negative");
+    }
+    this.capacity = capacity;
+    this.ttlMillis = ttl.toMillis();
+    this.clock = Objects.requireNonNull(clock, "Clock must not be null");
+  }
+
+  public static OrderHistory none() {
+    return new OrderHistory(0, Duration.ZERO, Clock.systemUTC());
+  }
+
+  long millis() {
+    return clock.millis();
+  }
+
+  // Orders recovered from the log keep the time they actually finished, so the TTL is not restarted
+  void record(Order order, OrderStatus status, long finishedAtMillis) {
+    if (capacity == 0) {
+      return;
+    }
+    record(new OrderHistoryEntry(order.getId(), order.getBuilding(), order.getRoom(),
+        status, order.getPancakeCount(), order.getCreatedAtMillis(), finishedAtMillis));
+  }
+
+  void record(OrderHistoryEntry entry) {
+    if (capacity == 0) {
+      return;
+    }
+    entries.put(entry.orderId(), entry);
+    evictionQueue.add(entry);
+    queued.incrementAndGet();
+    evict(clock.millis());
+  }
+
+  public Optional<OrderHistoryEntry> find(UUID orderId) {
+    final long now = clock.millis();
+    evict(now);
+    final OrderHistoryEntry entry = entries.get(orderId);
+    if (entry == null || isExpired(entry, now)) {
+      return Optional.empty();
+    }
+    return Optional.of(entry);
+  }
+
+  // Oldest first, so recording them again in this order rebuilds the same eviction order
+  void forEach(Consumer<OrderHistoryEntry> action) {
+    for (OrderHistoryEntry entry : evictionQueue) {
+      if (entries.get(entry.orderId()) == entry) {
+        action.accept(entry);
+      }
+    }
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  private void evict(long now) {
+    OrderHistoryEntry oldest;
+    while ((oldest = evictionQueue.peek()) != null && (queued.get() > capacity || isExpired(oldest, now))) {
+      // Racing evictors may take one entry more than needed, which only shortens its stay
+      oldest = evictionQueue.poll();
+      if (oldest == null) {
+        return;
+      }
+      queued.decrementAndGet();
+      // A re-recorded order has a newer entry that must stay
+      entries.remove(oldest.orderId(), oldest);
+    }
+  }
+
+  private boolean isExpired(OrderHistoryEntry entry, long now) {
+    return now - entry.finishedAtMillis() > ttlMillis;
+  }
+}
@@ -1,141 +1,821 @@
 package org.homework1.service;
 
 import org.homework1.constant.OrderStatus;
+import org.homework1.dto.DeliveryRun;
+import org.homework1.dto.OrderHistoryEntry;
+import org.homework1.dto.OrderIdPage;
+import org.homework1.dto.PancakeSpec;
+import org.homework1.exception.NotFoundException;
+import org.homework1.metrics.LatencyHistogram;
+import org.homework1.metrics.LockMetrics;
+import org.homework1.metrics.MetricsRegistry;
+import org.homework1.model.IngredientSet;
 import org.homework1.model.Order;
 import org.homework1.model.Pancake;
+import org.homework1.persistence.OrderLog;
+import org.homework1.util.IdGenerator;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.homework1.constant.ValidationConstants.MAX_ORDER_SIZE;
+import static org.homework1.constant.ValidationConstants.MAX_PAGE_SIZE;
 
 public class OrderService {
 
-  private final BuildingService buildingService = new BuildingService();
-  private final RecipeService recipeService = new RecipeService();
-  private final Map<UUID, Order> orderMap = new ConcurrentHashMap<>();
-  private final Set<UUID> completedOrders = Collections.newSetFromMap(new ConcurrentHashMap<>());
-  private final Set<UUID> preparedOrders = Collections.newSetFromMap(new ConcurrentHashMap<>());
+  private static final int DEFAULT_SHARD_COUNT = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
 
+  private final BuildingService buildingService;
+  private final RecipeService recipeService;
+  private final IngredientStock stock;
+  private final IdGenerator ids;
+  private final OrderShard[] shards;
+  private final WorkQueue toPrepare;
+  private final WorkQueue toDeliver;
+  private final DeliveryPlanner deliveryPlanner = new DeliveryPlanner();
+  private final OrderLog orderLog;
+  private final OrderHistory orderHistory;
+  private final MetricsRegistry metrics;
+  private final LockMetrics orderMonitor;
+  private final LatencyHistogram createOrderLatency;
+  private final LatencyHistogram cancelOrderLatency;
+  private final LatencyHistogram completeOrderLatency;
+  private final LatencyHistogram prepareOrderLatency;
+  private final LatencyHistogram deliverOrderLatency;
+  private final LatencyHistogram planDeliveryRunsLatency;
+  private final LatencyHistogram claimDeliveryRunLatency;
+  private final LatencyHistogram deliverRunLatency;
+  private final LatencyHistogram addPancakeLatency;
+  private final LatencyHistogram addPancakesLatency;
+  private final LatencyHistogram removePancakesLatency;
+  private final LatencyHistogram compactLogLatency;
+  private final LatencyHistogram viewOrderLatency;
+  private final LatencyHistogram getOrderStatusLatency;
+  private final LatencyHistogram getPancakesLatency;
+  private final LatencyHistogram listCompletedOrdersLatency;
+  private final LatencyHistogram listPreparedOrdersLatency;
+  private final LatencyHistogram listCompletedOrdersPageLatency;
+  private final LatencyHistogram listPreparedOrdersPageLatency;
+  private final LatencyHistogram takeNextToPrepareLatency;
+  private final LatencyHistogram drainToPrepareLatency;
+  private final LatencyHistogram takeNextToDeliverLatency;
+  private final LatencyHistogram drainToDeliverLatency;
+
+  public OrderService() {
+    this(new MetricsRegistry());
+  }
+
+  public OrderService(MetricsRegistry metrics) {
+    this(new BuildingService(metrics), new RecipeService(metrics), OrderLog.none(), metrics);
+  }
+
+  public OrderService(BuildingService buildingService, RecipeService recipeService) {
+    this(buildingService, recipeService, OrderLog.none());
+  }
+
+  public OrderService(BuildingService buildingService, RecipeService recipeService, OrderLog orderLog) {
+    this(buildingService, recipeService, orderLog, new MetricsRegistry());
+  }
+
+  public OrderService(BuildingService buildingService, RecipeService recipeService, OrderLog orderLog,
+                      MetricsRegistry metrics) {
+    this(buildingService, recipeService, orderLog, metrics, DEFAULT_SHARD_COUNT);
+  }
+
+  public OrderService(BuildingService buildingService, RecipeService recipeService, OrderLog orderLog,
+                      MetricsRegistry metrics, int shardCount) {
+    this(buildingService, recipeService, orderLog, metrics, shardCount, new OrderHistory());
+  }
+
+  public OrderService(BuildingService buildingService, RecipeService recipeService, OrderLog orderLog,
+                      MetricsRegistry metrics, int shardCount, OrderHistory orderHistory) {
+    this(buildingService, recipeService, orderLog, metrics, shardCount, orderHistory, IdGenerator.defaultGenerator());
+  }
+
+  public OrderService(BuildingService buildingService, RecipeService recipeService, OrderLog orderLog,
+                      MetricsRegistry metrics, int shardCount, OrderHistory orderHistory, IdGenerator ids) {
+    if (shardCount <= 0 || Integer.bitCount(shardCount) != 1) {
+      throw new IllegalArgumentException("Shard count must be a positive power of two");
+    }
+    shards = new OrderShard[shardCount];
+    Arrays.setAll(shards, index -> new OrderShard());
+    toPrepare = new WorkQueue(shardCount);
+    toDeliver = new WorkQueue(shardCount);
+    this.buildingService = Objects.requireNonNull(buildingService, "Building service cannot be null");
+    this.recipeService = Objects.requireNonNull(recipeService, "Recipe service cannot be null");
+    stock = recipeService.stock();
+    this.orderLog = Objects.requireNonNull(orderLog, "Order log cannot be null");
+    this.metrics = Objects.requireNonNull(metrics, "Metrics registry cannot be null");
+    this.orderHistory = Objects.requireNonNull(orderHistory, "Order history cannot be null");
+    this.ids = Objects.requireNonNull(ids, "ID generator cannot be null");
+    orderMonitor = metrics.lock("OrderService.orderMonitor");
+    createOrderLatency = metrics.latency("OrderService.createOrder");
+    cancelOrderLatency = metrics.latency("OrderService.cancelOrder");
+    completeOrderLatency = metrics.latency("OrderService.completeOrder");
+    prepareOrderLatency = metrics.latency("OrderService.prepareOrder");
+    deliverOrderLatency = metrics.latency("OrderService.deliverOrder");
+    planDeliveryRunsLatency = metrics.latency("OrderService.planDeliveryRuns");
+    claimDeliveryRunLatency = metrics.latency("OrderService.claimDeliveryRun");
+    deliverRunLatency = metrics.latency("OrderService.deliverRun");
+    addPancakeLatency = metrics.latency("OrderService.addPancake");
+    addPancakesLatency = metrics.latency("OrderService.addPancakes");
+    removePancakesLatency = metrics.latency("OrderService.removePancakes");
+    compactLogLatency = metrics.latency("OrderService.compactLog");
+    viewOrderLatency = metrics.latency("OrderService.viewOrder");
+    getOrderStatusLatency = metrics.latency("OrderService.getOrderStatus");
+    getPancakesLatency = metrics.latency("OrderService.getPancakes");
+    listCompletedOrdersLatency = metrics.latency("OrderService.listCompletedOrders");
+    listPreparedOrdersLatency = metrics.latency("OrderService.listPreparedOrders");
+    listCompletedOrdersPageLatency = metrics.latency("OrderService.listCompletedOrdersPage");
+    listPreparedOrdersPageLatency = metrics.latency("OrderService.listPreparedOrdersPage");
+    takeNextToPrepareLatency = metrics.latency("OrderService.takeNextToPrepare");
+    drainToPrepareLatency = metrics.latency("OrderService.drainToPrepare");
+    takeNextToDeliverLatency = metrics.latency("OrderService.takeNextToDeliver");
+    drainToDeliverLatency = metrics.latency("OrderService.drainToDeliver");
+    orderLog.recover(new LogReplayer(), new LogSnapshotSource());
+    restoreStatusIndexes();
+  }
+
+  public MetricsRegistry getMetrics() {
+    return metrics;
+  }
+
+  // Every change is logged and synced before it is applied, all while holding the order monitor,
+  // so no other thread can see or act on a change that a crash would lose, and a failed sync
+  // leaves the order untouched. A compaction snapshot takes each order's monitor too, so a change
+  // logged before the log rotated is always applied by the time the snapshot reads the order.
+  // Status changes are therefore not lock-free: the monitor is held across the flush, and a second
+  // call on the same order waits for it. Calls on different orders never contend for a monitor and
+  // still share each flush, and status reads take no lock at all.
   public UUID createOrder(int buildingNumber, int roomNumber) {
-    buildingService.checkRoom(buildingNumber, roomNumber);
-    final Order order = new Order(buildingNumber, roomNumber);
-    orderMap.put(order.getId(), order);
-    return order.getId(); // Return the orderId
+    final long start = System.nanoTime();
+    try {
+      buildingService.checkRoom(buildingNumber, roomNumber);
+      final Order order = new Order(ids, buildingNumber, roomNumber);
+      final OrderShard shard = shardFor(order.getId());
+      final long monitorWaitStart = System.nanoTime();
+      synchronized (order) {
+        orderMonitor.recordWait(System.nanoTime() - monitorWaitStart);
+        // Not visible to callers yet, but a snapshot waits for it
+        shard.pending.put(order.getId(), order);
+        try {
+          orderLog.sync(orderLog.appendCreate(order));
+          shard.orders.put(order.getId(), order);
+          shard.countCreated();
+        } finally {
+          shard.pending.remove(order.getId());
+        }
+      }
+      return order.getId(); // Return the orderId
+    } finally {
+      createOrderLatency.recordSince(start);
+    }
   }
 
   public void cancelOrder(UUID orderId) {
-    final Order canceledOrder = getOrder(orderId);
-    synchronized (canceledOrder) {
-      if (!canceledOrder.getStatus().equals(OrderStatus.DRAFT)) {
-        throw new IllegalArgumentException("Order is already completed and cannot be canceled");
+    final long start = System.nanoTime();
+    try {
+      final Order canceledOrder = shardFor(orderId).orders.get(orderId);
+      if (canceledOrder == null) {
+        // A finished order has left its shard, but history still tells how it finished
+        throw cannotCancel(orderHistory.find(orderId)
+            .map(OrderHistoryEntry::status)
+            .orElseThrow(() -> new NotFoundException("Order not found")));
+      }
+      final long monitorWaitStart = System.nanoTime();
+      synchronized (canceledOrder) {
+        orderMonitor.recordWait(System.nanoTime() - monitorWaitStart);
+        // A concurrent cancel or completion may have moved the order on while this call waited for it
+        if (canceledOrder.getStatus() != OrderStatus.DRAFT) {
+          throw cannotCancel(canceledOrder.getStatus());
+        }
+        final long finishedAt = orderHistory.millis();
+        orderLog.sync(orderLog.appendFinish(orderId, OrderStatus.CANCELED, finishedAt));
+        transition(canceledOrder, OrderStatus.DRAFT, OrderStatus.CANCELED);
+        final OrderShard shard = shardFor(orderId);
+        stock.release(shard.takeReservations(canceledOrder.getPancakes()));
+        shard.countTransition(OrderStatus.DRAFT, OrderStatus.CANCELED);
+        orderHistory.record(canceledOrder, OrderStatus.CANCELED, finishedAt);
+        shard.orders.remove(orderId);
       }
-      canceledOrder.setStatus(OrderStatus.CANCELED);
-      orderMap.remove(orderId);
+    } finally {
+      cancelOrderLatency.recordSince(start);
     }
   }
 
+  private static IllegalArgumentException cannotCancel(OrderStatus status) {
+    return new IllegalArgumentException(switch (status) {
+      case DRAFT, COMPLETED, PREPARED -> "Order is already completed and cannot be canceled";
+      case CANCELED -> "Order is already canceled";
+      case DELIVERED -> "Order is already delivered";
+    });
+  }
+
   public void completeOrder(UUID orderId) {
-    final Order completedOrder = getOrder(orderId);
-    synchronized (completedOrder) {
-      if (!completedOrder.getStatus().equals(OrderStatus.DRAFT)) {
-        throw new IllegalArgumentException("Order is already completed or canceled");
-      }
-      if (completedOrder.getPancakeCount() == 0) {
-        throw new IllegalArgumentException("Order must have at least one pancake");
+    completeOrder(orderId, false);
+  }
+
+  public void completeOrder(UUID orderId, boolean express) {
+    final long start = System.nanoTime();
+    try {
+      final Order completedOrder = getOrder(orderId);
+      final long monitorWaitStart = System.nanoTime();
+      synchronized (completedOrder) {
+        orderMonitor.recordWait(System.nanoTime() - monitorWaitStart);
+        if (!completedOrder.getStatus().equals(OrderStatus.DRAFT)) {
+          throw new IllegalArgumentException("Order is already completed or canceled");
+        }
+        if (completedOrder.getPancakeCount() == 0) {
+          throw new IllegalArgumentException("Order must have at least one pancake");
+        }
+        orderLog.sync(orderLog.appendStatus(orderId, OrderStatus.COMPLETED, express));
+        completedOrder.setExpress(express);
+        transition(completedOrder, OrderStatus.DRAFT, OrderStatus.COMPLETED);
+        final OrderShard shard = shardFor(orderId);
+        shard.countTransition(OrderStatus.DRAFT, OrderStatus.COMPLETED);
+        shard.completedOrders.add(orderId);
+        toPrepare.add(orderId, express);
       }
-      completedOrder.setStatus(OrderStatus.COMPLETED);
-      completedOrders.add(orderId);
+    } finally {
+      completeOrderLatency.recordSince(start);
     }
   }
 
   public void prepareOrder(UUID orderId) {
-    final Order preparedOrder = getOrder(orderId);
-    synchronized (preparedOrder) {
-      if (preparedOrder.getStatus().equals(OrderStatus.DRAFT)) {
-        throw new IllegalArgumentException("Order needs to be completed before it can be prepared");
-      }
-      if (preparedOrder.getStatus().equals(OrderStatus.PREPARED)) {
-        throw new IllegalArgumentException("Order is already prepared");
+    final long start = System.nanoTime();
+    try {
+      final Order preparedOrder = getOrder(orderId);
+      final long monitorWaitStart = System.nanoTime();
+      synchronized (preparedOrder) {
+        orderMonitor.recordWait(System.nanoTime() - monitorWaitStart);
+        // A concurrent cancel or delivery may have finished the order while this call waited for it
+        switch (preparedOrder.getStatus()) {
+          case COMPLETED -> {
+          }
+          case DRAFT -> throw new IllegalArgumentException("Order needs to be completed before it can be prepared");
+          case PREPARED -> throw new IllegalArgumentException("Order is already prepared");
+          case CANCELED -> throw new IllegalArgumentException("Order is canceled and cannot be prepared");
+          case DELIVERED -> throw new IllegalArgumentException("Order is already delivered");
+        }
+        orderLog.sync(orderLog.appendStatus(orderId, OrderStatus.PREPARED, preparedOrder.isExpress()));
+        transition(preparedOrder, OrderStatus.COMPLETED, OrderStatus.PREPARED);
+        final OrderShard shard = shardFor(orderId);
+        stock.consume(shard.takeReservations(preparedOrder.getPancakes()));
+        shard.countTransition(OrderStatus.COMPLETED, OrderStatus.PREPARED);
+        shard.preparedOrders.add(orderId);
+        shard.completedOrders.remove(orderId);
+        toPrepare.remove(orderId);
+        deliveryPlanner.add(orderId, preparedOrder.getBuilding(), preparedOrder.getRoom());
+        toDeliver.add(orderId, preparedOrder.isExpress());
       }
-      preparedOrder.setStatus(OrderStatus.PREPARED);
-      preparedOrders.add(orderId);
-      completedOrders.remove(orderId);
+    } finally {
+      prepareOrderLatency.recordSince(start);
     }
   }
 
   public void deliverOrder(UUID orderId) {
-    final Order deliveredOrder = getOrder(orderId);
-    synchronized (deliveredOrder) {
-      if (deliveredOrder.getStatus().equals(OrderStatus.DELIVERED)) {
-        return; // If multiple threads try to deliver the same order, return without throwing an exception
+    final long start = System.nanoTime();
+    try {
+      final Order deliveredOrder = getOrder(orderId);
+      final long monitorWaitStart = System.nanoTime();
+      synchronized (deliveredOrder) {
+        orderMonitor.recordWait(System.nanoTime() - monitorWaitStart);
+        if (deliveredOrder.getStatus() != OrderStatus.PREPARED) {
+          if (deliveredOrder.getStatus().equals(OrderStatus.DELIVERED)) {
+            return; // If multiple threads try to deliver the same order, return without throwing an exception
+          }
+          throw new IllegalArgumentException("Order needs to be prepared before it can be delivered");
+        }
+        final long finishedAt = orderHistory.millis();
+        orderLog.sync(orderLog.appendFinish(orderId, OrderStatus.DELIVERED, finishedAt));
+        transition(deliveredOrder, OrderStatus.PREPARED, OrderStatus.DELIVERED);
+        final OrderShard shard = shardFor(orderId);
+        shard.countTransition(OrderStatus.PREPARED, OrderStatus.DELIVERED);
+        orderHistory.record(deliveredOrder, OrderStatus.DELIVERED, finishedAt);
+        shard.orders.remove(orderId);
+        shard.preparedOrders.remove(orderId);
+        deliveryPlanner.claim(orderId);
+        toDeliver.remove(orderId);
       }
-      if (!deliveredOrder.getStatus().equals(OrderStatus.PREPARED)) {
-        throw new IllegalArgumentException("Order needs to be prepared before it can be delivered");
+    } finally {
+      deliverOrderLatency.recordSince(start);
+    }
+  }
+
+  public List<DeliveryRun> planDeliveryRuns(int maxOrdersPerRun) {
+    final long start = System.nanoTime();
+    try {
+      validateMaxOrders(maxOrdersPerRun);
+      return deliveryPlanner.plan(maxOrdersPerRun);
+    } finally {
+      planDeliveryRunsLatency.recordSince(start);
+    }
+  }
+
+  public Optional<DeliveryRun> claimDeliveryRun(int maxOrdersPerRun) {
+    final long start = System.nanoTime();
+    try {
+      validateMaxOrders(maxOrdersPerRun);
+      OptionalInt building;
+      while ((building = deliveryPlanner.busiestBuilding()).isPresent()) {
+        final DeliveryRun run = deliveryPlanner.claimRun(building.getAsInt(), maxOrdersPerRun);
+        if (!run.stops().isEmpty()) {
+          return Optional.of(run);
+        }
       }
-      deliveredOrder.setStatus(OrderStatus.DELIVERED);
-      orderMap.remove(orderId);
-      preparedOrders.remove(orderId);
+      return Optional.empty();
+    } finally {
+      claimDeliveryRunLatency.recordSince(start);
+    }
+  }
+
+  public DeliveryRun claimDeliveryRun(int buildingNumber, int maxOrdersPerRun) {
+    final long start = System.nanoTime();
+    try {
+      validateMaxOrders(maxOrdersPerRun);
+      return deliveryPlanner.claimRun(buildingNumber, maxOrdersPerRun);
+    } finally {
+      claimDeliveryRunLatency.recordSince(start);
+    }
+  }
+
+  public void deliverRun(DeliveryRun run) {
+    final long start = System.nanoTime();
+    try {
+      Objects.requireNonNull(run, "Delivery run cannot be null");
+      run.orderIds().forEach(this::deliverOrder);
+    } finally {
+      deliverRunLatency.recordSince(start);
     }
   }
 
   public void addPancake(UUID orderId, UUID recipeId) {
-    addPancake(orderId, recipeService.getRecipeIngredients(recipeId));
+    final long start = System.nanoTime();
+    try {
+      addPancakesInternal(getOrder(orderId), Collections.singletonList(recipeService.resolveRecipe(recipeId)));
+    } finally {
+      addPancakeLatency.recordSince(start);
+    }
   }
 
   public void addPancake(UUID orderId, List<UUID> ingredients) {
-    final Order order = getOrder(orderId);
+    final long start = System.nanoTime();
+    try {
+      addPancakesInternal(getOrder(orderId), Collections.singletonList(recipeService.resolveIngredients(ingredients)));
+    } finally {
+      addPancakeLatency.recordSince(start);
+    }
+  }
+
+  public void addPancakes(UUID orderId, UUID recipeId, int count) {
+    final long start = System.nanoTime();
+    try {
+      if (count <= 0) {
+        throw new IllegalArgumentException("Pancake count must be a positive integer");
+      }
+      if (count > MAX_ORDER_SIZE) {
+        throw new IllegalArgumentException("Order cannot have more than " + MAX_ORDER_SIZE + " pancakes");
+      }
+      final Order order = getOrder(orderId);
+      addPancakesInternal(order, Collections.nCopies(count, recipeService.resolveRecipe(recipeId)));
+    } finally {
+      addPancakesLatency.recordSince(start);
+    }
+  }
+
+  public void addPancakes(UUID orderId, List<PancakeSpec> pancakes) {
+    final long start = System.nanoTime();
+    try {
+      if (pancakes == null || pancakes.isEmpty()) {
+        throw new IllegalArgumentException("At least one pancake is required");
+      }
+      if (pancakes.size() > MAX_ORDER_SIZE) {
+        throw new IllegalArgumentException("Order cannot have more than " + MAX_ORDER_SIZE + " pancakes");
+      }
+      final Order order = getOrder(orderId);
+      addPancakesInternal(order, recipeService.resolvePancakes(pancakes));
+    } finally {
+      addPancakesLatency.recordSince(start);
+    }
+  }
+
+  // Ingredients are resolved before taking the order monitor, so the batch is added all at once or not at all
+  private void addPancakesInternal(Order order, List<IngredientSet> ingredientSets) {
+    final long monitorWaitStart = System.nanoTime();
     synchronized (order) {
+      orderMonitor.recordWait(System.nanoTime() - monitorWaitStart);
       if (!order.getStatus().equals(OrderStatus.DRAFT)) {
         throw new IllegalArgumentException("Order is already completed and cannot be modified");
       }
-      recipeService.validateRecipeIngredients(ingredients);
-      final List<String> pancakeIngredients = ingredients.stream()
-          .map(recipeService::getIngredientName)
+      if (order.getPancakeCount() + ingredientSets.size() > MAX_ORDER_SIZE) {
+        throw new IllegalArgumentException("Order cannot have more than " + MAX_ORDER_SIZE + " pancakes");
+      }
+      // Reserved first so a batch that cannot be served is never logged; given back if logging fails
+      final List<IngredientStock.Reservation> reservations = stock.reserve(ingredientSets);
+      final List<Pancake> pancakes = ingredientSets.stream()
+          .map(ingredients -> new Pancake(ids, ingredients))
           .collect(Collectors.toList());
-      order.addPancake(new Pancake(pancakeIngredients));
-      if (order.getPancakeCount() > MAX_ORDER_SIZE) {
-        throw new IllegalArgumentException("Order cannot have more than " +  MAX_ORDER_SIZE + "pancakes");
+      try {
+        orderLog.sync(orderLog.appendAddPancakes(order.getId(), pancakes));
+      } catch (RuntimeException e) {
+        stock.release(reservations);
+        throw e;
+      }
+      final OrderShard shard = shardFor(order.getId());
+      for (int i = 0; i < pancakes.size(); i++) {
+        order.addPancake(pancakes.get(i));
+        shard.holdReservation(pancakes.get(i).getId(), reservations.get(i));
       }
     }
   }
 
   public void removePancakes(UUID orderId, Set<UUID> pancakeIds) {
-    final Order order = getOrder(orderId);
-    synchronized (order) {
-      if (!order.getStatus().equals(OrderStatus.DRAFT)) {
-        throw new IllegalArgumentException("Order is already completed and cannot be modified");
+    final long start = System.nanoTime();
+    try {
+      Objects.requireNonNull(pancakeIds, "Pancake IDs cannot be null");
+      final Order order = getOrder(orderId);
+      final long monitorWaitStart = System.nanoTime();
+      synchronized (order) {
+        orderMonitor.recordWait(System.nanoTime() - monitorWaitStart);
+        if (!order.getStatus().equals(OrderStatus.DRAFT)) {
+          throw new IllegalArgumentException("Order is already completed and cannot be modified");
+        }
+        final List<Pancake> removed = order.getPancakes().stream()
+            .filter(pancake -> pancakeIds.contains(pancake.getId()))
+            .collect(Collectors.toList());
+        if (removed.size() != pancakeIds.size()) {
+          throw new NotFoundException("Pancake not found");
+        }
+        orderLog.sync(orderLog.appendRemovePancakes(orderId, pancakeIds));
+        order.removePancakes(pancakeIds);
+        stock.release(shardFor(orderId).takeReservations(removed));
       }
-      order.removePancakes(pancakeIds);
+    } finally {
+      removePancakesLatency.recordSince(start);
+    }
+  }
+
+  public void compactLog() {
+    final long start = System.nanoTime();
+    try {
+      orderLog.compact();
+    } finally {
+      compactLogLatency.recordSince(start);
     }
   }
 
   public List<String> viewOrder(UUID orderId) {
-    final Order order = getOrder(orderId);
-    return order.getPancakes().stream()
-        .map(Pancake::description)
-        .collect(Collectors.toList());
+    final long start = System.nanoTime();
+    try {
+      final Order order = getOrder(orderId);
+      return order.getPancakes().stream()
+          .map(Pancake::description)
+          .collect(Collectors.toList());
+    } finally {
+      viewOrderLatency.recordSince(start);
+    }
   }
 
   public OrderStatus getOrderStatus(UUID orderId) {
-    return getOrder(orderId).getStatus();
+    final long start = System.nanoTime();
+    try {
+      final Order order = shardFor(orderId).orders.get(orderId);
+      if (order != null) {
+        return order.getStatus();
+      }
+      // Finished orders are recorded in history before they leave the shard
+      return orderHistory.find(orderId)
+          .map(OrderHistoryEntry::status)
+          .orElseThrow(() -> new NotFoundException("Order not found"));
+    } finally {
+      getOrderStatusLatency.recordSince(start);
+    }
+  }
+
+  public Optional<OrderHistoryEntry> findFinishedOrder(UUID orderId) {
+    return orderHistory.find(orderId);
   }
 
   public List<Pancake> getPancakes(UUID orderId) {
-    return getOrder(orderId).getPancakes();
+    final long start = System.nanoTime();
+    try {
+      return getOrder(orderId).getPancakes();
+    } finally {
+      getPancakesLatency.recordSince(start);
+    }
   }
 
   public Set<UUID> listCompletedOrders() {
-    return new HashSet<>(completedOrders);
+    final long start = System.nanoTime();
+    try {
+      final Set<UUID> completedOrders = new HashSet<>();
+      for (OrderShard shard : shards) {
+        completedOrders.addAll(shard.completedOrders);
+      }
+      return completedOrders;
+    } finally {
+      listCompletedOrdersLatency.recordSince(start);
+    }
   }
 
   public Set<UUID> listPreparedOrders() {
-    return new HashSet<>(preparedOrders);
+    final long start = System.nanoTime();
+    try {
+      final Set<UUID> preparedOrders = new HashSet<>();
+      for (OrderShard shard : shards) {
+        preparedOrders.addAll(shard.preparedOrders);
+      }
+      return preparedOrders;
+    } finally {
+      listPreparedOrdersLatency.recordSince(start);
+    }
+  }
+
+  // Pass a null cursor for the first page, then the previous page's next cursor
+  public OrderIdPage listCompletedOrders(String cursor, int limit) {
+    final long start = System.nanoTime();
+    try {
+      return page(shard -> shard.completedOrders, cursor, limit);
+    } finally {
+      listCompletedOrdersPageLatency.recordSince(start);
+    }
+  }
+
+  public OrderIdPage listPreparedOrders(String cursor, int limit) {
+    final long start = System.nanoTime();
+    try {
+      return page(shard -> shard.preparedOrders, cursor, limit);
+    } finally {
+      listPreparedOrdersPageLatency.recordSince(start);
+    }
+  }
+
+  // Lazy and weakly consistent: orders that change status while the stream is consumed may or may not appear
+  public Stream<UUID> streamCompletedOrders() {
+    return Arrays.stream(shards).flatMap(shard -> shard.completedOrders.stream());
+  }
+
+  public Stream<UUID> streamPreparedOrders() {
+    return Arrays.stream(shards).flatMap(shard -> shard.preparedOrders.stream());
+  }
+
+  // Open statuses count the orders currently in them; terminal ones count orders finished since this service started
+  public long countByStatus(OrderStatus status) {
+    Objects.requireNonNull(status, "Status cannot be null");
+    long count = 0;
+    for (OrderShard shard : shards) {
+      count += shard.count(status);
+    }
+    return count;
+  }
+
+  public Map<OrderStatus, Long> countByStatus() {
+    final Map<OrderStatus, Long> counts = new EnumMap<>(OrderStatus.class);
+    for (OrderStatus status : OrderStatus.values()) {
+      counts.put(status, countByStatus(status));
+    }
+    return counts;
+  }
+
+  // Orders waiting in the work queues; only orders still in the matching status are counted
+  public int countQueuedToPrepare() {
+    return toPrepare.size();
+  }
+
+  public int countQueuedToDeliver() {
+    return toDeliver.size();
+  }
+
+  public UUID takeNextToPrepare() throws InterruptedException {
+    final long start = System.nanoTime();
+    try {
+      return takeNext(toPrepare, this::isCompleted);
+    } finally {
+      takeNextToPrepareLatency.recordSince(start);
+    }
+  }
+
+  public List<UUID> drainToPrepare(int max) {
+    final long start = System.nanoTime();
+    try {
+      return drain(toPrepare, this::isCompleted, max);
+    } finally {
+      drainToPrepareLatency.recordSince(start);
+    }
+  }
+
+  public UUID takeNextToDeliver() throws InterruptedException {
+    final long start = System.nanoTime();
+    try {
+      return takeNext(toDeliver, deliveryPlanner::claim);
+    } finally {
+      takeNextToDeliverLatency.recordSince(start);
+    }
+  }
+
+  public List<UUID> drainToDeliver(int max) {
+    final long start = System.nanoTime();
+    try {
+      return drain(toDeliver, deliveryPlanner::claim, max);
+    } finally {
+      drainToDeliverLatency.recordSince(start);
+    }
+  }
+
+  // Orders that moved on are taken out of their queue, but one may still be handed out in the
+  // meantime; orders claimed in a delivery run stay queued until they are delivered. Both are skipped
+  private UUID takeNext(WorkQueue queue, Predicate<UUID> claim) throws InterruptedException {
+    UUID orderId;
+    do {
+      orderId = queue.take();
+    } while (!claim.test(orderId));
+    return orderId;
+  }
+
+  private List<UUID> drain(WorkQueue queue, Predicate<UUID> claim, int max) {
+    validateMaxOrders(max);
+    final List<UUID> orderIds = new ArrayList<>();
+    while (orderIds.size() < max) {
+      final List<UUID> drained = queue.drain(max - orderIds.size());
+      if (drained.isEmpty()) {
+        break;
+      }
+      drained.stream().filter(claim).forEach(orderIds::add);
+    }
+    return orderIds;
+  }
+
+  // The cursor is the last ID on the previous page; its shard follows from the ID itself, so a page
+  // resumes inside that shard and then walks the later ones in order
+  private OrderIdPage page(Function<OrderShard, NavigableSet<UUID>> index, String cursor, int limit) {
+    if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+      throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+    }
+    final UUID after = cursor == null ? null : decodeCursor(cursor);
+    final List<UUID> orderIds = new ArrayList<>(Math.min(limit, 64));
+    for (int i = after == null ? 0 : shardIndex(after); i < shards.length; i++) {
+      final NavigableSet<UUID> ids = index.apply(shards[i]);
+      final Iterator<UUID> entries = (after != null && i == shardIndex(after) ? ids.tailSet(after, false) : ids).iterator();
+      while (entries.hasNext()) {
+        if (orderIds.size() == limit) {
+          return new OrderIdPage(orderIds, orderIds.get(limit - 1).toString());
+        }
+        orderIds.add(entries.next());
+      }
+    }
+    return new OrderIdPage(orderIds, null);
+  }
+
+  private static UUID decodeCursor(String cursor) {
+    try {
+      return UUID.fromString(cursor);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid page cursor");
+    }
+  }
+
+  private void validateMaxOrders(int max) {
+    if (max <= 0) {
+      throw new IllegalArgumentException("Max number of orders must be a positive integer");
+    }
+  }
+
+  private class LogSnapshotSource implements OrderLog.SnapshotSource {
+
+    // Pending orders are read first: one that is published meanwhile is in the orders map by the
+    // time that is read, so it is never missed, and one seen in both is passed on only once
+    @Override
+    public void forEachOrder(Consumer<Order> action) {
+      for (OrderShard shard : shards) {
+        final Set<UUID> seen = new HashSet<>();
+        final Consumer<Order> snapshot = order -> {
+          synchronized (order) {
+            if (shard.orders.containsKey(order.getId()) && seen.add(order.getId())) {
+              action.accept(order);
+            }
+          }
+        };
+        shard.pending.forEachValue(snapshot);
+        shard.orders.forEachValue(snapshot);
+      }
+    }
+
+    // An order is recorded in history before it leaves its shard, so one that finishes while the
+    // live orders are read is in one pass or the other
+    @Override
+    public void forEachFinishedOrder(Consumer<OrderHistoryEntry> action) {
+      orderHistory.forEach(action);
+    }
+  }
+
+  private void restoreStatusIndexes() {
+    for (OrderShard shard : shards) {
+      final Map<OrderStatus, Long> counts = shard.orders.values().stream()
+          .collect(Collectors.groupingBy(Order::getStatus, () -> new EnumMap<>(OrderStatus.class), Collectors.counting()));
+      for (OrderStatus status : OrderStatus.values()) {
+        shard.resetCount(status, counts.getOrDefault(status, 0L));
+      }
+      shard.orders.forEachValue(order -> {
+        if (order.getStatus().equals(OrderStatus.COMPLETED)) {
+          shard.completedOrders.add(order.getId());
+          toPrepare.add(order.getId(), order.isExpress());
+        } else if (order.getStatus().equals(OrderStatus.PREPARED)) {
+          shard.preparedOrders.add(order.getId());
+          deliveryPlanner.add(order.getId(), order.getBuilding(), order.getRoom());
+          toDeliver.add(order.getId(), order.isExpress());
+        }
+      });
+    }
+  }
+
+  // Applies recovered log records; records for orders that are already gone are ignored
+  private class LogReplayer implements OrderLog.Handler {
+
+    // Pancakes recovered with the same ingredients share one set; dropped once recovery is done
+    private final Map<List<UUID>, IngredientSet> ingredientSets = new HashMap<>();
+
+    @Override
+    public void onCreate(UUID orderId, int building, int room, long createdAtMillis) {
+      shardFor(orderId).orders.putIfAbsent(orderId, new Order(orderId, building, room, createdAtMillis));
+    }
+
+    @Override
+    public void onAddPancake(UUID orderId, UUID pancakeId, List<UUID> ingredientIds, List<String> ingredientNames) {
+      final Order order = shardFor(orderId).orders.get(orderId);
+      if (order != null) {
+        order.addPancake(new Pancake(pancakeId, ingredientSets.computeIfAbsent(ingredientIds,
+            key -> new IngredientSet(key, ingredientNames))));
+      }
+    }
+
+    @Override
+    public void onRemovePancakes(UUID orderId, Set<UUID> pancakeIds) {
+      final Order order = shardFor(orderId).orders.get(orderId);
+      if (order != null) {
+        final Set<UUID> present = order.getPancakes().stream()
+            .map(Pancake::getId)
+            .collect(Collectors.toSet());
+        order.removePancakes(pancakeIds.stream().filter(present::contains).collect(Collectors.toSet()));
+      }
+    }
+
+    @Override
+    public void onStatus(UUID orderId, OrderStatus status, boolean express) {
+      final Order order = shardFor(orderId).orders.get(orderId);
+      if (order == null) {
+        return;
+      }
+      if (status.isAfter(order.getStatus())) {
+        // A snapshot may already hold a later status than the log records replayed after it;
+        // never let an older record move the order back.
+        order.setStatus(status);
+        order.setExpress(express);
+      }
+    }
+
+    @Override
+    public void onFinish(UUID orderId, OrderStatus status, long finishedAtMillis) {
+      final Order order = shardFor(orderId).orders.remove(orderId);
+      if (order != null) {
+        orderHistory.record(order, status, finishedAtMillis);
+      }
+    }
+
+    @Override
+    public void onFinishedOrder(OrderHistoryEntry entry) {
+      // The snapshot may also hold the order as live if it finished while the snapshot was written
+      shardFor(entry.orderId()).orders.remove(entry.orderId());
+      orderHistory.record(entry);
+    }
+  }
+
+  // Callers hold the order monitor and have already checked that the order is in the from status
+  private static void transition(Order order, OrderStatus from, OrderStatus to) {
+    if (!from.canTransitionTo(to)) {
+      throw new IllegalStateException("Order cannot move from " + from + " to " + to);
+    }
+    order.setStatus(to);
+  }
+
+  private OrderShard shardFor(UUID orderId) {
+    return shards[shardIndex(orderId)];
+  }
+
+  private int shardIndex(UUID orderId) {
+    final int hash = orderId.hashCode();
+    return (hash ^ (hash >>> 16)) & (shards.length - 1);
+  }
+
+  private boolean isCompleted(UUID orderId) {
+    return shardFor(orderId).completedOrders.contains(orderId);
   }
 
   private Order getOrder(UUID orderId) {
-    return Optional.ofNullable(orderMap.get(orderId))
-        .orElseThrow(() -> new IllegalArgumentException("Order not found"));
+    return Optional.ofNullable(shardFor(orderId).orders.get(orderId))
+        .orElseThrow(() -> new NotFoundException("Order not found"));
   }
 }
@@ -0,0 +1,72 @@
+package org.homework1.service;
+
+import org.homework1.constant.OrderStatus;
+import org.homework1.model.Order;
+import org.homework1.model.Pancake;
+import org.homework1.util.ConcurrentUuidMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One partition of the orders held by {@link OrderService}, with its own status indexes so that
+ * status transitions on different shards never touch the same structures. The indexes are kept
+ * in ID order so that paged listings can resume after the last ID they returned.
+ */
+class OrderShard {
+
+  final ConcurrentUuidMap<Order> orders = new ConcurrentUuidMap<>();
+  // Orders being created, from before their record is logged until they are published in orders
+  final ConcurrentUuidMap<Order> pending = new ConcurrentUuidMap<>();
+  final NavigableSet<UUID> completedOrders = new ConcurrentSkipListSet<>();
+  final NavigableSet<UUID> preparedOrders = new ConcurrentSkipListSet<>();
+  // Stock held by draft pancakes, by pancake ID; pancakes that hold nothing have no entry
+  private final ConcurrentUuidMap<IngredientStock.Reservation> reservations = new ConcurrentUuidMap<>();
+  // Indexed by OrderStatus ordinal; open statuses count current orders, terminal ones count finished orders
+  private final LongAdder[] statusCounts = new LongAdder[OrderStatus.values().length];
+
+  OrderShard() {
+    for (int i = 0; i < statusCounts.length; i++) {
+      statusCounts[i] = new LongAdder();
+    }
+  }
+
+  void holdReservation(UUID pancakeId, IngredientStock.Reservation reservation) {
+    if (!reservation.isEmpty()) {
+      reservations.put(pancakeId, reservation);
+    }
+  }
+
+  List<IngredientStock.Reservation> takeReservations(List<Pancake> pancakes) {
+    final List<IngredientStock.Reservation> taken = new ArrayList<>();
+    for (Pancake pancake : pancakes) {
+      final IngredientStock.Reservation reservation = reservations.remove(pancake.getId());
+      if (reservation != null) {
+        taken.add(reservation);
+      }
+    }
+    return taken;
+  }
+
+  void countCreated() {
+    statusCounts[OrderStatus.DRAFT.ordinal()].increment();
+  }
+
+  void countTransition(OrderStatus from, OrderStatus to) {
+    statusCounts[from.ordinal()].decrement();
+    statusCounts[to.ordinal()].increment();
+  }
+
+  void resetCount(OrderStatus status, long count) {
+    statusCounts[status.ordinal()].reset();
+    statusCounts[status.ordinal()].add(count);
+  }
+
+  long count(OrderStatus status) {
+    return statusCounts[status.ordinal()].sum();
+  }
+}
@@ -1,189 +1,759 @@
 package org.homework1.service;
 
 import org.homework1.dto.IdNameDto;
+import org.homework1.dto.IdNamePage;
+import org.homework1.dto.ImportError;
+import org.homework1.dto.ImportReport;
+import org.homework1.dto.PancakeSpec;
+import org.homework1.dto.StockLevel;
+import org.homework1.exception.NotFoundException;
+import org.homework1.metrics.LatencyHistogram;
+import org.homework1.metrics.MetricsRegistry;
 import org.homework1.model.Ingredient;
+import org.homework1.model.IngredientSet;
 import org.homework1.model.Recipe;
+import org.homework1.persistence.CatalogImportFile;
+import org.homework1.persistence.RecipeCatalogSnapshot;
+import org.homework1.util.ConcurrentUuidMap;
+import org.homework1.util.IdGenerator;
+import org.homework1.util.PersistentUuidMap;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.homework1.constant.ValidationConstants.MAX_NAME_LENGTH;
 import static org.homework1.constant.ValidationConstants.MAX_NUMBER_OF_INGREDIENTS;
+import static org.homework1.constant.ValidationConstants.MAX_PAGE_SIZE;
 
 public class RecipeService {
 
-  private final Map<UUID, Ingredient> ingredientMap = new HashMap<>();
-  private final Set<String> ingredientNames = new HashSet<>();
-  private final Map<UUID, Recipe> recipeMap = new HashMap<>();
-  private final Set<String> recipeNames = new HashSet<>();
-  private final ReadWriteLock lock = new ReentrantReadWriteLock();
-  private final Lock readLock = lock.readLock();
-  private final Lock writeLock = lock.writeLock();
+  // Lines parsed together when importing; bounds what is held besides the accepted records
+  static final int IMPORT_BATCH_SIZE = 4096;
+
+  /**
+   * One point-in-time version of the catalog, made only of persistent structures. Writers derive
+   * the next version from the current one, sharing everything they did not change, and swap it in.
+   * The resolution stamp only moves when a recipe may resolve differently; adding ingredients or
+   * recipes keeps it, so cached resolutions survive those writes.
+   */
+  private record Catalog(long version,
+                         long resolutionStamp,
+                         PersistentUuidMap<Ingredient> ingredients,
+                         PersistentUuidMap<Recipe> recipes,
+                         PersistentUuidMap<PersistentUuidMap<UUID>> recipesByIngredient,
+                         NameIndex ingredientsByName,
+                         NameIndex recipesByName) {
+
+    static final Catalog EMPTY = new Catalog(0, 0, PersistentUuidMap.empty(), PersistentUuidMap.empty(),
+        PersistentUuidMap.empty(), NameIndex.EMPTY, NameIndex.EMPTY);
+  }
+
+  private record ResolvedRecipe(long resolutionStamp, IngredientSet ingredients) {
+  }
+
+  // Readers take the current version with this one volatile read and never lock
+  private volatile Catalog catalog = Catalog.EMPTY;
+  // Lets resolveRecipe skip resolving again; an entry is only used while its resolution stamp is current
+  private final ConcurrentUuidMap<ResolvedRecipe> resolvedRecipes = new ConcurrentUuidMap<>();
+  // Reserved and consumed by OrderService without the catalog lock
+  private final IngredientStock stock = new IngredientStock();
+  private final IdGenerator ids;
+  // Serializes writers only
+  private final Lock writeLock;
+  private final MetricsRegistry metrics;
+  private final LatencyHistogram createIngredientLatency;
+  private final LatencyHistogram removeIngredientLatency;
+  private final LatencyHistogram getIngredientNameLatency;
+  private final LatencyHistogram resolveIngredientsLatency;
+  private final LatencyHistogram resolveRecipeLatency;
+  private final LatencyHistogram resolvePancakesLatency;
+  private final LatencyHistogram createRecipeLatency;
+  private final LatencyHistogram removeRecipeLatency;
+  private final LatencyHistogram updateRecipeLatency;
+  private final LatencyHistogram getRecipeIngredientsLatency;
+  private final LatencyHistogram findRecipesByIngredientLatency;
+  private final LatencyHistogram listRecipesLatency;
+  private final LatencyHistogram listRecipesPageLatency;
+  private final LatencyHistogram searchRecipesLatency;
+  private final LatencyHistogram listIngredientsLatency;
+  private final LatencyHistogram searchIngredientsLatency;
+  private final LatencyHistogram viewRecipeLatency;
+  private final LatencyHistogram saveSnapshotLatency;
+  private final LatencyHistogram loadSnapshotLatency;
+  private final LatencyHistogram importCatalogLatency;
+  private final LatencyHistogram validateRecipeIngredientsLatency;
+
+  public RecipeService() {
+    this(new MetricsRegistry());
+  }
+
+  public RecipeService(MetricsRegistry metrics) {
+    this(metrics, IdGenerator.defaultGenerator());
+  }
+
+  public RecipeService(MetricsRegistry metrics, IdGenerator ids) {
+    this.metrics = Objects.requireNonNull(metrics, "Metrics registry cannot be null");
+    this.ids = Objects.requireNonNull(ids, "ID generator cannot be null");
+    writeLock = metrics.instrument("RecipeService.writeLock", new ReentrantLock());
+    createIngredientLatency = metrics.latency("RecipeService.createIngredient");
+    removeIngredientLatency = metrics.latency("RecipeService.removeIngredient");
+    getIngredientNameLatency = metrics.latency("RecipeService.getIngredientName");
+    resolveIngredientsLatency = metrics.latency("RecipeService.resolveIngredients");
+    resolveRecipeLatency = metrics.latency("RecipeService.resolveRecipe");
+    resolvePancakesLatency = metrics.latency("RecipeService.resolvePancakes");
+    createRecipeLatency = metrics.latency("RecipeService.createRecipe");
+    removeRecipeLatency = metrics.latency("RecipeService.removeRecipe");
+    updateRecipeLatency = metrics.latency("RecipeService.updateRecipe");
+    getRecipeIngredientsLatency = metrics.latency("RecipeService.getRecipeIngredients");
+    findRecipesByIngredientLatency = metrics.latency("RecipeService.findRecipesByIngredient");
+    listRecipesLatency = metrics.latency("RecipeService.listRecipes");
+    listRecipesPageLatency = metrics.latency("RecipeService.listRecipesPage");
+    searchRecipesLatency = metrics.latency("RecipeService.searchRecipes");
+    listIngredientsLatency = metrics.latency("RecipeService.listIngredients");
+    searchIngredientsLatency = metrics.latency("RecipeService.searchIngredients");
+    viewRecipeLatency = metrics.latency("RecipeService.viewRecipe");
+    saveSnapshotLatency = metrics.latency("RecipeService.saveSnapshot");
+    loadSnapshotLatency = metrics.latency("RecipeService.loadSnapshot");
+    importCatalogLatency = metrics.latency("RecipeService.importCatalog");
+    validateRecipeIngredientsLatency = metrics.latency("RecipeService.validateRecipeIngredients");
+  }
+
+  public MetricsRegistry getMetrics() {
+    return metrics;
+  }
 
   public Ingredient createIngredient(String name) {
-    writeLock.lock();
+    final long start = System.nanoTime();
     try {
-      return createIngredientInternal(name);
+      writeLock.lock();
+      try {
+        return createIngredientInternal(name);
+      } finally {
+        writeLock.unlock();
+      }
     } finally {
-      writeLock.unlock();
+      createIngredientLatency.recordSince(start);
     }
   }
 
   private Ingredient createIngredientInternal(String name) {
-    validateIngredientName(name);
-    Ingredient ingredient = new Ingredient(name);
-    ingredientMap.put(ingredient.getId(), ingredient);
-    ingredientNames.add(name);
+    final Catalog current = catalog;
+    validateIngredientName(current, name);
+    Ingredient ingredient = new Ingredient(ids, name);
+    catalog = new Catalog(current.version() + 1, current.resolutionStamp(), current.ingredients().with(ingredient.getId(), ingredient), current.recipes(), current.recipesByIngredient(),
+        current.ingredientsByName().with(new IdNameDto(ingredient.getId(), name)), current.recipesByName());
     return ingredient;
   }
 
   public void removeIngredient(UUID id) {
-    writeLock.lock();
+    final long start = System.nanoTime();
     try {
-      removeIngredientInternal(id);
+      writeLock.lock();
+      try {
+        removeIngredientInternal(id);
+      } finally {
+        writeLock.unlock();
+      }
     } finally {
-      writeLock.unlock();
+      removeIngredientLatency.recordSince(start);
     }
   }
 
   private void removeIngredientInternal(UUID id) {
-    final Set<String> usedInRecipes = recipeMap.values().stream()
-        .filter(recipe -> recipe.getIngredients().contains(id))
-        .map(Recipe::getName)
+    final Catalog current = catalog;
+    final PersistentUuidMap<UUID> recipeIds = current.recipesByIngredient().get(id);
+    final Set<String> usedInRecipes = recipeIds == null ? Set.of() : recipeIds.values().stream()
+        .map(recipeId -> current.recipes().get(recipeId).getName())
         .collect(Collectors.toSet());
     if (!usedInRecipes.isEmpty()) {
       throw new IllegalArgumentException("Ingredient is used in recipes: " + String.join(", ", usedInRecipes));
     }
-    final Ingredient removed = ingredientMap.remove(id);
+    final Ingredient removed = current.ingredients().get(id);
     if (removed == null) {
-      throw new IllegalArgumentException("Ingredient with id " + id + " not found");
+      throw new NotFoundException("Ingredient with id " + id + " not found");
+    }
+    catalog = new Catalog(current.version() + 1, current.resolutionStamp() + 1, current.ingredients().without(id), current.recipes(), current.recipesByIngredient(),
+        current.ingredientsByName().without(removed.getName()), current.recipesByName());
+    stock.remove(id);
+  }
+
+  // No lock: a stock level set while the ingredient is being removed is dropped again by
+  // whichever of the two sees the other's change, since removal publishes before it clears stock
+  public void setStock(UUID ingredientId, long quantity) {
+    checkIngredientExists(catalog, ingredientId);
+    stock.set(ingredientId, quantity);
+    dropStockIfRemoved(ingredientId);
+  }
+
+  public void addStock(UUID ingredientId, long quantity) {
+    checkIngredientExists(catalog, ingredientId);
+    stock.add(ingredientId, quantity);
+    dropStockIfRemoved(ingredientId);
+  }
+
+  public Optional<StockLevel> getStock(UUID ingredientId) {
+    return stock.level(ingredientId);
+  }
+
+  IngredientStock stock() {
+    return stock;
+  }
+
+  private void dropStockIfRemoved(UUID ingredientId) {
+    if (!catalog.ingredients().containsKey(ingredientId)) {
+      stock.remove(ingredientId);
+      throw new NotFoundException("Ingredient with id " + ingredientId + " not found");
+    }
+  }
+
+  private static void checkIngredientExists(Catalog current, UUID ingredientId) {
+    if (!current.ingredients().containsKey(ingredientId)) {
+      throw new NotFoundException("Ingredient with id " + ingredientId + " not found");
     }
-    ingredientNames.remove(removed.getName());
   }
 
   public String getIngredientName(UUID id) {
-    readLock.lock();
+    final long start = System.nanoTime();
     try {
-      return Optional.ofNullable(ingredientMap.get(id))
+      return Optional.ofNullable(catalog.ingredients().get(id))
           .map(Ingredient::getName)
-          .orElseThrow(() -> new IllegalArgumentException("Ingredient with id " + id + " not found"));
+          .orElseThrow(() -> new NotFoundException("Ingredient with id " + id + " not found"));
+    } finally {
+      getIngredientNameLatency.recordSince(start);
+    }
+  }
+
+  public IngredientSet resolveIngredients(List<UUID> ingredients) {
+    final long start = System.nanoTime();
+    try {
+      return resolveIngredientsInternal(catalog, ingredients);
+    } finally {
+      resolveIngredientsLatency.recordSince(start);
+    }
+  }
+
+  public IngredientSet resolveRecipe(UUID recipeId) {
+    final long start = System.nanoTime();
+    try {
+      return resolveRecipeInternal(catalog, recipeId);
+    } finally {
+      resolveRecipeLatency.recordSince(start);
+    }
+  }
+
+  // Every pancake in the batch is resolved against the same catalog version
+  public List<IngredientSet> resolvePancakes(List<PancakeSpec> pancakes) {
+    final long start = System.nanoTime();
+    try {
+      Objects.requireNonNull(pancakes, "Pancakes cannot be null");
+      final Catalog current = catalog;
+      // Recipes share their cached resolution; equal custom lists share one set within the batch
+      final Map<List<UUID>, IngredientSet> custom = new HashMap<>();
+      return pancakes.stream()
+          .map(pancake -> pancake.recipeId() != null
+              ? resolveRecipeInternal(current, pancake.recipeId())
+              : custom.computeIfAbsent(pancake.ingredients(), ingredients -> resolveIngredientsInternal(current, ingredients)))
+          .collect(Collectors.toList());
     } finally {
-      readLock.unlock();
+      resolvePancakesLatency.recordSince(start);
+    }
+  }
+
+  // A resolution cached by a reader of an older version is simply missed by readers of newer ones
+  private IngredientSet resolveRecipeInternal(Catalog current, UUID recipeId) {
+    final ResolvedRecipe resolved = resolvedRecipes.get(recipeId);
+    if (resolved != null && resolved.resolutionStamp() == current.resolutionStamp()) {
+      return resolved.ingredients();
+    }
+    final Recipe recipe = Optional.ofNullable(current.recipes().get(recipeId))
+        .orElseThrow(() -> new NotFoundException("Recipe with id " + recipeId + " not found"));
+    final IngredientSet ingredients = resolveIngredientsInternal(current, recipe.getIngredients());
+    resolvedRecipes.put(recipeId, new ResolvedRecipe(current.resolutionStamp(), ingredients));
+    return ingredients;
+  }
+
+  // Names are copied out rather than looked up later, so a stored pancake keeps no catalog version alive
+  private static IngredientSet resolveIngredientsInternal(Catalog current, List<UUID> ingredients) {
+    validateRecipeIngredientsInternal(current, ingredients);
+    final List<String> names = new ArrayList<>(ingredients.size());
+    for (UUID ingredientId : ingredients) {
+      names.add(current.ingredients().get(ingredientId).getName());
     }
+    return new IngredientSet(ingredients, names);
   }
 
   public UUID createRecipe(String name, List<UUID> ingredients) {
-    writeLock.lock();
+    final long start = System.nanoTime();
     try {
-      return createRecipeInternal(name, ingredients);
+      writeLock.lock();
+      try {
+        return createRecipeInternal(name, ingredients);
+      } finally {
+        writeLock.unlock();
+      }
     } finally {
-      writeLock.unlock();
+      createRecipeLatency.recordSince(start);
     }
   }
 
   private UUID createRecipeInternal(String name, List<UUID> ingredients) {
-    validateRecipeName(name);
-    validateRecipeIngredientsInternal(ingredients);
-    Recipe recipe = new Recipe(name, ingredients);
-    recipeMap.put(recipe.getId(), recipe);
-    recipeNames.add(name);
+    final Catalog current = catalog;
+    validateRecipeName(current, name);
+    validateRecipeIngredientsInternal(current, ingredients);
+    Recipe recipe = new Recipe(ids, name, ingredients);
+    catalog = new Catalog(current.version() + 1, current.resolutionStamp(), current.ingredients(), current.recipes().with(recipe.getId(), recipe),
+        indexIngredients(current.recipesByIngredient(), recipe.getId(), recipe.getIngredients()),
+        current.ingredientsByName(), current.recipesByName().with(new IdNameDto(recipe.getId(), name)));
     return recipe.getId();
   }
 
   public void removeRecipe(UUID id) {
-    writeLock.lock();
+    final long start = System.nanoTime();
     try {
-      removeRecipeInternal(id);
+      writeLock.lock();
+      try {
+        removeRecipeInternal(id);
+      } finally {
+        writeLock.unlock();
+      }
     } finally {
-      writeLock.unlock();
+      removeRecipeLatency.recordSince(start);
     }
   }
 
   private void removeRecipeInternal(UUID id) {
-    final Recipe removed = recipeMap.remove(id);
+    final Catalog current = catalog;
+    final Recipe removed = current.recipes().get(id);
     if (removed == null) {
-      throw new IllegalArgumentException("Recipe with id " + id + " not found");
+      throw new NotFoundException("Recipe with id " + id + " not found");
     }
-    recipeNames.remove(removed.getName());
+    catalog = new Catalog(current.version() + 1, current.resolutionStamp() + 1, current.ingredients(), current.recipes().without(id),
+        unindexIngredients(current.recipesByIngredient(), id, removed.getIngredients()),
+        current.ingredientsByName(), current.recipesByName().without(removed.getName()));
+    resolvedRecipes.remove(id);
   }
 
   public void updateRecipe(UUID id, String name, List<UUID> ingredients) {
-    writeLock.lock();
+    final long start = System.nanoTime();
     try {
-      updateRecipeInternal(id, name, ingredients);
+      writeLock.lock();
+      try {
+        updateRecipeInternal(id, name, ingredients);
+      } finally {
+        writeLock.unlock();
+      }
     } finally {
-      writeLock.unlock();
+      updateRecipeLatency.recordSince(start);
     }
   }
 
+  // The edited recipe replaces the old instance, which readers of earlier versions keep seeing unchanged
   private void updateRecipeInternal(UUID id, String name, List<UUID> ingredients) {
-    validateRecipeName(name);
-    validateRecipeIngredientsInternal(ingredients);
-    final Recipe recipe = recipeMap.get(id);
+    final Catalog current = catalog;
+    validateRecipeName(current, name);
+    validateRecipeIngredientsInternal(current, ingredients);
+    final Recipe recipe = current.recipes().get(id);
     if (recipe == null) {
-      throw new IllegalArgumentException("Recipe with id " + id + " not found");
+      throw new NotFoundException("Recipe with id " + id + " not found");
     }
-    recipe.setName(name);
-    recipe.setIngredients(ingredients);
-    recipeNames.remove(recipe.getName());
-    recipeNames.add(name);
+    final Recipe updated = new Recipe(id, name, ingredients);
+    catalog = new Catalog(current.version() + 1, current.resolutionStamp() + 1, current.ingredients(), current.recipes().with(id, updated),
+        indexIngredients(unindexIngredients(current.recipesByIngredient(), id, recipe.getIngredients()), id,
+            updated.getIngredients()),
+        current.ingredientsByName(), current.recipesByName().without(recipe.getName()).with(new IdNameDto(id, name)));
   }
 
   public List<UUID> getRecipeIngredients(UUID id) {
-    readLock.lock();
+    final long start = System.nanoTime();
     try {
-      return Optional.ofNullable(recipeMap.get(id))
-          .map(Recipe::getIngredients)
-          .orElseThrow(() -> new IllegalArgumentException("Recipe with id " + id + " not found"));
+      return Optional.ofNullable(catalog.recipes().get(id))
+          .map(recipe -> new ArrayList<>(recipe.getIngredients()))
+          .orElseThrow(() -> new NotFoundException("Recipe with id " + id + " not found"));
     } finally {
-      readLock.unlock();
+      getRecipeIngredientsLatency.recordSince(start);
     }
   }
 
-  public List<IdNameDto> listRecipes() {
-    readLock.lock();
+  // Each ingredient maps to the set of recipes using it, kept as a persistent map from recipe ID to itself
+  private static PersistentUuidMap<PersistentUuidMap<UUID>> indexIngredients(
+      PersistentUuidMap<PersistentUuidMap<UUID>> recipesByIngredient, UUID recipeId, List<UUID> ingredients) {
+    for (UUID ingredient : ingredients) {
+      final PersistentUuidMap<UUID> recipes = recipesByIngredient.get(ingredient);
+      recipesByIngredient = recipesByIngredient.with(ingredient,
+          (recipes == null ? PersistentUuidMap.<UUID>empty() : recipes).with(recipeId, recipeId));
+    }
+    return recipesByIngredient;
+  }
+
+  private static PersistentUuidMap<PersistentUuidMap<UUID>> unindexIngredients(
+      PersistentUuidMap<PersistentUuidMap<UUID>> recipesByIngredient, UUID recipeId, List<UUID> ingredients) {
+    for (UUID ingredient : ingredients) {
+      final PersistentUuidMap<UUID> recipes = recipesByIngredient.get(ingredient);
+      if (recipes != null) {
+        final PersistentUuidMap<UUID> remaining = recipes.without(recipeId);
+        recipesByIngredient = remaining.isEmpty()
+            ? recipesByIngredient.without(ingredient)
+            : recipesByIngredient.with(ingredient, remaining);
+      }
+    }
+    return recipesByIngredient;
+  }
+
+  public List<IdNameDto> findRecipesByIngredient(UUID ingredientId) {
+    final long start = System.nanoTime();
     try {
-      return recipeMap.values().stream()
+      final Catalog current = catalog;
+      checkIngredientExists(current, ingredientId);
+      final PersistentUuidMap<UUID> recipeIds = current.recipesByIngredient().get(ingredientId);
+      return (recipeIds == null ? List.<UUID>of() : recipeIds.values()).stream()
+          .map(current.recipes()::get)
           .map(recipe -> new IdNameDto(recipe.getId(), recipe.getName()))
           .sorted(Comparator.comparing(IdNameDto::name))
           .collect(Collectors.toList());
     } finally {
-      readLock.unlock();
+      findRecipesByIngredientLatency.recordSince(start);
+    }
+  }
+
+  // The name index is immutable and only replaced when the recipes change, so it is returned as is
+  public List<IdNameDto> listRecipes() {
+    final long start = System.nanoTime();
+    try {
+      return catalog.recipesByName().list();
+    } finally {
+      listRecipesLatency.recordSince(start);
+    }
+  }
+
+  // Pass a null cursor for the first page, then the previous page's next cursor
+  public IdNamePage listRecipes(String cursor, int limit) {
+    final long start = System.nanoTime();
+    try {
+      return page(catalog.recipesByName(), cursor, limit);
+    } finally {
+      listRecipesPageLatency.recordSince(start);
+    }
+  }
+
+  public List<IdNameDto> searchRecipes(String prefix, int limit) {
+    final long start = System.nanoTime();
+    try {
+      return search(catalog.recipesByName(), prefix, limit);
+    } finally {
+      searchRecipesLatency.recordSince(start);
+    }
+  }
+
+  public IdNamePage listIngredients(String cursor, int limit) {
+    final long start = System.nanoTime();
+    try {
+      return page(catalog.ingredientsByName(), cursor, limit);
+    } finally {
+      listIngredientsLatency.recordSince(start);
+    }
+  }
+
+  public List<IdNameDto> searchIngredients(String prefix, int limit) {
+    final long start = System.nanoTime();
+    try {
+      return search(catalog.ingredientsByName(), prefix, limit);
+    } finally {
+      searchIngredientsLatency.recordSince(start);
+    }
+  }
+
+  // The cursor is the last name on the previous page, so pages stay consistent while entries come and go
+  private static IdNamePage page(NameIndex index, String cursor, int limit) {
+    validatePageSize(limit);
+    // One entry past the page tells whether there is a next one
+    final List<IdNameDto> items = index.range(cursor == null ? null : decodeCursor(cursor), false, null, limit + 1);
+    if (items.size() <= limit) {
+      return new IdNamePage(items, null);
+    }
+    return new IdNamePage(items.subList(0, limit), encodeCursor(items.get(limit - 1).name()));
+  }
+
+  private static List<IdNameDto> search(NameIndex index, String prefix, int limit) {
+    validatePageSize(limit);
+    if (prefix == null) {
+      throw new IllegalArgumentException("Search prefix cannot be null");
+    }
+    // Every name that starts with the prefix, ignoring case, sorts between these two bounds
+    return index.range(prefix, true, prefix + Character.MAX_VALUE, limit);
+  }
+
+  private static void validatePageSize(int limit) {
+    if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+      throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+    }
+  }
+
+  private static String encodeCursor(String name) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(name.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String decodeCursor(String cursor) {
+    try {
+      return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid page cursor");
     }
   }
 
   public List<String> viewRecipe(UUID id) {
-    readLock.lock();
+    final long start = System.nanoTime();
     try {
-      return Optional.ofNullable(recipeMap.get(id))
+      final Catalog current = catalog;
+      return Optional.ofNullable(current.recipes().get(id))
           .map(recipe -> recipe.getIngredients().stream()
-              .map(ingredientMap::get)
+              .map(current.ingredients()::get)
               .map(Ingredient::getName)
               .collect(Collectors.toList()))
-          .orElseThrow(() -> new IllegalArgumentException("Recipe with id " + id + " not found"));
+          .orElseThrow(() -> new NotFoundException("Recipe with id " + id + " not found"));
+    } finally {
+      viewRecipeLatency.recordSince(start);
+    }
+  }
+
+  // Writes one catalog version, so the file is consistent even while writers carry on
+  public void saveSnapshot(Path file) {
+    final long start = System.nanoTime();
+    try {
+      final Catalog current = catalog;
+      RecipeCatalogSnapshot.write(file, current.ingredients().values(), current.recipes().values());
+    } finally {
+      saveSnapshotLatency.recordSince(start);
+    }
+  }
+
+  // Builds the whole catalog before taking the write lock and swaps it in at once; IDs are kept so existing orders stay valid
+  public void loadSnapshot(Path file) {
+    final long start = System.nanoTime();
+    try {
+      final RecipeCatalogSnapshot.Contents contents = RecipeCatalogSnapshot.read(file);
+      PersistentUuidMap<Ingredient> ingredients = PersistentUuidMap.empty();
+      for (Ingredient ingredient : contents.ingredients()) {
+        ingredients = ingredients.with(ingredient.getId(), ingredient);
+      }
+      PersistentUuidMap<Recipe> recipes = PersistentUuidMap.empty();
+      PersistentUuidMap<PersistentUuidMap<UUID>> recipesByIngredient = PersistentUuidMap.empty();
+      for (Recipe recipe : contents.recipes()) {
+        if (!recipe.getIngredients().stream().allMatch(ingredients::containsKey)) {
+          throw new IllegalArgumentException("Recipe " + recipe.getName() + " references unknown ingredients");
+        }
+        recipes = recipes.with(recipe.getId(), recipe);
+        recipesByIngredient = indexIngredients(recipesByIngredient, recipe.getId(), recipe.getIngredients());
+      }
+      final NameIndex ingredientsByName = NameIndex.of(contents.ingredients().stream()
+          .map(ingredient -> new IdNameDto(ingredient.getId(), ingredient.getName()))
+          .collect(Collectors.toList()));
+      final NameIndex recipesByName = NameIndex.of(contents.recipes().stream()
+          .map(recipe -> new IdNameDto(recipe.getId(), recipe.getName()))
+          .collect(Collectors.toList()));
+      writeLock.lock();
+      try {
+        final Catalog previous = catalog;
+        catalog = new Catalog(previous.version() + 1, previous.resolutionStamp() + 1, ingredients, recipes,
+            recipesByIngredient, ingredientsByName, recipesByName);
+        resolvedRecipes.clear();
+        // Stock of ingredients the snapshot no longer has would otherwise linger with no way to reach it
+        previous.ingredients().forEachValue(ingredient -> {
+          if (!catalog.ingredients().containsKey(ingredient.getId())) {
+            stock.remove(ingredient.getId());
+          }
+        });
+      } finally {
+        writeLock.unlock();
+      }
     } finally {
-      readLock.unlock();
+      loadSnapshotLatency.recordSince(start);
+    }
+  }
+
+  /**
+   * Adds the ingredients and recipes listed in a {@link CatalogImportFile}. Every record is checked
+   * on its own and a bad one is reported and left out without failing the others. The file is read
+   * in bounded batches of lines, each parsed and checked in parallel, so only
+   * the accepted records are kept rather than the whole file. They are then checked against a
+   * snapshot of the catalog and published as one new catalog version under a single write lock
+   * acquisition. If another writer got in first, the catalog-dependent checks are redone against
+   * its version under the lock.
+   */
+  public ImportReport importCatalog(Path file) {
+    final long start = System.nanoTime();
+    try {
+      final CatalogImportFile.Format format = CatalogImportFile.Format.of(file);
+      final List<ImportError> fileErrors = new ArrayList<>();
+      final List<CatalogImportFile.Entry> accepted = new ArrayList<>();
+      // Names compare exactly, as in the name index; the first record with a name wins
+      final Map<String, Long> ingredientLines = new HashMap<>();
+      final Map<String, Long> recipeLines = new HashMap<>();
+      CatalogImportFile.readBatches(file, IMPORT_BATCH_SIZE, lines -> {
+        final CatalogImportFile.Entry[] entries = new CatalogImportFile.Entry[lines.size()];
+        final String[] problems = new String[lines.size()];
+        IntStream.range(0, lines.size()).parallel().forEach(i -> {
+          try {
+            entries[i] = CatalogImportFile.parse(format, lines.get(i));
+            if (entries[i] != null) {
+              validateImportEntry(entries[i]);
+            }
+          } catch (IllegalArgumentException e) {
+            entries[i] = null;
+            problems[i] = e.getMessage();
+          }
+        });
+        for (int i = 0; i < entries.length; i++) {
+          final CatalogImportFile.Entry entry = entries[i];
+          if (entry == null) {
+            if (problems[i] != null) {
+              fileErrors.add(new ImportError(lines.get(i).number(), problems[i]));
+            }
+            continue;
+          }
+          final boolean ingredient = entry.kind() == CatalogImportFile.Kind.INGREDIENT;
+          final Long firstLine = (ingredient ? ingredientLines : recipeLines).putIfAbsent(entry.name(), entry.line());
+          if (firstLine != null) {
+            fileErrors.add(new ImportError(entry.line(), (ingredient ? "Ingredient " : "Recipe ") + entry.name()
+                + " is already imported on line " + firstLine));
+          } else {
+            accepted.add(entry);
+          }
+        }
+      });
+      final List<Ingredient> newIngredients = accepted.parallelStream()
+          .filter(entry -> entry.kind() == CatalogImportFile.Kind.INGREDIENT)
+          .map(entry -> new Ingredient(ids, entry.name()))
+          .collect(Collectors.toList());
+      final List<CatalogImportFile.Entry> recipeEntries = accepted.stream()
+          .filter(entry -> entry.kind() == CatalogImportFile.Kind.RECIPE)
+          .collect(Collectors.toList());
+      final List<UUID> recipeIds = recipeEntries.stream()
+          .map(entry -> ids.nextId())
+          .collect(Collectors.toList());
+
+      final Catalog snapshot = catalog;
+      ImportPlan plan = planImport(snapshot, newIngredients, recipeEntries, recipeIds, ingredientLines);
+      writeLock.lock();
+      try {
+        if (catalog != snapshot) {
+          plan = planImport(catalog, newIngredients, recipeEntries, recipeIds, ingredientLines);
+        }
+        catalog = plan.catalog();
+      } finally {
+        writeLock.unlock();
+      }
+      final List<ImportError> errors = new ArrayList<>(fileErrors);
+      errors.addAll(plan.errors());
+      errors.sort(Comparator.comparingLong(ImportError::line));
+      return new ImportReport(plan.ingredientsImported(), plan.recipesImported(), errors);
+    } finally {
+      importCatalogLatency.recordSince(start);
+    }
+  }
+
+  private record ImportPlan(Catalog catalog, int ingredientsImported, int recipesImported, List<ImportError> errors) {
+  }
+
+  // Checks that need no catalog, so they run on each record in parallel
+  private static void validateImportEntry(CatalogImportFile.Entry entry) {
+    validateName(entry.name());
+    if (entry.kind() == CatalogImportFile.Kind.RECIPE) {
+      if (entry.ingredients().isEmpty()) {
+        throw new IllegalArgumentException("Recipe must have at least one ingredient");
+      }
+      if (entry.ingredients().size() > MAX_NUMBER_OF_INGREDIENTS) {
+        throw new IllegalArgumentException("Recipe cannot have more than " + MAX_NUMBER_OF_INGREDIENTS + " ingredients");
+      }
+    }
+  }
+
+  // Builds the catalog version that adds the batch to the given one; recipes may use ingredients
+  // already in the catalog or imported alongside them
+  private static ImportPlan planImport(Catalog current, List<Ingredient> ingredients,
+                                       List<CatalogImportFile.Entry> recipeEntries, List<UUID> recipeIds,
+                                       Map<String, Long> ingredientLines) {
+    final List<ImportError> errors = new ArrayList<>();
+    final Map<String, UUID> importedIngredients = new HashMap<>();
+    PersistentUuidMap<Ingredient> ingredientsById = current.ingredients();
+    NameIndex ingredientsByName = current.ingredientsByName();
+    for (Ingredient ingredient : ingredients) {
+      if (current.ingredientsByName().find(ingredient.getName()) != null) {
+        errors.add(new ImportError(ingredientLines.get(ingredient.getName()),
+            "Ingredient with name " + ingredient.getName() + " already exists"));
+        continue;
+      }
+      importedIngredients.put(ingredient.getName(), ingredient.getId());
+      ingredientsById = ingredientsById.with(ingredient.getId(), ingredient);
+      ingredientsByName = ingredientsByName.with(new IdNameDto(ingredient.getId(), ingredient.getName()));
+    }
+    final Recipe[] recipes = new Recipe[recipeEntries.size()];
+    final String[] problems = new String[recipeEntries.size()];
+    IntStream.range(0, recipeEntries.size()).parallel().forEach(i -> {
+      final CatalogImportFile.Entry entry = recipeEntries.get(i);
+      if (current.recipesByName().find(entry.name()) != null) {
+        problems[i] = "Recipe with name " + entry.name() + " already exists";
+        return;
+      }
+      final List<UUID> ingredientIds = new ArrayList<>(entry.ingredients().size());
+      final Set<String> unknownIngredients = new LinkedHashSet<>();
+      for (String name : entry.ingredients()) {
+        UUID ingredientId = importedIngredients.get(name);
+        if (ingredientId == null) {
+          final IdNameDto existing = current.ingredientsByName().find(name);
+          ingredientId = existing == null ? null : existing.id();
+        }
+        if (ingredientId == null) {
+          unknownIngredients.add(name);
+        } else {
+          ingredientIds.add(ingredientId);
+        }
+      }
+      if (!unknownIngredients.isEmpty()) {
+        problems[i] = "Unknown ingredients: " + String.join(", ", unknownIngredients);
+      } else {
+        recipes[i] = new Recipe(recipeIds.get(i), entry.name(), ingredientIds);
+      }
+    });
+    PersistentUuidMap<Recipe> recipesById = current.recipes();
+    PersistentUuidMap<PersistentUuidMap<UUID>> recipesByIngredient = current.recipesByIngredient();
+    NameIndex recipesByName = current.recipesByName();
+    int recipesImported = 0;
+    for (int i = 0; i < recipes.length; i++) {
+      final Recipe recipe = recipes[i];
+      if (recipe == null) {
+        errors.add(new ImportError(recipeEntries.get(i).line(), problems[i]));
+        continue;
+      }
+      recipesById = recipesById.with(recipe.getId(), recipe);
+      recipesByIngredient = indexIngredients(recipesByIngredient, recipe.getId(), recipe.getIngredients());
+      recipesByName = recipesByName.with(new IdNameDto(recipe.getId(), recipe.getName()));
+      recipesImported++;
     }
+    final Catalog next = new Catalog(current.version() + 1, current.resolutionStamp(), ingredientsById, recipesById, recipesByIngredient,
+        ingredientsByName, recipesByName);
+    return new ImportPlan(next, importedIngredients.size(), recipesImported, errors);
   }
 
-  private void validateIngredientName(String name) {
+  private static void validateIngredientName(Catalog current, String name) {
     validateName(name);
-    if (ingredientNames.contains(name)) {
+    if (current.ingredientsByName().find(name) != null) {
       throw new IllegalArgumentException("Ingredient with name " + name + " already exists");
     }
   }
 
-  private void validateRecipeName(String name) {
+  private static void validateRecipeName(Catalog current, String name) {
     validateName(name);
-    if (recipeNames.contains(name)) {
+    if (current.recipesByName().find(name) != null) {
       throw new IllegalArgumentException("Recipe with name " + name + " already exists");
     }
   }
 
-  private void validateName(String name) {
+  private static void validateName(String name) {
     if (name == null || name.isBlank()) {
       throw new IllegalArgumentException("Name is required and cannot be blank");
     }
@@ -193,15 +763,15 @@ public class RecipeService {
   }
 
   public void validateRecipeIngredients(List<UUID> ingredients) {
-    readLock.lock();
+    final long start = System.nanoTime();
     try {
-      validateRecipeIngredientsInternal(ingredients);
+      validateRecipeIngredientsInternal(catalog, ingredients);
     } finally {
-      readLock.unlock();
+      validateRecipeIngredientsLatency.recordSince(start);
     }
   }
 
-  private void validateRecipeIngredientsInternal(List<UUID> ingredients) {
+  private static void validateRecipeIngredientsInternal(Catalog current, List<UUID> ingredients) {
     if (ingredients == null || ingredients.isEmpty()) {
       throw new IllegalArgumentException("Recipe must have at least one ingredient");
     }
@@ -209,7 +779,7 @@ public class RecipeService {
       throw new IllegalArgumentException("Recipe cannot have more than " + MAX_NUMBER_OF_INGREDIENTS + " ingredients");
     }
     final Set<UUID> unknownIngredients = ingredients.stream()
-        .filter(ingredient -> !ingredientMap.containsKey(ingredient))
+        .filter(ingredient -> ingredient == null || !current.ingredients().containsKey(ingredient))
         .collect(Collectors.toSet());
     if (!unknownIngredients.isEmpty()) {
       throw new IllegalArgumentException("Unknown ingredients: " + unknownIngredients.stream()
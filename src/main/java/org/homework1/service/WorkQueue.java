@@ -0,0 +1,143 @@
+package org.homework1.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Queue of order IDs with an express lane that is always served first. Order IDs are spread over
+ * lock-free stripes so that threads adding and taking different orders do not contend; each
+ * stripe is FIFO, and with a single stripe so is the whole queue. Each added order ID is handed
+ * out at most once, and an order picked up some other way is taken out with {@link #remove}, so
+ * the queue only ever holds orders still waiting for it.
+ */
+class WorkQueue {
+
+  // Each stripe is keyed by the order an ID was added in, which keeps it FIFO while still letting
+  // remove find an ID without scanning
+  private final ConcurrentNavigableMap<Long, UUID>[] expressStripes;
+  private final ConcurrentNavigableMap<Long, UUID>[] stripes;
+  private final Map<UUID, Long> sequences = new ConcurrentHashMap<>();
+  private final AtomicLong nextSequence = new AtomicLong();
+  // Only threads that found every stripe empty touch the lock
+  private final AtomicInteger waiters = new AtomicInteger();
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+
+  WorkQueue() {
+    this(1);
+  }
+
+  @SuppressWarnings("unchecked")
+  WorkQueue(int stripeCount) {
+    if (stripeCount <= 0 || Integer.bitCount(stripeCount) != 1) {
+      throw new IllegalArgumentException("Stripe count must be a positive power of two");
+    }
+    expressStripes = new ConcurrentNavigableMap[stripeCount];
+    stripes = new ConcurrentNavigableMap[stripeCount];
+    for (int i = 0; i < stripeCount; i++) {
+      expressStripes[i] = new ConcurrentSkipListMap<>();
+      stripes[i] = new ConcurrentSkipListMap<>();
+    }
+  }
+
+  void add(UUID orderId, boolean express) {
+    final long sequence = nextSequence.getAndIncrement();
+    // OrderService adds and removes an order ID only while holding that order's monitor
+    final Long replaced = sequences.put(orderId, sequence);
+    if (replaced != null) {
+      removeFromStripes(orderId, replaced);
+    }
+    (express ? expressStripes : stripes)[stripe(orderId)].put(sequence, orderId);
+    // A taker registers as a waiter before its last look at the stripes, so it either sees this ID or is signalled
+    if (waiters.get() > 0) {
+      lock.lock();
+      try {
+        notEmpty.signal();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  // For an order that moved on without being taken from this queue
+  void remove(UUID orderId) {
+    final Long sequence = sequences.remove(orderId);
+    if (sequence != null) {
+      removeFromStripes(orderId, sequence);
+    }
+  }
+
+  int size() {
+    return sequences.size();
+  }
+
+  UUID take() throws InterruptedException {
+    UUID orderId = poll();
+    if (orderId != null) {
+      return orderId;
+    }
+    lock.lockInterruptibly();
+    try {
+      waiters.incrementAndGet();
+      try {
+        while ((orderId = poll()) == null) {
+          notEmpty.await();
+        }
+        return orderId;
+      } finally {
+        waiters.decrementAndGet();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  List<UUID> drain(int max) {
+    final List<UUID> orderIds = new ArrayList<>();
+    UUID orderId;
+    while (orderIds.size() < max && (orderId = poll()) != null) {
+      orderIds.add(orderId);
+    }
+    return orderIds;
+  }
+
+  // Starts at a random stripe so concurrent takers spread out instead of all draining the first one
+  private UUID poll() {
+    final int start = ThreadLocalRandom.current().nextInt(stripes.length);
+    final UUID orderId = poll(expressStripes, start);
+    return orderId != null ? orderId : poll(stripes, start);
+  }
+
+  private UUID poll(ConcurrentNavigableMap<Long, UUID>[] queues, int start) {
+    for (int i = 0; i < queues.length; i++) {
+      final Map.Entry<Long, UUID> entry = queues[(start + i) & (queues.length - 1)].pollFirstEntry();
+      if (entry != null) {
+        sequences.remove(entry.getValue(), entry.getKey());
+        return entry.getValue();
+      }
+    }
+    return null;
+  }
+
+  private void removeFromStripes(UUID orderId, long sequence) {
+    final int stripe = stripe(orderId);
+    if (stripes[stripe].remove(sequence) == null) {
+      expressStripes[stripe].remove(sequence);
+    }
+  }
+
+  private int stripe(UUID orderId) {
+    final int hash = orderId.hashCode();
+    return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+  }
+}
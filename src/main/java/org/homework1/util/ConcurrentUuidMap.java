@@ -0,0 +1,166 @@
+package org.homework1.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Thread-safe {@link UuidMap}: the keys are spread over segments by the high bits of their hash,
+ * and each segment is one {@link UuidMap} guarded by a {@link StampedLock}. Lookups run under an
+ * optimistic read and only take the read lock when a writer got in the way, so readers never
+ * write to shared memory. Iteration is weakly consistent: each segment is copied under its read
+ * lock, one after the other.
+ */
+public final class ConcurrentUuidMap<V> {
+
+  private static final int DEFAULT_SEGMENTS = 16;
+
+  private static final class Segment<V> {
+    final StampedLock lock = new StampedLock();
+    final UuidMap<V> map;
+
+    Segment(int expectedSize) {
+      map = new UuidMap<>(expectedSize);
+    }
+  }
+
+  private final Segment<V>[] segments;
+  private final int segmentShift;
+
+  public ConcurrentUuidMap() {
+    this(DEFAULT_SEGMENTS, 0);
+  }
+
+  @SuppressWarnings("unchecked")
+  public ConcurrentUuidMap(int segmentCount, int expectedSize) {
+    if (segmentCount <= 0 || Integer.bitCount(segmentCount) != 1) {
+      throw new IllegalArgumentException("Segment count must be a positive power of two");
+    }
+    if (expectedSize < 0) {
+      throw new IllegalArgumentException("Expected size cannot be negative");
+    }
+    segments = new Segment[segmentCount];
+    for (int i = 0; i < segmentCount; i++) {
+      segments[i] = new Segment<>(expectedSize / segmentCount);
+    }
+    segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+  }
+
+  public V get(UUID key) {
+    Objects.requireNonNull(key, "Key cannot be null");
+    final long msb = key.getMostSignificantBits();
+    final long lsb = key.getLeastSignificantBits();
+    final Segment<V> segment = segmentFor(msb, lsb);
+    final long stamp = segment.lock.tryOptimisticRead();
+    final V value = segment.map.get(msb, lsb);
+    if (segment.lock.validate(stamp)) {
+      return value;
+    }
+    final long readStamp = segment.lock.readLock();
+    try {
+      return segment.map.get(msb, lsb);
+    } finally {
+      segment.lock.unlockRead(readStamp);
+    }
+  }
+
+  public boolean containsKey(UUID key) {
+    return get(key) != null;
+  }
+
+  public V put(UUID key, V value) {
+    final Segment<V> segment = segmentFor(key);
+    final long stamp = segment.lock.writeLock();
+    try {
+      return segment.map.put(key, value);
+    } finally {
+      segment.lock.unlockWrite(stamp);
+    }
+  }
+
+  public V putIfAbsent(UUID key, V value) {
+    final Segment<V> segment = segmentFor(key);
+    final long stamp = segment.lock.writeLock();
+    try {
+      return segment.map.putIfAbsent(key, value);
+    } finally {
+      segment.lock.unlockWrite(stamp);
+    }
+  }
+
+  public V remove(UUID key) {
+    final Segment<V> segment = segmentFor(key);
+    final long stamp = segment.lock.writeLock();
+    try {
+      return segment.map.remove(key);
+    } finally {
+      segment.lock.unlockWrite(stamp);
+    }
+  }
+
+  public void clear() {
+    for (Segment<V> segment : segments) {
+      final long stamp = segment.lock.writeLock();
+      try {
+        segment.map.clear();
+      } finally {
+        segment.lock.unlockWrite(stamp);
+      }
+    }
+  }
+
+  public int size() {
+    int size = 0;
+    for (Segment<V> segment : segments) {
+      final long stamp = segment.lock.readLock();
+      try {
+        size += segment.map.size();
+      } finally {
+        segment.lock.unlockRead(stamp);
+      }
+    }
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  // The action runs outside the segment locks, on a copy of each segment's values
+  public void forEachValue(Consumer<? super V> action) {
+    Objects.requireNonNull(action, "Action cannot be null");
+    for (Segment<V> segment : segments) {
+      copyValues(segment).forEach(action);
+    }
+  }
+
+  public List<V> values() {
+    final List<V> values = new ArrayList<>();
+    for (Segment<V> segment : segments) {
+      values.addAll(copyValues(segment));
+    }
+    return values;
+  }
+
+  private List<V> copyValues(Segment<V> segment) {
+    final long stamp = segment.lock.readLock();
+    try {
+      return segment.map.values();
+    } finally {
+      segment.lock.unlockRead(stamp);
+    }
+  }
+
+  private Segment<V> segmentFor(UUID key) {
+    Objects.requireNonNull(key, "Key cannot be null");
+    return segmentFor(key.getMostSignificantBits(), key.getLeastSignificantBits());
+  }
+
+  // The segment maps probe from the low bits, so segments are picked by the high ones
+  private Segment<V> segmentFor(long msb, long lsb) {
+    return segments.length == 1 ? segments[0] : segments[UuidMap.hash(msb, lsb) >>> segmentShift];
+  }
+}
@@ -0,0 +1,23 @@
+package org.homework1.util;
+
+import java.util.UUID;
+
+/**
+ * Source of IDs for ingredients, recipes, pancakes and orders. Implementations must be safe to
+ * call from many threads at once and must never hand out the same ID twice.
+ */
+@FunctionalInterface
+public interface IdGenerator {
+
+  UUID nextId();
+
+  // Shared by the model constructors that are not given a generator
+  static IdGenerator defaultGenerator() {
+    return TimeOrderedIdGenerator.DEFAULT;
+  }
+
+  // Version 4 IDs from SecureRandom, as the models used to create; every call goes through one shared source
+  static IdGenerator random() {
+    return UUID::randomUUID;
+  }
+}
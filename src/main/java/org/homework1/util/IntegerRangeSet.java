@@ -0,0 +1,109 @@
+package org.homework1.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Immutable set of integers given as ranges. Overlapping and adjacent ranges are merged on
+ * construction; membership is answered from a bitset when the values are small enough, and by
+ * binary search over the merged ranges otherwise.
+ */
+public final class IntegerRangeSet {
+
+  private static final int MAX_BITSET_VALUE = 1 << 16;
+
+  private final int[] starts;
+  private final int[] ends;
+  private final long[] bits;
+
+  private IntegerRangeSet(int[] starts, int[] ends) {
+    this.starts = starts;
+    this.ends = ends;
+    this.bits = ends.length > 0 && ends[ends.length - 1] <= MAX_BITSET_VALUE ? toBits(starts, ends) : null;
+  }
+
+  public static IntegerRangeSet of(IntegerRange... ranges) {
+    Objects.requireNonNull(ranges, "Ranges must not be null");
+    return of(Arrays.asList(ranges));
+  }
+
+  public static IntegerRangeSet of(Collection<IntegerRange> ranges) {
+    Objects.requireNonNull(ranges, "Ranges must not be null");
+    final List<IntegerRange> sorted = new ArrayList<>(ranges);
+    sorted.forEach(range -> Objects.requireNonNull(range, "Range must not be null"));
+    sorted.sort(Comparator.comparingInt(IntegerRange::start));
+    final int[] starts = new int[sorted.size()];
+    final int[] ends = new int[sorted.size()];
+    int count = 0;
+    for (IntegerRange range : sorted) {
+      if (count > 0 && range.start() <= (long) ends[count - 1] + 1) {
+        ends[count - 1] = Math.max(ends[count - 1], range.end());
+      } else {
+        starts[count] = range.start();
+        ends[count] = range.end();
+        count++;
+      }
+    }
+    return new IntegerRangeSet(Arrays.copyOf(starts, count), Arrays.copyOf(ends, count));
+  }
+
+  private static long[] toBits(int[] starts, int[] ends) {
+    final long[] bits = new long[(ends[ends.length - 1] >>> 6) + 1];
+    for (int i = 0; i < starts.length; i++) {
+      for (int value = starts[i]; value <= ends[i]; value++) {
+        bits[value >>> 6] |= 1L << value;
+      }
+    }
+    return bits;
+  }
+
+  public boolean contains(int value) {
+    if (value < 0) {
+      return false;
+    }
+    if (bits != null) {
+      final int word = value >>> 6;
+      return word < bits.length && (bits[word] & (1L << value)) != 0;
+    }
+    final int index = Arrays.binarySearch(starts, value);
+    if (index >= 0) {
+      return true;
+    }
+    final int candidate = -index - 2;
+    return candidate >= 0 && value <= ends[candidate];
+  }
+
+  public boolean isEmpty() {
+    return starts.length == 0;
+  }
+
+  public List<IntegerRange> ranges() {
+    final List<IntegerRange> ranges = new ArrayList<>(starts.length);
+    for (int i = 0; i < starts.length; i++) {
+      ranges.add(new IntegerRange(starts[i], ends[i]));
+    }
+    return ranges;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    IntegerRangeSet that = (IntegerRangeSet) o;
+    return Arrays.equals(starts, that.starts) && Arrays.equals(ends, that.ends);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * Arrays.hashCode(starts) + Arrays.hashCode(ends);
+  }
+
+  @Override
+  public String toString() {
+    return ranges().toString();
+  }
+}
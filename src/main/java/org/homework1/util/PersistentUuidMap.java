@@ -0,0 +1,279 @@
+package org.homework1.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Immutable map keyed by UUID. {@link #with} and {@link #without} return a new map that shares
+ * every node off the changed path with this one, so a change costs a handful of small array
+ * copies however large the map is, and older versions stay valid for anyone still reading them.
+ *
+ * <p>The map is a hash array mapped trie with 32-way nodes. Like {@link UuidMap}, keys are kept
+ * inline as {@code long} pairs next to their values, so there is no per-entry object. The path
+ * through the trie is taken from a bijective mix of the full 128 key bits, so two keys always
+ * part before the bits run out and no collision lists are needed. Values must not be null.
+ */
+public final class PersistentUuidMap<V> {
+
+  private static final int BITS = 5;
+  private static final int MASK = (1 << BITS) - 1;
+
+  private static final PersistentUuidMap<?> EMPTY = new PersistentUuidMap<>(Node.EMPTY, 0);
+
+  /**
+   * Entries whose path ends here are kept inline: their keys in {@code keys}, two longs each,
+   * and their values at the front of {@code slots}. Child nodes follow the values. Both are
+   * ordered by the path fragment, as flagged in {@code dataMap} and {@code nodeMap}.
+   */
+  private static final class Node {
+    static final Node EMPTY = new Node(0, 0, new long[0], new Object[0]);
+
+    final int dataMap;
+    final int nodeMap;
+    final long[] keys;
+    final Object[] slots;
+
+    Node(int dataMap, int nodeMap, long[] keys, Object[] slots) {
+      this.dataMap = dataMap;
+      this.nodeMap = nodeMap;
+      this.keys = keys;
+      this.slots = slots;
+    }
+
+    int dataCount() {
+      return Integer.bitCount(dataMap);
+    }
+
+    Node child(int bit) {
+      return (Node) slots[dataCount() + Integer.bitCount(nodeMap & (bit - 1))];
+    }
+  }
+
+  private final Node root;
+  private final int size;
+
+  private PersistentUuidMap(Node root, int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <V> PersistentUuidMap<V> empty() {
+    return (PersistentUuidMap<V>) EMPTY;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @SuppressWarnings("unchecked")
+  public V get(UUID key) {
+    Objects.requireNonNull(key, "Key cannot be null");
+    final long msb = key.getMostSignificantBits();
+    final long lsb = key.getLeastSignificantBits();
+    final long high = high(msb, lsb);
+    final long low = low(lsb);
+    Node node = root;
+    for (int shift = 0; ; shift += BITS) {
+      final int bit = 1 << fragment(high, low, shift);
+      if ((node.dataMap & bit) != 0) {
+        final int index = Integer.bitCount(node.dataMap & (bit - 1));
+        return node.keys[index * 2] == msb && node.keys[index * 2 + 1] == lsb ? (V) node.slots[index] : null;
+      }
+      if ((node.nodeMap & bit) == 0) {
+        return null;
+      }
+      node = node.child(bit);
+    }
+  }
+
+  public boolean containsKey(UUID key) {
+    return get(key) != null;
+  }
+
+  public PersistentUuidMap<V> with(UUID key, V value) {
+    Objects.requireNonNull(key, "Key cannot be null");
+    Objects.requireNonNull(value, "Value cannot be null");
+    final long msb = key.getMostSignificantBits();
+    final long lsb = key.getLeastSignificantBits();
+    final Node updated = with(root, msb, lsb, high(msb, lsb), low(lsb), value, 0);
+    return updated == root ? this : new PersistentUuidMap<>(updated, containsKey(key) ? size : size + 1);
+  }
+
+  public PersistentUuidMap<V> without(UUID key) {
+    Objects.requireNonNull(key, "Key cannot be null");
+    if (!containsKey(key)) {
+      return this;
+    }
+    final long msb = key.getMostSignificantBits();
+    final long lsb = key.getLeastSignificantBits();
+    return new PersistentUuidMap<>(without(root, msb, lsb, high(msb, lsb), low(lsb), 0), size - 1);
+  }
+
+  @SuppressWarnings("unchecked")
+  public void forEachValue(Consumer<? super V> action) {
+    Objects.requireNonNull(action, "Action cannot be null");
+    forEachValue(root, (Consumer<Object>) action);
+  }
+
+  public List<V> values() {
+    final List<V> values = new ArrayList<>(size);
+    forEachValue(values::add);
+    return values;
+  }
+
+  private static void forEachValue(Node node, Consumer<Object> action) {
+    final int dataCount = node.dataCount();
+    for (int i = 0; i < node.slots.length; i++) {
+      if (i < dataCount) {
+        action.accept(node.slots[i]);
+      } else {
+        forEachValue((Node) node.slots[i], action);
+      }
+    }
+  }
+
+  private static Node with(Node node, long msb, long lsb, long high, long low, Object value, int shift) {
+    final int bit = 1 << fragment(high, low, shift);
+    final int dataIndex = Integer.bitCount(node.dataMap & (bit - 1));
+    if ((node.dataMap & bit) != 0) {
+      final long otherMsb = node.keys[dataIndex * 2];
+      final long otherLsb = node.keys[dataIndex * 2 + 1];
+      if (otherMsb == msb && otherLsb == lsb) {
+        if (node.slots[dataIndex] == value) {
+          return node;
+        }
+        final Object[] slots = node.slots.clone();
+        slots[dataIndex] = value;
+        return new Node(node.dataMap, node.nodeMap, node.keys, slots);
+      }
+      // Two keys now share this fragment: the existing entry moves down into a new child
+      final Node merged = merge(otherMsb, otherLsb, high(otherMsb, otherLsb), low(otherLsb), node.slots[dataIndex],
+          msb, lsb, high, low, value, shift + BITS);
+      return dataToChild(node, bit, dataIndex, merged);
+    }
+    if ((node.nodeMap & bit) != 0) {
+      final Node child = node.child(bit);
+      final Node updated = with(child, msb, lsb, high, low, value, shift + BITS);
+      return updated == child ? node : replaceChild(node, bit, updated);
+    }
+    final long[] keys = new long[node.keys.length + 2];
+    System.arraycopy(node.keys, 0, keys, 0, dataIndex * 2);
+    keys[dataIndex * 2] = msb;
+    keys[dataIndex * 2 + 1] = lsb;
+    System.arraycopy(node.keys, dataIndex * 2, keys, dataIndex * 2 + 2, node.keys.length - dataIndex * 2);
+    final Object[] slots = new Object[node.slots.length + 1];
+    System.arraycopy(node.slots, 0, slots, 0, dataIndex);
+    slots[dataIndex] = value;
+    System.arraycopy(node.slots, dataIndex, slots, dataIndex + 1, node.slots.length - dataIndex);
+    return new Node(node.dataMap | bit, node.nodeMap, keys, slots);
+  }
+
+  // A child left with a single entry and no children of its own is folded back into its parent
+  private static Node without(Node node, long msb, long lsb, long high, long low, int shift) {
+    final int bit = 1 << fragment(high, low, shift);
+    if ((node.dataMap & bit) != 0) {
+      final int dataIndex = Integer.bitCount(node.dataMap & (bit - 1));
+      final long[] keys = new long[node.keys.length - 2];
+      System.arraycopy(node.keys, 0, keys, 0, dataIndex * 2);
+      System.arraycopy(node.keys, dataIndex * 2 + 2, keys, dataIndex * 2, keys.length - dataIndex * 2);
+      final Object[] slots = new Object[node.slots.length - 1];
+      System.arraycopy(node.slots, 0, slots, 0, dataIndex);
+      System.arraycopy(node.slots, dataIndex + 1, slots, dataIndex, slots.length - dataIndex);
+      return new Node(node.dataMap & ~bit, node.nodeMap, keys, slots);
+    }
+    final Node updated = without(node.child(bit), msb, lsb, high, low, shift + BITS);
+    if (updated.nodeMap == 0 && updated.dataCount() == 1) {
+      return childToData(node, bit, updated.keys[0], updated.keys[1], updated.slots[0]);
+    }
+    return replaceChild(node, bit, updated);
+  }
+
+  private static Node merge(long msb1, long lsb1, long high1, long low1, Object value1,
+                            long msb2, long lsb2, long high2, long low2, Object value2, int shift) {
+    final int fragment1 = fragment(high1, low1, shift);
+    final int fragment2 = fragment(high2, low2, shift);
+    if (fragment1 == fragment2) {
+      final Node child = merge(msb1, lsb1, high1, low1, value1, msb2, lsb2, high2, low2, value2, shift + BITS);
+      return new Node(0, 1 << fragment1, new long[0], new Object[]{child});
+    }
+    return fragment1 < fragment2
+        ? new Node(1 << fragment1 | 1 << fragment2, 0, new long[]{msb1, lsb1, msb2, lsb2}, new Object[]{value1, value2})
+        : new Node(1 << fragment1 | 1 << fragment2, 0, new long[]{msb2, lsb2, msb1, lsb1}, new Object[]{value2, value1});
+  }
+
+  private static Node replaceChild(Node node, int bit, Node child) {
+    final Object[] slots = node.slots.clone();
+    slots[node.dataCount() + Integer.bitCount(node.nodeMap & (bit - 1))] = child;
+    return new Node(node.dataMap, node.nodeMap, node.keys, slots);
+  }
+
+  private static Node dataToChild(Node node, int bit, int dataIndex, Node child) {
+    final long[] keys = new long[node.keys.length - 2];
+    System.arraycopy(node.keys, 0, keys, 0, dataIndex * 2);
+    System.arraycopy(node.keys, dataIndex * 2 + 2, keys, dataIndex * 2, keys.length - dataIndex * 2);
+    final int dataCount = node.dataCount();
+    final int childIndex = Integer.bitCount(node.nodeMap & (bit - 1));
+    final Object[] slots = new Object[node.slots.length];
+    System.arraycopy(node.slots, 0, slots, 0, dataIndex);
+    System.arraycopy(node.slots, dataIndex + 1, slots, dataIndex, dataCount - dataIndex - 1 + childIndex);
+    slots[dataCount - 1 + childIndex] = child;
+    System.arraycopy(node.slots, dataCount + childIndex, slots, dataCount + childIndex, node.slots.length - dataCount - childIndex);
+    return new Node(node.dataMap & ~bit, node.nodeMap | bit, keys, slots);
+  }
+
+  private static Node childToData(Node node, int bit, long msb, long lsb, Object value) {
+    final int dataIndex = Integer.bitCount(node.dataMap & (bit - 1));
+    final long[] keys = new long[node.keys.length + 2];
+    System.arraycopy(node.keys, 0, keys, 0, dataIndex * 2);
+    keys[dataIndex * 2] = msb;
+    keys[dataIndex * 2 + 1] = lsb;
+    System.arraycopy(node.keys, dataIndex * 2, keys, dataIndex * 2 + 2, node.keys.length - dataIndex * 2);
+    final int dataCount = node.dataCount();
+    final int childIndex = Integer.bitCount(node.nodeMap & (bit - 1));
+    final Object[] slots = new Object[node.slots.length];
+    System.arraycopy(node.slots, 0, slots, 0, dataIndex);
+    slots[dataIndex] = value;
+    System.arraycopy(node.slots, dataIndex, slots, dataIndex + 1, dataCount - dataIndex + childIndex);
+    System.arraycopy(node.slots, dataCount + childIndex + 1, slots, dataCount + childIndex + 1,
+        node.slots.length - dataCount - childIndex - 1);
+    return new Node(node.dataMap | bit, node.nodeMap & ~bit, keys, slots);
+  }
+
+  // The path is 128 bits: high, then low. Both halves are bijections of the key, so distinct keys
+  // always differ somewhere along it
+  private static long high(long msb, long lsb) {
+    return mix(msb ^ mix(lsb));
+  }
+
+  private static long low(long lsb) {
+    return mix(lsb);
+  }
+
+  private static int fragment(long high, long low, int shift) {
+    if (shift + BITS <= Long.SIZE) {
+      return (int) (high >>> shift) & MASK;
+    }
+    if (shift < Long.SIZE) {
+      return (int) (high >>> shift | low << (Long.SIZE - shift)) & MASK;
+    }
+    return (int) (low >>> (shift - Long.SIZE)) & MASK;
+  }
+
+  // Murmur3's 64-bit finalizer, which is invertible
+  private static long mix(long value) {
+    value ^= value >>> 33;
+    value *= 0xff51afd7ed558ccdL;
+    value ^= value >>> 33;
+    value *= 0xc4ceb9fe1a85ec53L;
+    value ^= value >>> 33;
+    return value;
+  }
+}
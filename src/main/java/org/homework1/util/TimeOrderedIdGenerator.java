@@ -0,0 +1,79 @@
+package org.homework1.util;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Version 7 style UUIDs: the first 48 bits are the Unix time in milliseconds, so IDs sort in
+ * creation order and new entries land next to each other in ordered indexes. The rest holds a
+ * node prefix, a lane owned by the calling thread and a per-lane sequence:
+ *
+ * <pre>
+ *   msb: millis (48) | version 7 (4) | sequence high (12)
+ *   lsb: variant 10 (2) | node (14) | lane (24) | sequence low (24)
+ * </pre>
+ *
+ * Each thread takes a lane the first time it asks for an ID and then only touches its own
+ * state, so concurrent callers never contend. Within a lane the (millis, sequence) pair only
+ * grows: a lane that runs out of sequence numbers, or sees the clock go back, carries on from
+ * its last millisecond. The node, random unless given, keeps IDs from other processes apart.
+ */
+public final class TimeOrderedIdGenerator implements IdGenerator {
+
+  static final TimeOrderedIdGenerator DEFAULT = new TimeOrderedIdGenerator();
+
+  private static final int NODE_BITS = 14;
+  private static final int LANE_BITS = 24;
+  private static final int SEQUENCE_LOW_BITS = 24;
+  private static final long MAX_SEQUENCE = (1L << (12 + SEQUENCE_LOW_BITS)) - 1;
+
+  private static final class Lane {
+    final long prefix;
+    long millis = Long.MIN_VALUE;
+    long sequence;
+
+    Lane(long prefix) {
+      this.prefix = prefix;
+    }
+  }
+
+  private final long node;
+  private final AtomicInteger nextLane = new AtomicInteger();
+  private final ThreadLocal<Lane> lanes = ThreadLocal.withInitial(this::newLane);
+
+  public TimeOrderedIdGenerator() {
+    this(new SecureRandom().nextInt(1 << NODE_BITS));
+  }
+
+  public TimeOrderedIdGenerator(int node) {
+    if (node < 0 || node >= 1 << NODE_BITS) {
+      throw new IllegalArgumentException("Node must be between 0 and " + ((1 << NODE_BITS) - 1));
+    }
+    this.node = node;
+  }
+
+  @Override
+  public UUID nextId() {
+    final Lane lane = lanes.get();
+    final long now = System.currentTimeMillis();
+    if (now > lane.millis) {
+      lane.millis = now;
+      lane.sequence = 0;
+    } else if (lane.sequence == MAX_SEQUENCE) {
+      lane.millis++;
+      lane.sequence = 0;
+    } else {
+      lane.sequence++;
+    }
+    final long msb = lane.millis << 16 | 0x7000L | lane.sequence >>> SEQUENCE_LOW_BITS;
+    final long lsb = lane.prefix | lane.sequence & ((1L << SEQUENCE_LOW_BITS) - 1);
+    return new UUID(msb, lsb);
+  }
+
+  // Lanes are only handed out twice once 2^24 threads have asked this generator for IDs
+  private Lane newLane() {
+    final long lane = nextLane.getAndIncrement() & ((1L << LANE_BITS) - 1);
+    return new Lane(1L << 63 | node << (LANE_BITS + SEQUENCE_LOW_BITS) | lane << SEQUENCE_LOW_BITS);
+  }
+}
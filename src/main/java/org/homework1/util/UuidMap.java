@@ -0,0 +1,233 @@
+package org.homework1.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Open-addressing hash map keyed by the two {@code long} halves of a {@link UUID}. Keys are
+ * stored inline in one {@code long[]} and values in a parallel array, so an entry costs about
+ * 20 bytes of table space and no node, key or boxed hash objects. Collisions are resolved by
+ * linear probing and removals shift the following entries back, so no tombstones build up.
+ * Values must not be null; a null value marks an empty slot.
+ *
+ * <p>Not thread-safe. {@link #get} never fails or loops on a table that is being changed
+ * concurrently, which lets {@link ConcurrentUuidMap} call it under an optimistic read.
+ */
+public final class UuidMap<V> {
+
+  private static final int MIN_CAPACITY = 8;
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  // Arrays are swapped together on resize, so a reader that loads the table once sees matching lengths
+  private static final class Table {
+    final long[] keys;
+    final Object[] values;
+
+    Table(int capacity) {
+      keys = new long[capacity * 2];
+      values = new Object[capacity];
+    }
+  }
+
+  private Table table;
+  private int size;
+
+  public UuidMap() {
+    this(MIN_CAPACITY);
+  }
+
+  public UuidMap(int expectedSize) {
+    if (expectedSize < 0) {
+      throw new IllegalArgumentException("Expected size cannot be negative");
+    }
+    table = new Table(capacityFor(expectedSize));
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public V get(UUID key) {
+    Objects.requireNonNull(key, "Key cannot be null");
+    return get(key.getMostSignificantBits(), key.getLeastSignificantBits());
+  }
+
+  @SuppressWarnings("unchecked")
+  public V get(long msb, long lsb) {
+    final Table t = table;
+    final int mask = t.values.length - 1;
+    int slot = hash(msb, lsb) & mask;
+    for (int probes = 0; probes <= mask; probes++) {
+      final Object value = t.values[slot];
+      if (value == null) {
+        return null;
+      }
+      if (t.keys[slot * 2] == msb && t.keys[slot * 2 + 1] == lsb) {
+        return (V) value;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return null;
+  }
+
+  public boolean containsKey(UUID key) {
+    return get(key) != null;
+  }
+
+  public V put(UUID key, V value) {
+    Objects.requireNonNull(key, "Key cannot be null");
+    return put(key.getMostSignificantBits(), key.getLeastSignificantBits(), value, false);
+  }
+
+  public V putIfAbsent(UUID key, V value) {
+    Objects.requireNonNull(key, "Key cannot be null");
+    return put(key.getMostSignificantBits(), key.getLeastSignificantBits(), value, true);
+  }
+
+  @SuppressWarnings("unchecked")
+  private V put(long msb, long lsb, V value, boolean onlyIfAbsent) {
+    Objects.requireNonNull(value, "Value cannot be null");
+    final Table t = table;
+    final int mask = t.values.length - 1;
+    int slot = hash(msb, lsb) & mask;
+    while (t.values[slot] != null) {
+      if (t.keys[slot * 2] == msb && t.keys[slot * 2 + 1] == lsb) {
+        final V previous = (V) t.values[slot];
+        if (!onlyIfAbsent) {
+          t.values[slot] = value;
+        }
+        return previous;
+      }
+      slot = (slot + 1) & mask;
+    }
+    t.keys[slot * 2] = msb;
+    t.keys[slot * 2 + 1] = lsb;
+    t.values[slot] = value;
+    if (++size > maxSize(t.values.length)) {
+      resize(t.values.length * 2);
+    }
+    return null;
+  }
+
+  public V remove(UUID key) {
+    Objects.requireNonNull(key, "Key cannot be null");
+    return remove(key.getMostSignificantBits(), key.getLeastSignificantBits());
+  }
+
+  @SuppressWarnings("unchecked")
+  public V remove(long msb, long lsb) {
+    final Table t = table;
+    final int mask = t.values.length - 1;
+    int slot = hash(msb, lsb) & mask;
+    while (t.values[slot] != null) {
+      if (t.keys[slot * 2] == msb && t.keys[slot * 2 + 1] == lsb) {
+        final V removed = (V) t.values[slot];
+        shiftBack(t, slot);
+        size--;
+        return removed;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return null;
+  }
+
+  // Moves later entries of the probe run into the gap unless that would put them before their home slot
+  private static void shiftBack(Table t, int gap) {
+    final int mask = t.values.length - 1;
+    int slot = gap;
+    while (true) {
+      slot = (slot + 1) & mask;
+      if (t.values[slot] == null) {
+        break;
+      }
+      final int home = hash(t.keys[slot * 2], t.keys[slot * 2 + 1]) & mask;
+      if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+        t.keys[gap * 2] = t.keys[slot * 2];
+        t.keys[gap * 2 + 1] = t.keys[slot * 2 + 1];
+        t.values[gap] = t.values[slot];
+        gap = slot;
+      }
+    }
+    t.values[gap] = null;
+  }
+
+  public void clear() {
+    table = new Table(MIN_CAPACITY);
+    size = 0;
+  }
+
+  @SuppressWarnings("unchecked")
+  public void forEachValue(Consumer<? super V> action) {
+    Objects.requireNonNull(action, "Action cannot be null");
+    for (Object value : table.values) {
+      if (value != null) {
+        action.accept((V) value);
+      }
+    }
+  }
+
+  public List<V> values() {
+    final List<V> values = new ArrayList<>(size);
+    forEachValue(values::add);
+    return values;
+  }
+
+  public List<UUID> keys() {
+    final Table t = table;
+    final List<UUID> keys = new ArrayList<>(size);
+    for (int slot = 0; slot < t.values.length; slot++) {
+      if (t.values[slot] != null) {
+        keys.add(new UUID(t.keys[slot * 2], t.keys[slot * 2 + 1]));
+      }
+    }
+    return keys;
+  }
+
+  private void resize(int capacity) {
+    if (capacity > MAX_CAPACITY) {
+      throw new IllegalStateException("UUID map cannot hold more than " + maxSize(MAX_CAPACITY) + " entries");
+    }
+    final Table old = table;
+    final Table resized = new Table(capacity);
+    final int mask = capacity - 1;
+    for (int i = 0; i < old.values.length; i++) {
+      if (old.values[i] != null) {
+        final long msb = old.keys[i * 2];
+        final long lsb = old.keys[i * 2 + 1];
+        int slot = hash(msb, lsb) & mask;
+        while (resized.values[slot] != null) {
+          slot = (slot + 1) & mask;
+        }
+        resized.keys[slot * 2] = msb;
+        resized.keys[slot * 2 + 1] = lsb;
+        resized.values[slot] = old.values[i];
+      }
+    }
+    table = resized;
+  }
+
+  // Random UUIDs are already well mixed, but time-ordered ones are not, so every bit is folded in
+  static int hash(long msb, long lsb) {
+    long h = (msb ^ Long.rotateLeft(lsb, 32)) * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  private static int maxSize(int capacity) {
+    return capacity / 4 * 3;
+  }
+
+  private static int capacityFor(int expectedSize) {
+    int capacity = MIN_CAPACITY;
+    while (maxSize(capacity) < expectedSize && capacity < MAX_CAPACITY) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+}
@@ -0,0 +1,162 @@
+package org.homework1.http;
+
+import org.homework1.json.JsonReader;
+import org.homework1.metrics.MetricsRegistry;
+import org.homework1.persistence.OrderLog;
+import org.homework1.service.BuildingService;
+import org.homework1.service.OrderService;
+import org.homework1.service.RecipeService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderHttpServerTest {
+
+  private OrderHttpServer server;
+  private HttpClient client;
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    MetricsRegistry metrics = new MetricsRegistry();
+    BuildingService buildingService = new BuildingService(metrics);
+    RecipeService recipeService = new RecipeService(metrics);
+    OrderService orderService = new OrderService(buildingService, recipeService, OrderLog.none(), metrics);
+    server = new OrderHttpServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+        buildingService, recipeService, orderService);
+    server.start();
+    client = HttpClient.newHttpClient();
+  }
+
+  @AfterEach
+  public void tearDown() {
+    server.close();
+  }
+
+  @Test
+  public void testOrderLifecycle_overHttp() throws Exception {
+    assertEquals(201, send("POST", "/buildings", "{\"building\":1,\"rooms\":[[101,199]]}").statusCode());
+    String ingredientId = field(send("POST", "/ingredients", "{\"name\":\"Dark chocolate\"}").body(), "id");
+    String recipeId = field(send("POST", "/recipes",
+        "{\"name\":\"Sweet Pancake\",\"ingredients\":[\"" + ingredientId + "\"]}").body(), "id");
+    String orderId = field(send("POST", "/orders", "{\"building\":1,\"room\":101}").body(), "id");
+
+    assertEquals(200, send("PUT", "/ingredients/" + ingredientId + "/stock", "{\"quantity\":3}").statusCode());
+    assertEquals(204, send("POST", "/orders/" + orderId + "/pancakes", "{\"recipe\":\"" + recipeId + "\",\"count\":2}").statusCode());
+    String stock = send("GET", "/ingredients/" + ingredientId + "/stock", null).body();
+    assertTrue(stock.contains("\"available\":1,\"reserved\":2"), stock);
+    assertEquals(400, send("POST", "/orders/" + orderId + "/pancakes", "{\"recipe\":\"" + recipeId + "\",\"count\":2}").statusCode(),
+        "Out of stock");
+    assertEquals(204, send("POST", "/orders/" + orderId + "/complete", "{\"express\":true}").statusCode());
+    assertEquals("COMPLETED", field(send("GET", "/orders/" + orderId, null).body(), "status"));
+    assertEquals(204, send("POST", "/orders/" + orderId + "/prepare", null).statusCode());
+
+    HttpResponse<String> run = send("POST", "/delivery-runs/claim?max=5", null);
+    assertEquals(200, run.statusCode());
+    assertTrue(run.body().contains(orderId), "Claimed run should contain the prepared order");
+    assertEquals(204, send("POST", "/orders/" + orderId + "/deliver", null).statusCode());
+    assertEquals("DELIVERED", field(send("GET", "/orders/" + orderId, null).body(), "status"));
+  }
+
+  @Test
+  public void testErrors_mapToStatusCodes() throws Exception {
+    assertEquals(400, send("POST", "/orders", "{\"building\":1,").statusCode(), "Malformed JSON");
+    assertEquals(400, send("GET", "/orders/not-a-uuid", null).statusCode(), "Invalid ID");
+    assertEquals(404, send("GET", "/orders/" + java.util.UUID.randomUUID(), null).statusCode(), "Unknown order");
+    assertEquals(405, send("PUT", "/orders", "{}").statusCode(), "Unsupported method");
+    assertEquals(404, send("GET", "/ordersfoo", null).statusCode(), "Path that only starts with a resource name");
+    assertEquals(404, send("DELETE", "/orders/" + java.util.UUID.randomUUID() + "/pancakes/"
+        + java.util.UUID.randomUUID() + "/extra", null).statusCode(), "Extra path segment");
+    HttpResponse<String> error = send("POST", "/orders", "{\"building\":1,\"room\":101}");
+    assertEquals(404, error.statusCode(), "Unknown building");
+    assertNotNull(field(error.body(), "error"));
+  }
+
+  @Test
+  public void testRequestBody_limitedWithoutContentLength() throws Exception {
+    byte[] padding = " ".repeat((1 << 20) + 1).getBytes(StandardCharsets.US_ASCII);
+    ByteArrayOutputStream chunked = new ByteArrayOutputStream();
+    chunked.write((Integer.toHexString(padding.length + 2) + "\r\n{").getBytes(StandardCharsets.US_ASCII));
+    chunked.write(padding);
+    chunked.write("}\r\n0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+
+    assertEquals(413, sendRaw("POST /ingredients", "Transfer-Encoding: chunked", chunked.toByteArray()), "Oversized chunked body");
+    assertEquals(400, sendRaw("POST /ingredients", "Transfer-Encoding: chunked\r\nContent-Length: lots",
+        "2\r\n{}\r\n0\r\n\r\n".getBytes(StandardCharsets.US_ASCII)), "Invalid Content-Length");
+  }
+
+  @Test
+  public void testMetrics_includeRequestLatencies() throws Exception {
+    send("GET", "/recipes", null);
+    HttpResponse<String> metrics = send("GET", "/metrics", null);
+
+    assertEquals(200, metrics.statusCode());
+    assertTrue(metrics.body().contains("\"OrderHttpServer.recipes\":{\"count\":1"), metrics.body());
+    assertTrue(metrics.body().contains("\"RecipeService.listRecipes\""), "Service latencies should be reported alongside");
+  }
+
+  @Test
+  public void testRecipeSearchAndPaging_overHttp() throws Exception {
+    String ingredientId = field(send("POST", "/ingredients", "{\"name\":\"Dark chocolate\"}").body(), "id");
+    for (String name : new String[] {"Dark pancake", "dark waffle", "Plain pancake"}) {
+      send("POST", "/recipes", "{\"name\":\"" + name + "\",\"ingredients\":[\"" + ingredientId + "\"]}");
+    }
+
+    HttpResponse<String> search = send("GET", "/recipes?prefix=DARK%20&limit=5", null);
+    assertEquals(200, search.statusCode());
+    assertTrue(search.body().contains("Dark pancake") && search.body().contains("dark waffle"), search.body());
+    assertFalse(search.body().contains("Plain pancake"), search.body());
+
+    String next = field(send("GET", "/recipes?limit=2", null).body(), "next");
+    HttpResponse<String> lastPage = send("GET", "/recipes?limit=2&cursor=" + next, null);
+    assertTrue(lastPage.body().contains("Plain pancake") && lastPage.body().endsWith("\"next\":null}"), lastPage.body());
+  }
+
+  private HttpResponse<String> send(String method, String path, String body) throws Exception {
+    HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+        .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+        .build();
+    return client.send(request, HttpResponse.BodyHandlers.ofString());
+  }
+
+  // HttpClient neither sends malformed headers nor lets a test choose chunked encoding
+  private int sendRaw(String requestLine, String headers, byte[] body) throws IOException {
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+      OutputStream out = socket.getOutputStream();
+      out.write((requestLine + " HTTP/1.1\r\nHost: localhost\r\n" + headers + "\r\nConnection: close\r\n\r\n")
+          .getBytes(StandardCharsets.US_ASCII));
+      out.write(body);
+      out.flush();
+      String statusLine = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII)).readLine();
+      return Integer.parseInt(statusLine.split(" ")[1]);
+    }
+  }
+
+  private static String field(String body, String name) throws IOException {
+    JsonReader json = new JsonReader(new StringReader(body));
+    json.beginObject();
+    while (json.hasNext()) {
+      if (json.nextName().equals(name)) {
+        return json.nextString();
+      }
+      json.skipValue();
+    }
+    throw new AssertionError("No field " + name + " in " + body);
+  }
+}
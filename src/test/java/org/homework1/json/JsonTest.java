@@ -0,0 +1,87 @@
+package org.homework1.json;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonTest {
+
+  @Test
+  public void testWriter_escapesAndSeparates() throws IOException {
+    StringWriter out = new StringWriter();
+    new JsonWriter(out).beginObject()
+        .name("name").value("Dark \"chocolate\"\n\\")
+        .name("count").value(3)
+        .name("express").value(true)
+        .name("tags").beginArray().value("a").nullValue().beginArray().endArray().endArray()
+        .endObject()
+        .flush();
+
+    assertEquals("{\"name\":\"Dark \\\"chocolate\\\"\\n\\\\\",\"count\":3,\"express\":true,\"tags\":[\"a\",null,[]]}",
+        out.toString());
+  }
+
+  @Test
+  public void testReader_readsWhatWriterWrote() throws IOException {
+    StringWriter out = new StringWriter();
+    new JsonWriter(out).beginObject()
+        .name("name").value("Tab\there \u00e9 \u0001")
+        .name("rooms").beginArray().beginArray().value(101).value(-199).endArray().endArray()
+        .name("express").value(false)
+        .endObject()
+        .flush();
+
+    JsonReader json = new JsonReader(new StringReader(out.toString()));
+    json.beginObject();
+    assertEquals("name", json.nextName());
+    assertEquals("Tab\there \u00e9 \u0001", json.nextString());
+    assertEquals("rooms", json.nextName());
+    json.beginArray();
+    json.beginArray();
+    assertEquals(101, json.nextInt());
+    assertEquals(-199, json.nextInt());
+    json.endArray();
+    json.endArray();
+    assertEquals("express", json.nextName());
+    assertFalse(json.nextBoolean());
+    json.endObject();
+    assertEquals(JsonReader.Token.END_DOCUMENT, json.peek());
+  }
+
+  @Test
+  public void testReader_skipsUnknownValues() throws IOException {
+    JsonReader json = new JsonReader(new StringReader(
+        " { \"skip\" : {\"a\":[1.5e3,true,null,\"x\"]}, \"keep\" : \"\\u0041\" } "));
+    json.beginObject();
+    assertEquals("skip", json.nextName());
+    json.skipValue();
+    assertEquals("keep", json.nextName());
+    assertEquals("A", json.nextString());
+    assertFalse(json.hasNext());
+    json.endObject();
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"{\"a\" 1}", "{\"a\":1,}", "[1 2]", "{\"a\":1} x", "[", "{\"a\":\"unterminated}", "{'a':1}"})
+  public void testReader_malformedInput_throwsException(String input) {
+    JsonReader json = new JsonReader(new StringReader(input));
+    assertThrows(IllegalArgumentException.class, () -> {
+      json.skipValue();
+      json.peek();
+    });
+  }
+
+  @Test
+  public void testReader_overlongTokens_throwsException() {
+    JsonReader string = new JsonReader(new StringReader("\"" + "a".repeat(1 << 17) + "\""));
+    assertThrows(IllegalArgumentException.class, string::nextString);
+    JsonReader number = new JsonReader(new StringReader("1".repeat(100)));
+    assertThrows(IllegalArgumentException.class, number::nextLong);
+  }
+}
@@ -0,0 +1,41 @@
+package org.homework1.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoadGeneratorTest {
+
+  @Test
+  public void testShortSoakRun_hasNoViolations() throws InterruptedException {
+    LoadConfig config = new LoadConfig(3, 4, 10, 8, 5, 8, 2, Duration.ofMillis(300));
+    LoadReport report = new LoadGenerator(config).run();
+
+    assertTrue(report.passed(), () -> String.join("\n", report.violations()));
+    assertTrue(report.ordersCreated() > 0, "Rooms should have placed orders");
+    assertEquals(report.ordersCreated(), report.ordersCanceled() + report.ordersDelivered(),
+        "Every order should be either canceled or delivered");
+    assertTrue(report.metrics().latencies().get("OrderService.deliverOrder").count() > 0);
+    assertTrue(report.peakQueuedOrders() <= report.ordersDelivered(), "Only open orders should be queued");
+  }
+
+  @Test
+  public void testParse_overridesDefaults() {
+    LoadConfig config = LoadConfig.parse("--rooms=200", "--duration=5", "--kitchen-workers=8");
+
+    assertEquals(200, config.rooms());
+    assertEquals(8, config.kitchenWorkers());
+    assertEquals(Duration.ofSeconds(5), config.duration());
+    assertEquals(LoadConfig.DEFAULTS.buildings(), config.buildings());
+  }
+
+  @Test
+  public void testParse_invalidOptions_throwsException() {
+    assertThrows(IllegalArgumentException.class, () -> LoadConfig.parse("--unknown=1"));
+    assertThrows(IllegalArgumentException.class, () -> LoadConfig.parse("--rooms=0"));
+    assertThrows(IllegalArgumentException.class, () -> LoadConfig.parse("rooms"));
+    assertThrows(IllegalArgumentException.class, () -> LoadConfig.parse("--floors=100"));
+  }
+}
@@ -0,0 +1,87 @@
+package org.homework1.metrics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsRegistryTest {
+
+  private MetricsRegistry metrics;
+
+  @BeforeEach
+  public void setUp() {
+    metrics = new MetricsRegistry();
+  }
+
+  @Test
+  public void testLatency_percentilesWithinBucketPrecision() {
+    LatencyHistogram histogram = metrics.latency("operation");
+    for (int i = 1; i <= 100_000; i++) {
+      histogram.record(i);
+    }
+
+    HistogramSnapshot snapshot = metrics.snapshot().latencies().get("operation");
+
+    assertEquals(100_000, snapshot.count());
+    assertEquals(50_000.5, snapshot.meanNanos(), 0.001);
+    assertEquals(50_000, snapshot.p50Nanos(), 50_000 * 0.04);
+    assertEquals(99_000, snapshot.p99Nanos(), 99_000 * 0.04);
+    assertEquals(99_900, snapshot.p999Nanos(), 99_900 * 0.04);
+    assertEquals(100_000, snapshot.maxNanos());
+  }
+
+  @Test
+  public void testLatency_bucketBoundaries() {
+    for (long value : new long[]{0, 1, 15, 16, 17, 31, 32, 1_000, 123_456_789, Long.MAX_VALUE}) {
+      long midpoint = LatencyHistogram.midpoint(LatencyHistogram.bucket(value));
+      assertEquals(value, midpoint, Math.max(1, value / 16.0), "Bucket midpoint should be close to " + value);
+    }
+  }
+
+  @Test
+  public void testSnapshotAndReset_clearsCounters() {
+    metrics.latency("operation").record(1_000);
+    metrics.lock("lock").recordContended(5_000);
+
+    MetricsSnapshot first = metrics.snapshotAndReset();
+    MetricsSnapshot second = metrics.snapshot();
+
+    assertEquals(1, first.latencies().get("operation").count());
+    assertEquals(1, first.locks().get("lock").contendedAcquisitions());
+    assertEquals(0, second.latencies().get("operation").count());
+    assertEquals(0, second.locks().get("lock").acquisitions());
+  }
+
+  @Test
+  public void testInstrumentedLock_countsContendedAcquisitions() throws InterruptedException {
+    Lock lock = metrics.instrument("lock", new ReentrantLock());
+    CountDownLatch locked = new CountDownLatch(1);
+    Thread holder = new Thread(() -> {
+      lock.lock();
+      try {
+        locked.countDown();
+        TimeUnit.MILLISECONDS.sleep(50);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        lock.unlock();
+      }
+    });
+    holder.start();
+    locked.await();
+    lock.lock();
+    lock.unlock();
+    holder.join();
+
+    LockSnapshot snapshot = metrics.snapshot().locks().get("lock");
+    assertEquals(2, snapshot.acquisitions());
+    assertEquals(1, snapshot.contendedAcquisitions());
+    assertTrue(snapshot.totalWaitNanos() > 0, "Wait time should be recorded");
+  }
+}
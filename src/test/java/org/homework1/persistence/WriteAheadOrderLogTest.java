@@ -0,0 +1,229 @@
+package org.homework1.persistence;
+
+import org.homework1.constant.OrderStatus;
+import org.homework1.dto.OrderHistoryEntry;
+import org.homework1.model.Ingredient;
+import org.homework1.model.Pancake;
+import org.homework1.service.BuildingService;
+import org.homework1.service.OrderService;
+import org.homework1.service.RecipeService;
+import org.homework1.util.IntegerRange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WriteAheadOrderLogTest {
+
+  private static final int REGION_SIZE = 4096;
+
+  @TempDir
+  Path directory;
+
+  private BuildingService buildingService;
+  private RecipeService recipeService;
+  private UUID recipeId;
+
+  @BeforeEach
+  public void setUp() {
+    buildingService = new BuildingService();
+    recipeService = new RecipeService();
+    buildingService.addBuilding(1, new IntegerRange(101, 199));
+    Ingredient ingredient1 = recipeService.createIngredient("Dark chocolate");
+    Ingredient ingredient2 = recipeService.createIngredient("Whipped cream");
+    recipeId = recipeService.createRecipe("Sweet Pancake", Arrays.asList(ingredient1.getId(), ingredient2.getId()));
+  }
+
+  @Test
+  public void testRecover_restoresOpenOrders() {
+    final UUID draftOrderId;
+    final UUID completedOrderId;
+    final UUID preparedOrderId;
+    final UUID deliveredOrderId;
+    final UUID canceledOrderId;
+    final Set<UUID> draftPancakeIds;
+    final OrderHistoryEntry deliveredEntry;
+    try (WriteAheadOrderLog log = openLog(Long.MAX_VALUE)) {
+      OrderService orderService = new OrderService(buildingService, recipeService, log);
+      draftOrderId = orderService.createOrder(1, 101);
+      orderService.addPancakes(draftOrderId, recipeId, 3);
+      Set<UUID> removed = Set.of(orderService.getPancakes(draftOrderId).get(0).getId());
+      orderService.removePancakes(draftOrderId, removed);
+      draftPancakeIds = pancakeIds(orderService, draftOrderId);
+
+      completedOrderId = createOrder(orderService, 102);
+      orderService.completeOrder(completedOrderId, true);
+      preparedOrderId = createOrder(orderService, 103);
+      orderService.completeOrder(preparedOrderId);
+      orderService.prepareOrder(preparedOrderId);
+      deliveredOrderId = createOrder(orderService, 104);
+      orderService.completeOrder(deliveredOrderId);
+      orderService.prepareOrder(deliveredOrderId);
+      orderService.deliverOrder(deliveredOrderId);
+      deliveredEntry = orderService.findFinishedOrder(deliveredOrderId).orElseThrow();
+      canceledOrderId = createOrder(orderService, 105);
+      orderService.cancelOrder(canceledOrderId);
+    }
+
+    try (WriteAheadOrderLog log = openLog(Long.MAX_VALUE)) {
+      OrderService recovered = new OrderService(buildingService, recipeService, log);
+
+      assertEquals(OrderStatus.DRAFT, recovered.getOrderStatus(draftOrderId));
+      assertEquals(draftPancakeIds, pancakeIds(recovered, draftOrderId), "Pancake IDs should be preserved");
+      assertTrue(recovered.viewOrder(draftOrderId).get(0).contains("Dark chocolate"), "Ingredient names should be preserved");
+      assertEquals(OrderStatus.COMPLETED, recovered.getOrderStatus(completedOrderId));
+      assertEquals(OrderStatus.PREPARED, recovered.getOrderStatus(preparedOrderId));
+      assertEquals(OrderStatus.DELIVERED, recovered.getOrderStatus(deliveredOrderId), "Finished orders should be in history");
+      assertEquals(OrderStatus.CANCELED, recovered.getOrderStatus(canceledOrderId), "Finished orders should be in history");
+      assertEquals(deliveredEntry, recovered.findFinishedOrder(deliveredOrderId).orElseThrow(), "History should keep the logged times");
+      assertThrows(IllegalArgumentException.class, () -> recovered.viewOrder(deliveredOrderId));
+      assertThrows(IllegalArgumentException.class, () -> recovered.viewOrder(canceledOrderId));
+      assertEquals(Set.of(completedOrderId), recovered.listCompletedOrders());
+      assertEquals(Set.of(preparedOrderId), recovered.listPreparedOrders());
+      assertEquals(List.of(completedOrderId), recovered.drainToPrepare(10), "Work queues should be restored");
+      assertEquals(List.of(preparedOrderId), recovered.drainToDeliver(10), "Work queues should be restored");
+    }
+  }
+
+  @Test
+  public void testRecover_keepsHistoryAcrossRestartsAndCompaction() {
+    final UUID deliveredOrderId;
+    final UUID canceledOrderId;
+    final OrderHistoryEntry deliveredEntry;
+    final OrderHistoryEntry canceledEntry;
+    try (WriteAheadOrderLog log = openLog(Long.MAX_VALUE)) {
+      OrderService orderService = new OrderService(buildingService, recipeService, log);
+      deliveredOrderId = createOrder(orderService, 101);
+      orderService.completeOrder(deliveredOrderId);
+      orderService.prepareOrder(deliveredOrderId);
+      orderService.deliverOrder(deliveredOrderId);
+      canceledOrderId = createOrder(orderService, 102);
+      orderService.cancelOrder(canceledOrderId);
+      deliveredEntry = orderService.findFinishedOrder(deliveredOrderId).orElseThrow();
+      canceledEntry = orderService.findFinishedOrder(canceledOrderId).orElseThrow();
+    }
+
+    for (int restart = 1; restart <= 2; restart++) {
+      try (WriteAheadOrderLog log = openLog(Long.MAX_VALUE)) {
+        OrderService recovered = new OrderService(buildingService, recipeService, log);
+        assertEquals(deliveredEntry, recovered.findFinishedOrder(deliveredOrderId).orElseThrow(),
+            "History should survive restart " + restart);
+        assertEquals(canceledEntry, recovered.findFinishedOrder(canceledOrderId).orElseThrow(),
+            "History should survive restart " + restart);
+        recovered.compactLog();
+      }
+    }
+
+    try (WriteAheadOrderLog log = openLog(Long.MAX_VALUE)) {
+      OrderService recovered = new OrderService(buildingService, recipeService, log);
+      assertEquals(OrderStatus.DELIVERED, recovered.getOrderStatus(deliveredOrderId));
+      assertEquals(OrderStatus.CANCELED, recovered.getOrderStatus(canceledOrderId));
+    }
+  }
+
+  @Test
+  public void testCompaction_keepsFilesBoundedAndStateIntact() throws Exception {
+    final List<UUID> openOrders = new ArrayList<>();
+    try (WriteAheadOrderLog log = openLog(REGION_SIZE)) {
+      OrderService orderService = new OrderService(buildingService, recipeService, log);
+      for (int i = 0; i < 500; i++) {
+        UUID orderId = createOrder(orderService, 101 + i % 99);
+        if (i % 10 == 0) {
+          openOrders.add(orderId);
+        } else {
+          orderService.completeOrder(orderId);
+          orderService.prepareOrder(orderId);
+          orderService.deliverOrder(orderId);
+        }
+      }
+      orderService.compactLog();
+      assertEquals(2, countFiles(), "Compaction should leave one log and one snapshot");
+    }
+
+    try (WriteAheadOrderLog log = openLog(REGION_SIZE)) {
+      OrderService recovered = new OrderService(buildingService, recipeService, log);
+      for (UUID orderId : openOrders) {
+        assertEquals(OrderStatus.DRAFT, recovered.getOrderStatus(orderId));
+        assertEquals(1, recovered.getPancakes(orderId).size());
+      }
+    }
+  }
+
+  @Test
+  public void testRecover_ignoresTornTail() throws Exception {
+    final UUID orderId;
+    try (WriteAheadOrderLog log = openLog(Long.MAX_VALUE)) {
+      OrderService orderService = new OrderService(buildingService, recipeService, log);
+      orderId = createOrder(orderService, 101);
+    }
+    try (Stream<Path> files = Files.list(directory)) {
+      Path walFile = files.filter(path -> path.toString().endsWith(".wal")).findFirst().orElseThrow();
+      byte[] bytes = Files.readAllBytes(walFile);
+      int end = bytes.length;
+      while (bytes[end - 1] == 0) {
+        end--;
+      }
+      bytes[end] = 0x7f; // A record length whose payload was never written
+      Files.write(walFile, bytes);
+    }
+
+    try (WriteAheadOrderLog log = openLog(Long.MAX_VALUE)) {
+      OrderService recovered = new OrderService(buildingService, recipeService, log);
+      assertEquals(1, recovered.getPancakes(orderId).size(), "Records before the torn tail should be recovered");
+    }
+  }
+
+  @Test
+  public void testFailedSync_leavesChangesUnapplied() {
+    final boolean[] failing = {false};
+    try (WriteAheadOrderLog log = new WriteAheadOrderLog(directory, REGION_SIZE, Long.MAX_VALUE) {
+      @Override
+      public void sync(long sequence) {
+        if (failing[0]) {
+          throw new IllegalStateException("Disk gone");
+        }
+        super.sync(sequence);
+      }
+    }) {
+      OrderService orderService = new OrderService(buildingService, recipeService, log);
+      UUID orderId = createOrder(orderService, 101);
+      failing[0] = true;
+
+      assertThrows(IllegalStateException.class, () -> orderService.addPancake(orderId, recipeId));
+      assertThrows(IllegalStateException.class, () -> orderService.completeOrder(orderId));
+      assertThrows(IllegalStateException.class, () -> orderService.createOrder(1, 102));
+
+      assertEquals(1, orderService.getPancakes(orderId).size(), "Pancakes that were not synced should not be added");
+      assertEquals(OrderStatus.DRAFT, orderService.getOrderStatus(orderId), "Status should not change before it is synced");
+      assertEquals(1, orderService.countByStatus(OrderStatus.DRAFT), "Orders that were not synced should not be published");
+    }
+  }
+
+  private WriteAheadOrderLog openLog(long compactionThreshold) {
+    return new WriteAheadOrderLog(directory, REGION_SIZE, compactionThreshold);
+  }
+
+  private UUID createOrder(OrderService orderService, int room) {
+    UUID orderId = orderService.createOrder(1, room);
+    orderService.addPancake(orderId, recipeId);
+    return orderId;
+  }
+
+  private static Set<UUID> pancakeIds(OrderService orderService, UUID orderId) {
+    return orderService.getPancakes(orderId).stream().map(Pancake::getId).collect(Collectors.toSet());
+  }
+
+  private long countFiles() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.count();
+    }
+  }
+}
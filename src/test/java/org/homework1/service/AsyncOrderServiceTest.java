@@ -0,0 +1,80 @@
+package org.homework1.service;
+
+import org.homework1.constant.OrderStatus;
+import org.homework1.model.Ingredient;
+import org.homework1.util.IntegerRange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncOrderServiceTest {
+
+  private BuildingService buildingService;
+  private RecipeService recipeService;
+  private OrderService orderService;
+  private AsyncOrderService asyncOrderService;
+  private UUID recipeId;
+
+  @BeforeEach
+  public void setUp() {
+    buildingService = new BuildingService();
+    recipeService = new RecipeService();
+    buildingService.addBuilding(1, new IntegerRange(101, 199));
+    Ingredient ingredient = recipeService.createIngredient("Dark chocolate");
+    recipeId = recipeService.createRecipe("Sweet Pancake", List.of(ingredient.getId()));
+    orderService = new OrderService(buildingService, recipeService);
+    asyncOrderService = new AsyncOrderService(orderService);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    asyncOrderService.close();
+  }
+
+  @Test
+  public void testOrderLifecycle_success() throws Exception {
+    UUID orderId = asyncOrderService.createOrder(1, 101).get();
+    asyncOrderService.addPancake(orderId, recipeId);
+    asyncOrderService.completeOrder(orderId);
+    asyncOrderService.prepareOrder(orderId);
+    asyncOrderService.deliverOrder(orderId).get();
+
+    assertEquals(OrderStatus.DELIVERED, asyncOrderService.getOrderStatus(orderId).get(),
+        "Mutations on one order should run in submission order");
+  }
+
+  @Test
+  public void testSameOrderMutations_areSerialized() throws Exception {
+    UUID orderId = orderService.createOrder(1, 101);
+    List<CompletableFuture<Void>> adds = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      adds.add(asyncOrderService.addPancake(orderId, recipeId));
+    }
+    CompletableFuture<Void> complete = asyncOrderService.completeOrder(orderId);
+    complete.get();
+
+    assertTrue(adds.stream().allMatch(CompletableFuture::isDone), "Earlier mutations should finish first");
+    assertEquals(20, orderService.getPancakes(orderId).size());
+    assertEquals(OrderStatus.COMPLETED, orderService.getOrderStatus(orderId));
+  }
+
+  @Test
+  public void testFailedMutation_completesExceptionallyAndDoesNotBlockNext() throws Exception {
+    UUID orderId = orderService.createOrder(1, 101);
+    CompletableFuture<Void> failed = asyncOrderService.completeOrder(orderId);
+    CompletableFuture<Void> next = asyncOrderService.addPancake(orderId, recipeId);
+
+    ExecutionException exception = assertThrows(ExecutionException.class, failed::get);
+    assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+    next.get();
+    assertEquals(1, orderService.getPancakes(orderId).size());
+  }
+}
@@ -4,6 +4,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.homework1.util.IntegerRange;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.homework1.constant.ValidationConstants.MAX_BUILDING_NUMBER;
 import static org.homework1.constant.ValidationConstants.MAX_ROOM_NUMBER;
@@ -135,4 +137,35 @@ public class BuildingServiceTest {
     assertNotNull(buildingService.getBuilding(1), "Building with zero-length room range should be added");
     assertDoesNotThrow(() -> buildingService.checkRoom(1, 101), "Should find room 101 in building");
   }
+
+  @Test
+  public void testCheckRoom_overlappingAndAdjacentRanges_passes() {
+    buildingService.addBuilding(1, new IntegerRange(150, 250), new IntegerRange(101, 199), new IntegerRange(251, 260));
+
+    assertEquals(List.of(new IntegerRange(101, 260)), buildingService.getBuilding(1).roomSet().ranges(),
+        "Overlapping and adjacent ranges should be merged");
+    assertDoesNotThrow(() -> buildingService.checkRoom(1, 101));
+    assertDoesNotThrow(() -> buildingService.checkRoom(1, 255));
+    assertDoesNotThrow(() -> buildingService.checkRoom(1, 260));
+    assertThrows(IllegalArgumentException.class, () -> buildingService.checkRoom(1, 100));
+    assertThrows(IllegalArgumentException.class, () -> buildingService.checkRoom(1, 261));
+  }
+
+  @Test
+  public void testCheckRoom_maxRoomNumber_passes() {
+    buildingService.addBuilding(1, new IntegerRange(MAX_ROOM_NUMBER, MAX_ROOM_NUMBER));
+
+    assertDoesNotThrow(() -> buildingService.checkRoom(1, MAX_ROOM_NUMBER));
+    assertThrows(IllegalArgumentException.class, () -> buildingService.checkRoom(1, MAX_ROOM_NUMBER - 1));
+    assertThrows(IllegalArgumentException.class, () -> buildingService.checkRoom(1, MAX_ROOM_NUMBER + 1));
+    assertThrows(IllegalArgumentException.class, () -> buildingService.checkRoom(1, -1));
+  }
+
+  @Test
+  public void testGetBuilding_outOfRangeNumber_returnsNull() {
+    assertNull(buildingService.getBuilding(-1));
+    assertNull(buildingService.getBuilding(MAX_BUILDING_NUMBER + 1));
+    assertThrows(IllegalArgumentException.class, () -> buildingService.removeBuilding(MAX_BUILDING_NUMBER + 1));
+    assertThrows(IllegalArgumentException.class, () -> buildingService.checkRoom(-1, 101));
+  }
 }
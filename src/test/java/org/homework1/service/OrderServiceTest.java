@@ -3,15 +3,35 @@ package org.homework1.service;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.homework1.constant.OrderStatus;
+import org.homework1.dto.DeliveryRun;
+import org.homework1.dto.DeliveryStop;
+import org.homework1.dto.OrderHistoryEntry;
+import org.homework1.dto.OrderIdPage;
+import org.homework1.dto.PancakeSpec;
+import org.homework1.dto.StockLevel;
+import org.homework1.exception.NotFoundException;
+import org.homework1.metrics.MetricsRegistry;
+import org.homework1.metrics.MetricsSnapshot;
 import org.homework1.model.Ingredient;
+import org.homework1.model.Order;
 import org.homework1.model.Pancake;
+import org.homework1.persistence.OrderLog;
 import org.homework1.util.IntegerRange;
 
 import java.lang.reflect.Field;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.homework1.constant.ValidationConstants.MAX_ORDER_SIZE;
+import static org.homework1.constant.ValidationConstants.MAX_PAGE_SIZE;
 
 public class OrderServiceTest {
 
@@ -109,8 +129,9 @@ public class OrderServiceTest {
     orderService.deliverOrder(orderId);
     Set<UUID> preparedOrders = orderService.listPreparedOrders();
 
+    assertEquals(OrderStatus.DELIVERED, orderService.getOrderStatus(orderId), "Delivered order should be in history");
     assertThrows(IllegalArgumentException.class, () ->
-        orderService.getOrderStatus(orderId), "Order should be removed after delivery");
+        orderService.viewOrder(orderId), "Order should be removed after delivery");
     assertFalse(preparedOrders.contains(orderId), "Order should not be in prepared orders");
   }
 
@@ -167,7 +188,8 @@ public class OrderServiceTest {
     UUID orderId = orderService.createOrder(1, 101);
     orderService.cancelOrder(orderId);
 
-    assertThrows(IllegalArgumentException.class, () -> orderService.getOrderStatus(orderId),
+    assertEquals(OrderStatus.CANCELED, orderService.getOrderStatus(orderId), "Canceled order should be in history");
+    assertThrows(IllegalArgumentException.class, () -> orderService.viewOrder(orderId),
         "Order should be removed after cancellation");
   }
 
@@ -181,6 +203,25 @@ public class OrderServiceTest {
         orderService.cancelOrder(orderId), "Should throw exception when cancelling a completed order");
   }
 
+  @Test
+  public void testCancelOrder_alreadyFinished_reportsHowItFinished() {
+    UUID canceledOrderId = orderService.createOrder(1, 101);
+    orderService.cancelOrder(canceledOrderId);
+    UUID deliveredOrderId = orderService.createOrder(1, 102);
+    orderService.addPancake(deliveredOrderId, recipeId);
+    orderService.completeOrder(deliveredOrderId);
+    orderService.prepareOrder(deliveredOrderId);
+    orderService.deliverOrder(deliveredOrderId);
+
+    IllegalArgumentException canceled = assertThrows(IllegalArgumentException.class,
+        () -> orderService.cancelOrder(canceledOrderId));
+    assertEquals("Order is already canceled", canceled.getMessage());
+    IllegalArgumentException delivered = assertThrows(IllegalArgumentException.class,
+        () -> orderService.cancelOrder(deliveredOrderId));
+    assertEquals("Order is already delivered", delivered.getMessage());
+    assertThrows(NotFoundException.class, () -> orderService.cancelOrder(UUID.randomUUID()));
+  }
+
   @Test
   public void testPrepareOrder_notCompleted_throwsException() {
     UUID orderId = orderService.createOrder(1, 101);
@@ -255,8 +296,42 @@ public class OrderServiceTest {
     orderService.completeOrder(orderId);
     orderService.prepareOrder(orderId);
 
-    assertThrows(IllegalArgumentException.class, () -> orderService.prepareOrder(orderId),
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> orderService.prepareOrder(orderId),
         "Should throw exception when preparing an already prepared order");
+    assertEquals("Order is already prepared", e.getMessage());
+  }
+
+  @Test
+  public void testPrepareOrder_draft_throwsException() {
+    UUID orderId = orderService.createOrder(1, 101);
+    orderService.addPancake(orderId, recipeId);
+
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> orderService.prepareOrder(orderId));
+    assertEquals("Order needs to be completed before it can be prepared", e.getMessage());
+  }
+
+  @Test
+  public void testRecover_outOfOrderStatusRecords() {
+    UUID preparedOrderId = UUID.randomUUID();
+    UUID deliveredOrderId = UUID.randomUUID();
+    OrderLog log = new ScriptedOrderLog(handler -> {
+      handler.onCreate(preparedOrderId, 1, 101, 0);
+      handler.onAddPancake(preparedOrderId, UUID.randomUUID(), List.of(ingredient1Id), List.of("Dark chocolate"));
+      handler.onStatus(preparedOrderId, OrderStatus.PREPARED, true);
+      handler.onStatus(preparedOrderId, OrderStatus.COMPLETED, false);
+      handler.onCreate(deliveredOrderId, 1, 102, 0);
+      handler.onFinish(deliveredOrderId, OrderStatus.DELIVERED, System.currentTimeMillis());
+      handler.onStatus(deliveredOrderId, OrderStatus.PREPARED, false);
+    });
+
+    OrderService recovered = new OrderService(buildingService, recipeService, log);
+
+    assertEquals(OrderStatus.PREPARED, recovered.getOrderStatus(preparedOrderId), "An older record should not move the order back");
+    assertEquals(Set.of(preparedOrderId), recovered.listPreparedOrders());
+    assertTrue(recovered.listCompletedOrders().isEmpty(), "An older record should not re-index the order");
+    assertEquals(List.of(preparedOrderId), recovered.drainToDeliver(10), "The order should keep its express flag");
+    assertEquals(OrderStatus.DELIVERED, recovered.getOrderStatus(deliveredOrderId), "Records after a terminal status should be ignored");
+    assertThrows(IllegalArgumentException.class, () -> recovered.viewOrder(deliveredOrderId));
   }
 
   @Test
@@ -269,4 +344,566 @@ public class OrderServiceTest {
         "Should throw exception for invalid ingredient ID");
   }
 
+  @Test
+  public void testAddPancake_sameRecipe_sharesIngredientSet() {
+    UUID orderId1 = orderService.createOrder(1, 101);
+    UUID orderId2 = orderService.createOrder(1, 102);
+    orderService.addPancake(orderId1, recipeId);
+    orderService.addPancake(orderId1, recipeId);
+    orderService.addPancake(orderId2, recipeId);
+    orderService.addPancakes(orderId2, List.of(PancakeSpec.ofIngredients(List.of(ingredient1Id)),
+        PancakeSpec.ofIngredients(List.of(ingredient1Id))));
+
+    List<Pancake> pancakes = new ArrayList<>(orderService.getPancakes(orderId1));
+    pancakes.addAll(orderService.getPancakes(orderId2));
+    List<Pancake> custom = pancakes.stream().filter(pancake -> pancake.getIngredientSet().ingredientIds().size() == 1).toList();
+    List<Pancake> byRecipe = pancakes.stream().filter(pancake -> !custom.contains(pancake)).toList();
+
+    assertEquals(3, byRecipe.size(), "Orders should have three recipe pancakes");
+    assertTrue(byRecipe.stream().allMatch(pancake -> pancake.getIngredientSet() == byRecipe.get(0).getIngredientSet()),
+        "Pancakes of the same recipe should share one ingredient set");
+    assertSame(custom.get(0).getIngredientSet(), custom.get(1).getIngredientSet(),
+        "Equal custom pancakes of one batch should share one ingredient set");
+  }
+
+  @Test
+  public void testAddPancakes_byRecipe_success() {
+    UUID orderId = orderService.createOrder(1, 101);
+    orderService.addPancakes(orderId, recipeId, 5);
+
+    assertEquals(5, orderService.getPancakes(orderId).size(), "Order should have five pancakes");
+  }
+
+  @Test
+  public void testAddPancakes_mixedBatch_success() {
+    UUID orderId = orderService.createOrder(1, 101);
+    orderService.addPancakes(orderId, List.of(
+        PancakeSpec.ofRecipe(recipeId),
+        PancakeSpec.ofIngredients(Collections.singletonList(ingredient1Id))));
+    List<String> descriptions = orderService.viewOrder(orderId);
+
+    assertEquals(2, descriptions.size(), "Order should have two pancakes");
+    assertTrue(descriptions.contains("Delicious pancake with Dark chocolate!"), "Custom pancake should be added");
+  }
+
+  @Test
+  public void testAddPancakes_exceedsMaxOrderSize_addsNothing() {
+    UUID orderId = orderService.createOrder(1, 101);
+    orderService.addPancakes(orderId, recipeId, MAX_ORDER_SIZE - 1);
+
+    assertThrows(IllegalArgumentException.class, () -> orderService.addPancakes(orderId, recipeId, 2),
+        "Should throw exception when batch exceeds max order size");
+    assertEquals(MAX_ORDER_SIZE - 1, orderService.getPancakes(orderId).size(), "Failed batch should add no pancakes");
+  }
+
+  @Test
+  public void testAddPancakes_invalidIngredientInBatch_addsNothing() {
+    UUID orderId = orderService.createOrder(1, 101);
+    List<PancakeSpec> pancakes = List.of(
+        PancakeSpec.ofRecipe(recipeId),
+        PancakeSpec.ofIngredients(Collections.singletonList(UUID.randomUUID())));
+
+    assertThrows(IllegalArgumentException.class, () -> orderService.addPancakes(orderId, pancakes),
+        "Should throw exception for invalid ingredient ID in batch");
+    assertTrue(orderService.getPancakes(orderId).isEmpty(), "Failed batch should add no pancakes");
+  }
+
+  @Test
+  public void testAddPancakes_nonPositiveCount_throwsException() {
+    UUID orderId = orderService.createOrder(1, 101);
+
+    assertThrows(IllegalArgumentException.class, () -> orderService.addPancakes(orderId, recipeId, 0),
+        "Should throw exception for zero pancake count");
+  }
+
+  @Test
+  public void testTakeNextToPrepare_fifoWithExpressFirst() throws InterruptedException {
+    // Each shard's queue is FIFO, so a single shard makes the whole queue FIFO
+    orderService = new OrderService(buildingService, recipeService, OrderLog.none(), new MetricsRegistry(), 1);
+    UUID orderId1 = createCompletedOrder(false);
+    UUID orderId2 = createCompletedOrder(false);
+    UUID expressOrderId = createCompletedOrder(true);
+
+    assertEquals(expressOrderId, orderService.takeNextToPrepare(), "Express order should be taken first");
+    assertEquals(orderId1, orderService.takeNextToPrepare(), "Orders should be taken in completion order");
+    assertEquals(List.of(orderId2), orderService.drainToPrepare(10), "Remaining order should be drained");
+    assertTrue(orderService.drainToPrepare(10).isEmpty(), "Queue should be empty after draining");
+  }
+
+  @Test
+  public void testTakeNextToDeliver_skipsOrdersAlreadyDelivered() throws InterruptedException {
+    UUID orderId1 = createCompletedOrder(false);
+    UUID orderId2 = createCompletedOrder(false);
+    orderService.prepareOrder(orderId1);
+    orderService.prepareOrder(orderId2);
+    orderService.deliverOrder(orderId1);
+
+    assertTrue(orderService.drainToPrepare(10).isEmpty(), "Prepared orders should not be handed out for preparation");
+    assertEquals(orderId2, orderService.takeNextToDeliver(), "Delivered order should be skipped");
+  }
+
+  @Test
+  public void testDrainToPrepare_nonPositiveMax_throwsException() {
+    assertThrows(IllegalArgumentException.class, () -> orderService.drainToPrepare(0),
+        "Should throw exception for non-positive max");
+  }
+
+  @Test
+  public void testDrainToPrepare_shardedQueueServesExpressFirst() {
+    orderService = new OrderService(buildingService, recipeService, OrderLog.none(), new MetricsRegistry(), 8);
+    Set<UUID> orderIds = new HashSet<>();
+    Set<UUID> expressOrderIds = new HashSet<>();
+    for (int i = 0; i < 20; i++) {
+      orderIds.add(createCompletedOrder(false));
+      expressOrderIds.add(createCompletedOrder(true));
+    }
+
+    assertEquals(expressOrderIds, new HashSet<>(orderService.drainToPrepare(20)), "Express orders from every shard should be served first");
+    assertEquals(orderIds, new HashSet<>(orderService.drainToPrepare(100)), "Every order should be handed out once");
+  }
+
+  @Test
+  public void testWorkQueues_ordersMovedOnDirectlyLeaveTheirQueue() {
+    buildingService.addBuilding(2, new IntegerRange(1, 50));
+    UUID orderId1 = createCompletedOrder(false);
+    UUID orderId2 = createCompletedOrder(true);
+    createPreparedOrder(2, 10);
+    assertEquals(2, orderService.countQueuedToPrepare());
+    assertEquals(1, orderService.countQueuedToDeliver());
+
+    orderService.prepareOrder(orderId1);
+    orderService.prepareOrder(orderId2);
+    assertEquals(0, orderService.countQueuedToPrepare(), "Prepared orders should leave the preparation queue");
+    assertEquals(3, orderService.countQueuedToDeliver());
+
+    orderService.deliverOrder(orderId1);
+    orderService.deliverRun(orderService.claimDeliveryRun(10).orElseThrow());
+    orderService.deliverRun(orderService.claimDeliveryRun(10).orElseThrow());
+    assertEquals(0, orderService.countQueuedToDeliver(), "Delivered orders should leave the delivery queue");
+    assertTrue(orderService.drainToDeliver(10).isEmpty());
+  }
+
+  private UUID createCompletedOrder(boolean express) {
+    UUID orderId = orderService.createOrder(1, 101);
+    orderService.addPancake(orderId, recipeId);
+    orderService.completeOrder(orderId, express);
+    return orderId;
+  }
+
+  @Test
+  public void testPlanDeliveryRuns_groupedByBuildingAndSortedByRoom() {
+    buildingService.addBuilding(2, new IntegerRange(1, 50));
+    UUID orderId1 = createPreparedOrder(1, 150);
+    UUID orderId2 = createPreparedOrder(2, 10);
+    UUID orderId3 = createPreparedOrder(1, 120);
+    UUID orderId4 = createPreparedOrder(1, 101);
+
+    List<DeliveryRun> runs = orderService.planDeliveryRuns(2);
+
+    assertEquals(3, runs.size(), "Orders should be split into three runs");
+    assertEquals(new DeliveryRun(1, List.of(new DeliveryStop(orderId4, 101), new DeliveryStop(orderId3, 120))), runs.get(0));
+    assertEquals(new DeliveryRun(1, List.of(new DeliveryStop(orderId1, 150))), runs.get(1));
+    assertEquals(new DeliveryRun(2, List.of(new DeliveryStop(orderId2, 10))), runs.get(2));
+  }
+
+  @Test
+  public void testClaimDeliveryRun_deliversWholeRun() {
+    buildingService.addBuilding(2, new IntegerRange(1, 50));
+    UUID orderId1 = createPreparedOrder(1, 150);
+    UUID orderId2 = createPreparedOrder(1, 120);
+    UUID orderId3 = createPreparedOrder(2, 10);
+
+    DeliveryRun run = orderService.claimDeliveryRun(10).orElseThrow();
+    assertEquals(List.of(orderId2, orderId1), run.orderIds(), "Busiest building should be claimed, sorted by room");
+    assertEquals(1, orderService.planDeliveryRuns(10).size(), "Claimed orders should no longer be planned");
+    assertTrue(orderService.drainToDeliver(10).contains(orderId3), "Claimed orders should not be handed out again");
+
+    orderService.deliverRun(run);
+    assertFalse(orderService.listPreparedOrders().contains(orderId1), "Run orders should be delivered");
+    assertFalse(orderService.listPreparedOrders().contains(orderId2), "Run orders should be delivered");
+    assertTrue(orderService.claimDeliveryRun(10).isEmpty(), "No orders should be left to claim");
+  }
+
+  private UUID createPreparedOrder(int building, int room) {
+    UUID orderId = orderService.createOrder(building, room);
+    orderService.addPancake(orderId, recipeId);
+    orderService.completeOrder(orderId);
+    orderService.prepareOrder(orderId);
+    return orderId;
+  }
+
+  @Test
+  public void testMetrics_recordedPerOperation() {
+    UUID orderId = createCompletedOrder(false);
+
+    MetricsSnapshot snapshot = orderService.getMetrics().snapshot();
+
+    assertEquals(1, snapshot.latencies().get("OrderService.createOrder").count());
+    assertEquals(1, snapshot.latencies().get("OrderService.addPancake").count());
+    assertEquals(1, snapshot.latencies().get("OrderService.completeOrder").count());
+    assertEquals(0, snapshot.latencies().get("OrderService.prepareOrder").count());
+    assertEquals(3, snapshot.locks().get("OrderService.orderMonitor").acquisitions());
+    assertTrue(snapshot.locks().get("RecipeService.writeLock").acquisitions() > 0, "Catalog edits should be counted");
+    assertNotNull(orderId);
+  }
+
+  @Test
+  public void testShardedOrderService_listsOrdersAcrossShards() {
+    OrderService sharded = new OrderService(buildingService, recipeService, OrderLog.none(), new MetricsRegistry(), 8);
+    Set<UUID> completed = new HashSet<>();
+    for (int i = 0; i < 64; i++) {
+      UUID orderId = sharded.createOrder(1, 101 + i);
+      sharded.addPancake(orderId, recipeId);
+      sharded.completeOrder(orderId);
+      completed.add(orderId);
+    }
+    UUID preparedOrderId = completed.iterator().next();
+    sharded.prepareOrder(preparedOrderId);
+    completed.remove(preparedOrderId);
+
+    assertEquals(completed, sharded.listCompletedOrders(), "Completed orders should be merged across shards");
+    assertEquals(Set.of(preparedOrderId), sharded.listPreparedOrders(), "Prepared orders should be merged across shards");
+  }
+
+  @Test
+  public void testListCompletedOrders_pagesAcrossShardsWithoutGapsOrRepeats() {
+    OrderService sharded = new OrderService(buildingService, recipeService, OrderLog.none(), new MetricsRegistry(), 8);
+    Set<UUID> completed = new HashSet<>();
+    for (int i = 0; i < 50; i++) {
+      UUID orderId = sharded.createOrder(1, 101 + i);
+      sharded.addPancake(orderId, recipeId);
+      sharded.completeOrder(orderId);
+      completed.add(orderId);
+    }
+
+    List<UUID> paged = new ArrayList<>();
+    String cursor = null;
+    do {
+      OrderIdPage page = sharded.listCompletedOrders(cursor, 7);
+      assertTrue(page.orderIds().size() <= 7);
+      paged.addAll(page.orderIds());
+      cursor = page.nextCursor();
+    } while (cursor != null);
+
+    assertEquals(completed.size(), paged.size(), "Every completed order should be listed exactly once");
+    assertEquals(completed, new HashSet<>(paged));
+    assertEquals(completed, sharded.streamCompletedOrders().collect(Collectors.toSet()));
+    assertEquals(0, sharded.streamPreparedOrders().count());
+  }
+
+  @Test
+  public void testListPreparedOrders_invalidCursorOrLimit_throwsException() {
+    assertThrows(IllegalArgumentException.class, () -> orderService.listPreparedOrders("not-a-cursor", 10));
+    assertThrows(IllegalArgumentException.class, () -> orderService.listPreparedOrders(null, 0));
+    assertThrows(IllegalArgumentException.class, () -> orderService.listPreparedOrders(null, MAX_PAGE_SIZE + 1));
+  }
+
+  @Test
+  public void testCountByStatus_followsEveryTransition() {
+    UUID canceled = orderService.createOrder(1, 101);
+    UUID delivered = orderService.createOrder(1, 102);
+    UUID prepared = orderService.createOrder(1, 103);
+    UUID draft = orderService.createOrder(1, 104);
+    for (UUID orderId : List.of(delivered, prepared)) {
+      orderService.addPancake(orderId, recipeId);
+      orderService.completeOrder(orderId);
+      orderService.prepareOrder(orderId);
+    }
+    orderService.cancelOrder(canceled);
+    orderService.deliverOrder(delivered);
+
+    Map<OrderStatus, Long> counts = orderService.countByStatus();
+    assertEquals(1, counts.get(OrderStatus.DRAFT));
+    assertEquals(0, counts.get(OrderStatus.COMPLETED));
+    assertEquals(1, counts.get(OrderStatus.PREPARED));
+    assertEquals(1, counts.get(OrderStatus.CANCELED));
+    assertEquals(1, counts.get(OrderStatus.DELIVERED));
+    assertEquals(1, orderService.countByStatus(OrderStatus.DRAFT));
+    assertEquals(OrderStatus.DRAFT, orderService.getOrderStatus(draft));
+  }
+
+  @Test
+  public void testStock_reservedOnAddReleasedOnRemoveAndCancelConsumedOnPrepare() {
+    recipeService.setStock(ingredient1Id, 10);
+    UUID orderId = orderService.createOrder(1, 101);
+    orderService.addPancakes(orderId, recipeId, 3);
+    assertEquals(new StockLevel(ingredient1Id, 7, 3), recipeService.getStock(ingredient1Id).orElseThrow());
+    assertTrue(recipeService.getStock(ingredient2Id).isEmpty(), "Ingredients without a stock level are not tracked");
+
+    orderService.removePancakes(orderId, Set.of(orderService.getPancakes(orderId).get(0).getId()));
+    assertEquals(new StockLevel(ingredient1Id, 8, 2), recipeService.getStock(ingredient1Id).orElseThrow());
+
+    orderService.completeOrder(orderId);
+    orderService.prepareOrder(orderId);
+    assertEquals(new StockLevel(ingredient1Id, 8, 0), recipeService.getStock(ingredient1Id).orElseThrow());
+
+    UUID canceledId = orderService.createOrder(1, 102);
+    orderService.addPancake(canceledId, recipeId);
+    orderService.cancelOrder(canceledId);
+    assertEquals(new StockLevel(ingredient1Id, 8, 0), recipeService.getStock(ingredient1Id).orElseThrow());
+  }
+
+  @Test
+  public void testStock_runsOut_reservesNothingFromTheBatch() {
+    recipeService.setStock(ingredient1Id, 5);
+    recipeService.setStock(ingredient2Id, 2);
+    UUID orderId = orderService.createOrder(1, 101);
+
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+        () -> orderService.addPancakes(orderId, recipeId, 3));
+    assertEquals("Not enough Whipped cream in stock", e.getMessage());
+    assertEquals(0, orderService.getPancakes(orderId).size());
+    assertEquals(new StockLevel(ingredient1Id, 5, 0), recipeService.getStock(ingredient1Id).orElseThrow());
+    assertEquals(new StockLevel(ingredient2Id, 2, 0), recipeService.getStock(ingredient2Id).orElseThrow());
+
+    recipeService.addStock(ingredient2Id, 1);
+    orderService.addPancakes(orderId, recipeId, 3);
+    assertEquals(new StockLevel(ingredient2Id, 0, 3), recipeService.getStock(ingredient2Id).orElseThrow());
+  }
+
+  @Test
+  public void testStock_pancakesAddedBeforeTrackingHoldNothing() {
+    UUID untrackedOrderId = orderService.createOrder(1, 101);
+    orderService.addPancake(untrackedOrderId, List.of(ingredient1Id));
+    orderService.completeOrder(untrackedOrderId);
+    recipeService.setStock(ingredient1Id, 10);
+    UUID trackedOrderId = orderService.createOrder(1, 102);
+    orderService.addPancake(trackedOrderId, List.of(ingredient1Id));
+
+    orderService.prepareOrder(untrackedOrderId);
+    assertEquals(new StockLevel(ingredient1Id, 9, 1), recipeService.getStock(ingredient1Id).orElseThrow(),
+        "Preparing an order that reserved nothing should not use another order's units");
+    orderService.cancelOrder(trackedOrderId);
+    assertEquals(new StockLevel(ingredient1Id, 10, 0), recipeService.getStock(ingredient1Id).orElseThrow());
+  }
+
+  @Test
+  public void testStock_concurrentReservationsNeverOversell() throws Exception {
+    recipeService.setStock(ingredient1Id, 100);
+    List<UUID> orderIds = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      orderIds.add(orderService.createOrder(1, 101 + i));
+    }
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (UUID orderId : orderIds) {
+      Thread thread = new Thread(() -> {
+        try {
+          start.await();
+          for (int i = 0; i < 20; i++) {
+            try {
+              orderService.addPancake(orderId, List.of(ingredient1Id));
+            } catch (IllegalArgumentException e) {
+              // Out of stock
+            }
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      thread.start();
+      threads.add(thread);
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    int added = orderIds.stream().mapToInt(orderId -> orderService.getPancakes(orderId).size()).sum();
+    StockLevel level = recipeService.getStock(ingredient1Id).orElseThrow();
+    assertEquals(100, added);
+    assertEquals(new StockLevel(ingredient1Id, 0, 100), level);
+  }
+
+  @Test
+  public void testSetStock_unknownIngredientOrNegative_throwsException() {
+    assertThrows(IllegalArgumentException.class, () -> recipeService.setStock(UUID.randomUUID(), 1));
+    assertThrows(IllegalArgumentException.class, () -> recipeService.setStock(ingredient1Id, -1));
+  }
+
+  @Test
+  public void testShardedOrderService_invalidShardCount_throwsException() {
+    assertThrows(IllegalArgumentException.class, () ->
+        new OrderService(buildingService, recipeService, OrderLog.none(), new MetricsRegistry(), 3));
+  }
+
+  @Test
+  public void testCompleteAndCancelRace_exactlyOneTransitionWins() throws Exception {
+    for (int i = 0; i < 200; i++) {
+      UUID orderId = orderService.createOrder(1, 101);
+      orderService.addPancake(orderId, recipeId);
+      CountDownLatch ready = new CountDownLatch(1);
+      List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+      Thread completer = new Thread(() -> {
+        try {
+          ready.await();
+          orderService.completeOrder(orderId);
+        } catch (Throwable e) {
+          failures.add(e);
+        }
+      });
+      Thread canceler = new Thread(() -> {
+        try {
+          ready.await();
+          orderService.cancelOrder(orderId);
+        } catch (Throwable e) {
+          failures.add(e);
+        }
+      });
+      completer.start();
+      canceler.start();
+      ready.countDown();
+      completer.join();
+      canceler.join();
+
+      assertEquals(1, failures.size(), "Only one of complete and cancel should succeed");
+      assertInstanceOf(IllegalArgumentException.class, failures.get(0));
+      if (orderService.listCompletedOrders().contains(orderId)) {
+        assertEquals(OrderStatus.COMPLETED, orderService.getOrderStatus(orderId));
+      } else {
+        assertEquals(OrderStatus.CANCELED, orderService.getOrderStatus(orderId));
+      }
+    }
+  }
+
+  @Test
+  public void testPrepareOrder_illegalTransitionDoesNotChangeStatus() {
+    UUID orderId = orderService.createOrder(1, 101);
+    orderService.addPancake(orderId, recipeId);
+
+    assertThrows(IllegalArgumentException.class, () -> orderService.prepareOrder(orderId));
+    assertEquals(OrderStatus.DRAFT, orderService.getOrderStatus(orderId));
+    assertThrows(IllegalArgumentException.class, () -> orderService.deliverOrder(orderId));
+    assertEquals(OrderStatus.DRAFT, orderService.getOrderStatus(orderId));
+  }
+
+  @Test
+  public void testOrderHistory_keepsFinishedOrderSummary() {
+    UUID orderId = orderService.createOrder(1, 101);
+    orderService.addPancakes(orderId, recipeId, 2);
+    orderService.completeOrder(orderId);
+    orderService.prepareOrder(orderId);
+    orderService.deliverOrder(orderId);
+
+    OrderHistoryEntry entry = orderService.findFinishedOrder(orderId).orElseThrow();
+    assertEquals(OrderStatus.DELIVERED, entry.status());
+    assertEquals(1, entry.building());
+    assertEquals(101, entry.room());
+    assertEquals(2, entry.pancakeCount());
+    assertTrue(entry.finishedAtMillis() >= entry.createdAtMillis());
+  }
+
+  @Test
+  public void testOrderHistory_evictsBySizeAndAge() {
+    MutableClock clock = new MutableClock();
+    OrderHistory history = new OrderHistory(2, Duration.ofMinutes(10), clock);
+    OrderService service = new OrderService(buildingService, recipeService, OrderLog.none(), new MetricsRegistry(), 1, history);
+    UUID first = service.createOrder(1, 101);
+    UUID second = service.createOrder(1, 102);
+    UUID third = service.createOrder(1, 103);
+    service.cancelOrder(first);
+    service.cancelOrder(second);
+    service.cancelOrder(third);
+
+    assertThrows(IllegalArgumentException.class, () -> service.getOrderStatus(first), "Oldest entry should be evicted");
+    assertEquals(OrderStatus.CANCELED, service.getOrderStatus(second));
+    assertEquals(2, history.size());
+
+    clock.advance(Duration.ofMinutes(11));
+    assertThrows(IllegalArgumentException.class, () -> service.getOrderStatus(third), "Expired entry should not be found");
+    assertEquals(0, history.size(), "Lookups should evict expired entries");
+  }
+
+  @Test
+  public void testOrderHistory_recoveredOrdersKeepLoggedTimes() {
+    MutableClock clock = new MutableClock();
+    clock.advance(Duration.ofMinutes(20));
+    long now = clock.millis();
+    UUID recentOrderId = UUID.randomUUID();
+    UUID expiredOrderId = UUID.randomUUID();
+    OrderLog log = new ScriptedOrderLog(handler -> {
+      handler.onCreate(expiredOrderId, 1, 101, now - Duration.ofMinutes(15).toMillis());
+      handler.onFinish(expiredOrderId, OrderStatus.CANCELED, now - Duration.ofMinutes(11).toMillis());
+      handler.onCreate(recentOrderId, 1, 102, now - Duration.ofMinutes(5).toMillis());
+      handler.onFinish(recentOrderId, OrderStatus.DELIVERED, now - Duration.ofMinutes(2).toMillis());
+    });
+    OrderHistory history = new OrderHistory(10, Duration.ofMinutes(10), clock);
+
+    OrderService recovered = new OrderService(buildingService, recipeService, log, new MetricsRegistry(), 1, history);
+
+    OrderHistoryEntry entry = recovered.findFinishedOrder(recentOrderId).orElseThrow();
+    assertEquals(now - Duration.ofMinutes(5).toMillis(), entry.createdAtMillis(), "Creation time should come from the log");
+    assertEquals(now - Duration.ofMinutes(2).toMillis(), entry.finishedAtMillis(), "Finish time should come from the log");
+    assertTrue(recovered.findFinishedOrder(expiredOrderId).isEmpty(), "Replay should not restart the TTL");
+    assertEquals(1, history.size());
+  }
+
+  private static class MutableClock extends Clock {
+    private Instant now = Instant.EPOCH;
+
+    void advance(Duration duration) {
+      now = now.plus(duration);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return now;
+    }
+  }
+
+  // Replays a fixed sequence of records, in whatever order the test gives them
+  private record ScriptedOrderLog(Consumer<OrderLog.Handler> records) implements OrderLog {
+
+    @Override
+    public void recover(Handler handler, SnapshotSource snapshotSource) {
+      records.accept(handler);
+    }
+
+    @Override
+    public long appendCreate(Order order) {
+      return 0;
+    }
+
+    @Override
+    public long appendAddPancakes(UUID orderId, List<Pancake> pancakes) {
+      return 0;
+    }
+
+    @Override
+    public long appendRemovePancakes(UUID orderId, Set<UUID> pancakeIds) {
+      return 0;
+    }
+
+    @Override
+    public long appendStatus(UUID orderId, OrderStatus status, boolean express) {
+      return 0;
+    }
+
+    @Override
+    public long appendFinish(UUID orderId, OrderStatus status, long finishedAtMillis) {
+      return 0;
+    }
+
+    @Override
+    public void sync(long sequence) {
+    }
+
+    @Override
+    public void compact() {
+    }
+
+    @Override
+    public void close() {
+    }
+  }
 }
@@ -2,9 +2,17 @@ package org.homework1.service;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.homework1.dto.IdNameDto;
+import org.homework1.dto.IdNamePage;
+import org.homework1.dto.ImportError;
+import org.homework1.dto.ImportReport;
 import org.homework1.model.Ingredient;
+import org.homework1.model.IngredientSet;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -312,4 +320,289 @@ public class RecipeServiceTest {
     assertThrows(IllegalArgumentException.class, () -> recipeService.validateRecipeIngredients(ingredientIds),
         "Should throw exception when exceeding max number of ingredients");
   }
+
+  @Test
+  public void testFindRecipesByIngredient_success() {
+    Ingredient ingredient1 = recipeService.createIngredient(DARK_CHOCOLATE);
+    Ingredient ingredient2 = recipeService.createIngredient("Whipped cream");
+    final UUID recipe1Id = recipeService.createRecipe(DARK_CHOCOLATE_PANCAKE, Arrays.asList(ingredient1.getId(), ingredient2.getId()));
+    final UUID recipe2Id = recipeService.createRecipe("Cream pancake", Collections.singletonList(ingredient2.getId()));
+
+    assertEquals(List.of(new IdNameDto(recipe1Id, DARK_CHOCOLATE_PANCAKE)), recipeService.findRecipesByIngredient(ingredient1.getId()));
+    assertEquals(List.of(new IdNameDto(recipe2Id, "Cream pancake"), new IdNameDto(recipe1Id, DARK_CHOCOLATE_PANCAKE)),
+        recipeService.findRecipesByIngredient(ingredient2.getId()));
+  }
+
+  @Test
+  public void testFindRecipesByIngredient_unknownIngredient_throwsException() {
+    assertThrows(IllegalArgumentException.class, () -> recipeService.findRecipesByIngredient(UUID.randomUUID()),
+        "Should throw exception for unknown ingredient ID");
+  }
+
+  @Test
+  public void testRemoveIngredient_afterRecipeUpdatedAndRemoved_success() {
+    Ingredient ingredient1 = recipeService.createIngredient(DARK_CHOCOLATE);
+    Ingredient ingredient2 = recipeService.createIngredient("Whipped cream");
+    final UUID recipeId = recipeService.createRecipe(DARK_CHOCOLATE_PANCAKE, Collections.singletonList(ingredient1.getId()));
+
+    recipeService.updateRecipe(recipeId, "Cream pancake", Collections.singletonList(ingredient2.getId()));
+    assertDoesNotThrow(() -> recipeService.removeIngredient(ingredient1.getId()),
+        "Ingredient no longer used after update should be removable");
+    assertThrows(IllegalArgumentException.class, () -> recipeService.removeIngredient(ingredient2.getId()),
+        "Ingredient used by the updated recipe should not be removable");
+
+    recipeService.removeRecipe(recipeId);
+    assertDoesNotThrow(() -> recipeService.removeIngredient(ingredient2.getId()),
+        "Ingredient should be removable once its recipe is removed");
+  }
+
+  @Test
+  public void testSaveAndLoadSnapshot_preservesIds(@TempDir Path directory) {
+    Ingredient ingredient1 = recipeService.createIngredient(DARK_CHOCOLATE);
+    Ingredient ingredient2 = recipeService.createIngredient("Whipped cream");
+    final UUID recipeId = recipeService.createRecipe(DARK_CHOCOLATE_PANCAKE, Arrays.asList(ingredient1.getId(), ingredient2.getId()));
+    Path file = directory.resolve("catalog.snapshot");
+    recipeService.saveSnapshot(file);
+
+    RecipeService loaded = new RecipeService();
+    loaded.loadSnapshot(file);
+
+    assertEquals(DARK_CHOCOLATE, loaded.getIngredientName(ingredient1.getId()));
+    assertEquals(Arrays.asList(ingredient1.getId(), ingredient2.getId()), loaded.getRecipeIngredients(recipeId));
+    assertEquals(recipeService.listRecipes(), loaded.listRecipes());
+    assertThrows(IllegalArgumentException.class, () -> loaded.createIngredient(DARK_CHOCOLATE),
+        "Loaded names should be checked for duplicates");
+    assertThrows(IllegalArgumentException.class, () -> loaded.removeIngredient(ingredient1.getId()),
+        "Loaded recipes should be indexed by ingredient");
+  }
+
+  @Test
+  public void testLoadSnapshot_dropsStockOfIngredientsNotInSnapshot(@TempDir Path directory) {
+    Ingredient chocolate = recipeService.createIngredient(DARK_CHOCOLATE);
+    Path file = directory.resolve("catalog.snapshot");
+    recipeService.saveSnapshot(file);
+    Ingredient cream = recipeService.createIngredient("Whipped cream");
+    recipeService.setStock(chocolate.getId(), 5);
+    recipeService.setStock(cream.getId(), 3);
+
+    recipeService.loadSnapshot(file);
+
+    assertEquals(5, recipeService.getStock(chocolate.getId()).orElseThrow().available());
+    assertTrue(recipeService.getStock(cream.getId()).isEmpty(), "Stock of a dropped ingredient should be removed");
+  }
+
+  @Test
+  public void testLoadSnapshot_corruptFile_throwsException(@TempDir Path directory) throws IOException {
+    recipeService.createIngredient(DARK_CHOCOLATE);
+    Path file = directory.resolve("catalog.snapshot");
+    recipeService.saveSnapshot(file);
+    byte[] bytes = Files.readAllBytes(file);
+    bytes[bytes.length / 2] ^= 1;
+    Files.write(file, bytes);
+
+    assertThrows(IllegalArgumentException.class, () -> new RecipeService().loadSnapshot(file),
+        "Should throw exception for corrupt snapshot");
+  }
+
+  @Test
+  public void testImportCatalog_csv_reportsBadRecordsAndImportsTheRest(@TempDir Path directory) throws IOException {
+    Ingredient existing = recipeService.createIngredient(DARK_CHOCOLATE);
+    Path file = directory.resolve("catalog.csv");
+    Files.writeString(file, String.join("\n",
+        "type,name,ingredients",
+        "ingredient,Whipped cream",
+        "ingredient,\"Salt, sea\"",
+        "recipe,\"The \"\"classic\"\"\",Dark chocolate,Whipped cream",
+        "",
+        "# comment",
+        "ingredient,Whipped cream",
+        "ingredient,Dark chocolate",
+        "recipe,Mystery pancake,Whipped cream,Truffle",
+        "recipe,Empty pancake",
+        "topping,Sprinkles",
+        "recipe,Salty pancake,\"Salt, sea\""));
+
+    ImportReport report = recipeService.importCatalog(file);
+
+    assertEquals(2, report.ingredientsImported());
+    assertEquals(2, report.recipesImported());
+    assertEquals(List.of(7L, 8L, 9L, 10L, 11L), report.errors().stream().map(ImportError::line).toList());
+    assertTrue(report.errors().get(3).message().contains("at least one ingredient"));
+    UUID classic = recipeService.searchRecipes("The", 10).get(0).id();
+    assertEquals(List.of(DARK_CHOCOLATE, "Whipped cream"), recipeService.viewRecipe(classic));
+    assertEquals(List.of(new IdNameDto(classic, "The \"classic\"")),
+        recipeService.findRecipesByIngredient(existing.getId()));
+    assertEquals(1, recipeService.searchIngredients("Salt, sea", 10).size());
+  }
+
+  @Test
+  public void testImportCatalog_jsonLines_commitsOnceUnderTheWriteLock(@TempDir Path directory) throws IOException {
+    Path file = directory.resolve("catalog.jsonl");
+    Files.writeString(file, String.join("\n",
+        "{\"type\":\"recipe\",\"name\":\"" + DARK_CHOCOLATE_PANCAKE + "\",\"ingredients\":[\"" + DARK_CHOCOLATE + "\"]}",
+        "{\"type\":\"ingredient\",\"name\":\"" + DARK_CHOCOLATE + "\"}",
+        "{\"type\":\"ingredient\",\"name\":\"" + "x".repeat(MAX_NAME_LENGTH + 1) + "\"}",
+        "{\"type\":\"ingredient\"",
+        "{\"type\":\"recipe\",\"name\":\"" + DARK_CHOCOLATE_PANCAKE + "\",\"ingredients\":[\"" + DARK_CHOCOLATE + "\"]}"));
+
+    ImportReport report = recipeService.importCatalog(file);
+
+    assertEquals(1, report.ingredientsImported());
+    assertEquals(1, report.recipesImported());
+    assertEquals(List.of(3L, 4L, 5L), report.errors().stream().map(ImportError::line).toList());
+    assertEquals(1, recipeService.getMetrics().snapshot().locks().get("RecipeService.writeLock").acquisitions(),
+        "The whole batch should be published with one write lock acquisition");
+    assertEquals(List.of(DARK_CHOCOLATE), recipeService.viewRecipe(recipeService.listRecipes().get(0).id()));
+    assertThrows(IllegalArgumentException.class, () -> recipeService.createIngredient(DARK_CHOCOLATE),
+        "Imported names should be checked for duplicates");
+  }
+
+  @Test
+  public void testImportCatalog_spanningSeveralBatches(@TempDir Path directory) throws IOException {
+    Path file = directory.resolve("catalog.csv");
+    List<String> lines = new ArrayList<>();
+    lines.add("recipe," + DARK_CHOCOLATE_PANCAKE + "," + DARK_CHOCOLATE);
+    for (int i = 0; i < RecipeService.IMPORT_BATCH_SIZE * 2; i++) {
+      lines.add("ingredient,Ingredient " + i);
+    }
+    lines.add("ingredient,Ingredient 0");
+    lines.add("ingredient," + DARK_CHOCOLATE);
+    Files.write(file, lines);
+
+    ImportReport report = recipeService.importCatalog(file);
+
+    assertEquals(RecipeService.IMPORT_BATCH_SIZE * 2 + 1, report.ingredientsImported());
+    assertEquals(1, report.recipesImported(), "Recipes should find ingredients from later batches");
+    assertEquals(List.of(new ImportError(lines.size() - 1, "Ingredient Ingredient 0 is already imported on line 2")),
+        report.errors(), "Duplicates should be found across batches");
+  }
+
+  @Test
+  public void testListRecipes_returnsCachedSnapshotUntilCatalogChanges() {
+    Ingredient ingredient = recipeService.createIngredient(DARK_CHOCOLATE);
+    UUID recipeId = recipeService.createRecipe(DARK_CHOCOLATE_PANCAKE, List.of(ingredient.getId()));
+
+    List<IdNameDto> first = recipeService.listRecipes();
+    assertSame(first, recipeService.listRecipes(), "Unchanged catalog should reuse the snapshot");
+    assertThrows(UnsupportedOperationException.class, () -> first.add(new IdNameDto(recipeId, "x")));
+
+    recipeService.updateRecipe(recipeId, "Renamed pancake", List.of(ingredient.getId()));
+    assertEquals(List.of(new IdNameDto(recipeId, "Renamed pancake")), recipeService.listRecipes());
+    assertDoesNotThrow(() -> recipeService.createRecipe(DARK_CHOCOLATE_PANCAKE, List.of(ingredient.getId())),
+        "The old name should be free again after a rename");
+  }
+
+  @Test
+  public void testListRecipesPage_walksCatalogWithCursor() {
+    Ingredient ingredient = recipeService.createIngredient(DARK_CHOCOLATE);
+    List<String> names = List.of("apple", "Banana", "cherry", "Date", "elderberry");
+    for (String name : names) {
+      recipeService.createRecipe(name, List.of(ingredient.getId()));
+    }
+
+    List<String> seen = new ArrayList<>();
+    String cursor = null;
+    do {
+      IdNamePage page = recipeService.listRecipes(cursor, 2);
+      assertTrue(page.items().size() <= 2);
+      page.items().forEach(recipe -> seen.add(recipe.name()));
+      cursor = page.nextCursor();
+    } while (cursor != null);
+
+    assertEquals(names, seen, "Pages should cover every recipe once, in case-insensitive name order");
+    assertThrows(IllegalArgumentException.class, () -> recipeService.listRecipes(null, 0));
+    assertThrows(IllegalArgumentException.class, () -> recipeService.listRecipes("%%%", 10));
+  }
+
+  @Test
+  public void testSearch_matchesPrefixIgnoringCase() {
+    Ingredient chocolate = recipeService.createIngredient(DARK_CHOCOLATE);
+    recipeService.createIngredient("dark sugar");
+    recipeService.createIngredient("Whipped cream");
+    recipeService.createRecipe("Dark chocolate pancake", List.of(chocolate.getId()));
+    recipeService.createRecipe("DARK forest pancake", List.of(chocolate.getId()));
+    recipeService.createRecipe("Darkness", List.of(chocolate.getId()));
+    recipeService.createRecipe("Plain pancake", List.of(chocolate.getId()));
+
+    assertEquals(List.of("Dark chocolate pancake", "DARK forest pancake"),
+        recipeService.searchRecipes("dark ", 10).stream().map(IdNameDto::name).toList());
+    assertEquals(List.of("Dark chocolate"),
+        recipeService.searchIngredients("DARK C", 10).stream().map(IdNameDto::name).toList());
+    assertEquals(2, recipeService.searchIngredients("dark", 10).size());
+    assertTrue(recipeService.searchRecipes("x", 10).isEmpty());
+  }
+
+  @Test
+  public void testListIngredientsPage_reflectsRemovals() {
+    Ingredient chocolate = recipeService.createIngredient(DARK_CHOCOLATE);
+    recipeService.createIngredient("Whipped cream");
+    recipeService.removeIngredient(chocolate.getId());
+
+    IdNamePage page = recipeService.listIngredients(null, 10);
+    assertEquals(List.of("Whipped cream"), page.items().stream().map(IdNameDto::name).toList());
+    assertNull(page.nextCursor());
+  }
+
+  @Test
+  public void testResolveRecipe_cachedUntilCatalogChanges() {
+    Ingredient chocolate = recipeService.createIngredient(DARK_CHOCOLATE);
+    Ingredient cream = recipeService.createIngredient("Whipped cream");
+    UUID recipeId = recipeService.createRecipe(DARK_CHOCOLATE_PANCAKE, List.of(chocolate.getId()));
+
+    IngredientSet first = recipeService.resolveRecipe(recipeId);
+    assertSame(first, recipeService.resolveRecipe(recipeId), "Unchanged recipe should reuse its resolution");
+    Ingredient sugar = recipeService.createIngredient("Sugar");
+    recipeService.createRecipe("Sugar pancake", List.of(sugar.getId()));
+    assertSame(first, recipeService.resolveRecipe(recipeId), "Adding to the catalog should keep the resolution");
+
+    recipeService.updateRecipe(recipeId, DARK_CHOCOLATE_PANCAKE + " with cream", List.of(chocolate.getId(), cream.getId()));
+    assertEquals(List.of(DARK_CHOCOLATE, "Whipped cream"), recipeService.resolveRecipe(recipeId).ingredientNames());
+
+    recipeService.removeRecipe(recipeId);
+    assertThrows(IllegalArgumentException.class, () -> recipeService.resolveRecipe(recipeId),
+        "Removed recipe should no longer resolve");
+  }
+
+  @Test
+  public void testResolveIngredients_namesOutliveIngredientRemoval() {
+    Ingredient chocolate = recipeService.createIngredient(DARK_CHOCOLATE);
+
+    IngredientSet resolved = recipeService.resolveIngredients(List.of(chocolate.getId()));
+    recipeService.removeIngredient(chocolate.getId());
+
+    assertEquals(List.of(DARK_CHOCOLATE), resolved.ingredientNames(),
+        "Names should still resolve after the ingredient is removed");
+    assertSame(resolved.ingredientNames(), resolved.ingredientNames(), "Resolved names should be kept");
+  }
+
+  @Test
+  public void testReaders_keepTheirCatalogVersionAcrossEdits() {
+    Ingredient chocolate = recipeService.createIngredient(DARK_CHOCOLATE);
+    Ingredient cream = recipeService.createIngredient("Whipped cream");
+    UUID recipeId = recipeService.createRecipe(DARK_CHOCOLATE_PANCAKE, List.of(chocolate.getId()));
+    List<IdNameDto> menu = recipeService.listRecipes();
+    List<UUID> ingredients = recipeService.getRecipeIngredients(recipeId);
+
+    recipeService.updateRecipe(recipeId, "Cream pancake", List.of(cream.getId()));
+    recipeService.createRecipe("Plain pancake", List.of(chocolate.getId()));
+
+    assertEquals(List.of(new IdNameDto(recipeId, DARK_CHOCOLATE_PANCAKE)), menu, "Earlier menu should not change");
+    assertEquals(List.of(chocolate.getId()), ingredients, "Earlier recipe should not change");
+    assertEquals(List.of("Cream pancake", "Plain pancake"),
+        recipeService.listRecipes().stream().map(IdNameDto::name).toList());
+    assertEquals(List.of("Whipped cream"), recipeService.viewRecipe(recipeId));
+  }
+
+  @Test
+  public void testGetRecipeIngredients_returnsModifiableCopy() {
+    Ingredient chocolate = recipeService.createIngredient(DARK_CHOCOLATE);
+    Ingredient cream = recipeService.createIngredient("Whipped cream");
+    UUID recipeId = recipeService.createRecipe(DARK_CHOCOLATE_PANCAKE, List.of(chocolate.getId()));
+
+    List<UUID> ingredients = recipeService.getRecipeIngredients(recipeId);
+    ingredients.add(cream.getId());
+
+    assertEquals(List.of(chocolate.getId()), recipeService.getRecipeIngredients(recipeId),
+        "Changing the returned list should not change the recipe");
+  }
 }
@@ -0,0 +1,61 @@
+package org.homework1.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersistentUuidMapTest {
+
+  @Test
+  public void testWithWithout_matchesHashMap() {
+    PersistentUuidMap<Integer> map = PersistentUuidMap.empty();
+    Map<UUID, Integer> expected = new HashMap<>();
+    List<UUID> keys = new ArrayList<>();
+    for (int i = 0; i < 3_000; i++) {
+      keys.add(new UUID(i / 5, i % 5));
+    }
+    Random random = new Random(7);
+    for (int i = 0; i < 60_000; i++) {
+      UUID key = keys.get(random.nextInt(keys.size()));
+      if (random.nextInt(3) == 0) {
+        expected.remove(key);
+        map = map.without(key);
+      } else {
+        expected.put(key, i);
+        map = map.with(key, i);
+      }
+    }
+
+    assertEquals(expected.size(), map.size());
+    for (UUID key : keys) {
+      assertEquals(expected.get(key), map.get(key), "Lookup should match for " + key);
+    }
+    assertEquals(new HashSet<>(expected.values()), new HashSet<>(map.values()));
+  }
+
+  @Test
+  public void testWith_leavesEarlierVersionsUnchanged() {
+    UUID first = UUID.randomUUID();
+    UUID second = UUID.randomUUID();
+    PersistentUuidMap<String> v1 = PersistentUuidMap.<String>empty().with(first, "a");
+    PersistentUuidMap<String> v2 = v1.with(second, "b").with(first, "c");
+    PersistentUuidMap<String> v3 = v2.without(first);
+
+    assertEquals("a", v1.get(first));
+    assertNull(v1.get(second));
+    assertEquals("c", v2.get(first));
+    assertEquals(2, v2.size());
+    assertNull(v3.get(first));
+    assertEquals("b", v3.get(second));
+    assertEquals(1, v3.size());
+  }
+
+  @Test
+  public void testWithout_absentKeyReturnsSameMap() {
+    PersistentUuidMap<String> map = PersistentUuidMap.<String>empty().with(UUID.randomUUID(), "a");
+
+    assertSame(map, map.without(UUID.randomUUID()));
+  }
+}
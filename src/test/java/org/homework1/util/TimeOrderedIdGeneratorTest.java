@@ -0,0 +1,66 @@
+package org.homework1.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimeOrderedIdGeneratorTest {
+
+  @Test
+  public void testNextId_increasingWithinThread() {
+    IdGenerator ids = new TimeOrderedIdGenerator(1);
+    UUID previous = ids.nextId();
+    for (int i = 0; i < 100_000; i++) {
+      UUID next = ids.nextId();
+      assertTrue(next.compareTo(previous) > 0, "IDs from one thread should only grow");
+      previous = next;
+    }
+  }
+
+  @Test
+  public void testNextId_versionAndTimestamp() {
+    long before = System.currentTimeMillis();
+    UUID id = new TimeOrderedIdGenerator(1).nextId();
+
+    assertEquals(7, id.version());
+    assertEquals(2, id.variant());
+    assertTrue(id.getMostSignificantBits() >>> 16 >= before, "ID should start with its creation time");
+  }
+
+  @Test
+  public void testNextId_uniqueAcrossThreads() throws Exception {
+    IdGenerator ids = new TimeOrderedIdGenerator(1);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<List<UUID>>> generated = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        generated.add(executor.submit(() -> {
+          List<UUID> batch = new ArrayList<>();
+          for (int i = 0; i < 50_000; i++) {
+            batch.add(ids.nextId());
+          }
+          return batch;
+        }));
+      }
+      Set<UUID> unique = new HashSet<>();
+      for (Future<List<UUID>> batch : generated) {
+        unique.addAll(batch.get(30, TimeUnit.SECONDS));
+      }
+
+      assertEquals(8 * 50_000, unique.size(), "IDs should never repeat");
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testConstructor_nodeOutOfRangeThrows() {
+    assertThrows(IllegalArgumentException.class, () -> new TimeOrderedIdGenerator(1 << 14));
+  }
+}
@@ -0,0 +1,91 @@
+package org.homework1.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UuidMapTest {
+
+  @Test
+  public void testPutGetRemove_matchesHashMap() {
+    UuidMap<Integer> map = new UuidMap<>();
+    Map<UUID, Integer> expected = new HashMap<>();
+    List<UUID> keys = new ArrayList<>();
+    for (int i = 0; i < 2_000; i++) {
+      keys.add(new UUID(i / 7, i % 7)); // Clustered keys, like time-ordered IDs
+    }
+    Random random = new Random(42);
+    for (int i = 0; i < 50_000; i++) {
+      UUID key = keys.get(random.nextInt(keys.size()));
+      if (random.nextInt(3) == 0) {
+        assertEquals(expected.remove(key), map.remove(key));
+      } else {
+        assertEquals(expected.put(key, i), map.put(key, i));
+      }
+    }
+
+    assertEquals(expected.size(), map.size());
+    keys.forEach(key -> assertEquals(expected.get(key), map.get(key), "Lookup should match for " + key));
+    assertEquals(new HashSet<>(expected.values()), new HashSet<>(map.values()));
+    assertEquals(expected.keySet(), new HashSet<>(map.keys()));
+  }
+
+  @Test
+  public void testPutIfAbsent_keepsExistingValue() {
+    UuidMap<String> map = new UuidMap<>();
+    UUID key = UUID.randomUUID();
+
+    assertNull(map.putIfAbsent(key, "first"));
+    assertEquals("first", map.putIfAbsent(key, "second"));
+    assertEquals("first", map.get(key));
+  }
+
+  @Test
+  public void testPut_nullValueThrows() {
+    UuidMap<String> map = new UuidMap<>();
+
+    assertThrows(NullPointerException.class, () -> map.put(UUID.randomUUID(), null));
+  }
+
+  @Test
+  public void testConcurrentMap_parallelWritersAndReaders() throws Exception {
+    ConcurrentUuidMap<UUID> map = new ConcurrentUuidMap<>(4, 0);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<List<UUID>>> writers = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        writers.add(executor.submit(() -> {
+          List<UUID> kept = new ArrayList<>();
+          for (int i = 0; i < 20_000; i++) {
+            UUID key = UUID.randomUUID();
+            map.put(key, key);
+            assertEquals(key, map.get(key), "Value should be visible to its writer");
+            if (ThreadLocalRandom.current().nextBoolean()) {
+              assertEquals(key, map.remove(key));
+            } else {
+              kept.add(key);
+            }
+          }
+          return kept;
+        }));
+      }
+      Set<UUID> kept = new HashSet<>();
+      for (Future<List<UUID>> writer : writers) {
+        kept.addAll(writer.get(30, TimeUnit.SECONDS));
+      }
+
+      assertEquals(kept.size(), map.size());
+      assertEquals(kept, new HashSet<>(map.values()));
+      kept.forEach(key -> assertTrue(map.containsKey(key)));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}